@@ -0,0 +1,122 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An IssueAssignmentStrategy on its own, without the service or repositories around it (see Scenarios.StrategyBench),
+ * so alternative strategies can be compared under identical load. Like in IssueServiceBenchmark every iteration starts
+ * from fresh state and makes -bs calls per thread (single shot), the score being the time of one batch.
+ * <p>
+ * findAndAssignAgent gets a stream of new issues; agents are never freed, so after the first few the rest wait.
+ * assignWaitingIssueToAgent is called for agents that just finished their issue, with -p issues waiting.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1000)
+@Measurement(iterations = 10, batchSize = 1000)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssignmentStrategyBenchmark {
+    @Param({"50", "500"})
+    public int agents;
+    @Param({"10000"})
+    public int issues;
+    @Param({"round-robin", "queue-balancing"})
+    public String strategy;
+    @Param({"uniform", "skewed"})
+    public String distribution;
+    @Param({"1"})
+    public int capacity;
+
+    private Scenarios.StrategyBench bench;
+    private final AtomicInteger next = new AtomicInteger(); // Index of the next issue for findAndAssignAgent
+
+    @Setup(Level.Iteration)
+    public void setUp(org.openjdk.jmh.infra.BenchmarkParams benchmark, IterationParams iteration) {
+        int calls = iteration.getBatchSize() * benchmark.getThreads();
+        boolean waiting = benchmark.getBenchmark().endsWith(".assignWaitingIssueToAgent");
+        // Every call to findAndAssignAgent needs a new issue, every call to assignWaitingIssueToAgent a busy agent
+        bench = new Scenarios.StrategyBench(new BenchmarkParams(agents, waiting ? Math.max(issues, calls) : calls,
+                benchmark.getThreads(), strategy, "memory", distribution, 0, 0, capacity));
+        if (waiting) {
+            for (Issue issue : bench.issues) {
+                bench.strategy.findAndAssignAgent(issue, bench.agentRepo.getFreeAgentIndex(), bench.waitingIssues);
+            }
+        }
+        next.set(0);
+    }
+
+    @Benchmark
+    public Optional<Agent> findAndAssignAgent() {
+        Issue issue = bench.issues.get(next.getAndIncrement());
+        ReentrantLock lock = bench.typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            return bench.strategy.findAndAssignAgent(issue, bench.agentRepo.getFreeAgentIndex(), bench.waitingIssues);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Finishes the issue of the next busy agent of the calling thread, then gives that agent a waiting issue
+    @Benchmark
+    public Optional<Issue> assignWaitingIssueToAgent(IssueServiceBenchmark.AgentShare share) {
+        for (int tried = 0; tried < bench.agents.size(); tried++) {
+            Agent agent = bench.agents.get(share.nextAgent(bench.agents.size()));
+            String issueId = agent.getCurrentAssignedIssueId();
+            if (issueId != null) {
+                bench.issuesById.get(issueId).setStatus(IssueStatus.RESOLVED);
+                agent.releaseIssue(issueId);
+                bench.agentRepo.getFreeAgentIndex().refresh(agent);
+                return assignWaiting(agent);
+            }
+        }
+        throw new IllegalStateException("No agent of thread " + share.thread + " is working on an issue, use at least as "
+                + "many agents as threads.");
+    }
+
+    // Under the locks of all the agent's types, like IssueService
+    private Optional<Issue> assignWaiting(Agent agent) {
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (IssueType type : IssueType.values()) {
+            if (agent.canHandle(type)) {
+                locks.add(bench.typeLocks.get(type));
+            }
+        }
+        locks.forEach(ReentrantLock::lock);
+        try {
+            Optional<Issue> next = bench.strategy.assignWaitingIssueToAgent(agent, bench.issuesById::get, bench.waitingIssues);
+            if (next.isPresent()) {
+                bench.agentRepo.getFreeAgentIndex().refresh(agent);
+            }
+            return next;
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+}
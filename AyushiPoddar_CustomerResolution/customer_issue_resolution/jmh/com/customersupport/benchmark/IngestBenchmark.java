@@ -0,0 +1,109 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Issue;
+import com.customersupport.model.IssueRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk ingestion of ISSUES issues: one createIssue() + assignIssue() per issue, against createIssues() +
+ * assignPending() for batches of BATCH issues. Every iteration starts from a fresh service with idle agents and makes
+ * one call (single shot) that ingests everything, so both paths see the same growing backlog; scores are per issue.
+ * With several threads each ingests its share of the batches.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+    static final int ISSUES = 10_000;
+    static final int BATCH = 500;
+
+    @Param({"50", "500"})
+    public int agents;
+    @Param({"round-robin", "queue-balancing"})
+    public String strategy;
+    @Param({"memory"})
+    public String repository;
+    @Param({"1"})
+    public int capacity;
+
+    private Fixture fixture;
+    private List<List<IssueRequest>> batches;
+
+    // Only warnings and errors, so logging doesn't end up in the numbers
+    @Setup(Level.Trial)
+    public void setUpLogging() {
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownLogging() {
+        Logger.getBackend().close();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp(org.openjdk.jmh.infra.BenchmarkParams benchmark) throws IOException {
+        fixture = Fixture.create(new BenchmarkParams(agents, ISSUES, benchmark.getThreads(), strategy, repository,
+                "uniform", 0, BATCH, capacity));
+        batches = new ArrayList<>();
+        for (int from = 0; from < ISSUES; from += BATCH) {
+            List<IssueRequest> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(ISSUES, from + BATCH); i++) {
+                batch.add(new IssueRequest("T" + i, fixture.typeFor(i).name(), Fixture.subjectFor(i),
+                        Fixture.descriptionFor(i), Fixture.emailFor(i), Fixture.priorityFor(i).name()));
+            }
+            batches.add(batch);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ISSUES)
+    public void single(ThreadParams thread, Blackhole blackhole) {
+        for (int b = thread.getThreadIndex(); b < batches.size(); b += thread.getThreadCount()) {
+            for (IssueRequest request : batches.get(b)) {
+                Issue issue = fixture.issueService.createIssue(request.getTransactionId(), request.getIssueType(),
+                        request.getSubject(), request.getDescription(), request.getCustomerEmail(), request.getPriority());
+                blackhole.consume(fixture.issueService.assignIssue(issue.getId()));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ISSUES)
+    public void batch(ThreadParams thread, Blackhole blackhole) {
+        for (int b = thread.getThreadIndex(); b < batches.size(); b += thread.getThreadCount()) {
+            fixture.issueService.createIssues(batches.get(b));
+            blackhole.consume(fixture.issueService.assignPending());
+        }
+    }
+}
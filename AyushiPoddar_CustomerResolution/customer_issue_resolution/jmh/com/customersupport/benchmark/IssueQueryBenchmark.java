@@ -0,0 +1,136 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Issue;
+import com.customersupport.repository.IssueCursor;
+import com.customersupport.repository.IssueOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read paths of IssueService over a store with issues in every active state and some resolved ones
+ * (Fixture.createQueriedIssues()). Queries don't change the store, so it is built once per trial; the filter values
+ * vary from call to call.
+ * <p>
+ * getIssues runs with every combination of the four filters, -p filters being the names joined by '+' (or "none",
+ * which returns everything). getIssuesPage resumes from the cursor of a different issue every time, so pages start
+ * anywhere in the result; its cost should not depend on where. searchIssues is the ranked text search. These two only
+ * apply the type and status filters, so run them with -p filters=none,type,status.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueQueryBenchmark {
+    private static final String[] FILTER_KEYS = {"email", "type", "issueId", "status"};
+
+    @Param({"50", "500"})
+    public int agents;
+    @Param({"10000"})
+    public int issues;
+    @Param({"none", "email", "type", "email+type", "issueId", "email+issueId", "type+issueId", "email+type+issueId",
+            "status", "email+status", "type+status", "email+type+status", "issueId+status", "email+issueId+status",
+            "type+issueId+status", "email+type+issueId+status"})
+    public String filters;
+    @Param({"memory"})
+    public String repository;
+
+    private Fixture fixture;
+    private List<Issue> queried;
+    private int filterMask; // Bit i = FILTER_KEYS[i]
+    private final AtomicInteger next = new AtomicInteger(); // Query number, which picks the filter values
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+        filterMask = 0;
+        if (!filters.equals("none")) {
+            for (String key : filters.split("\\+")) {
+                int bit = List.of(FILTER_KEYS).indexOf(key);
+                if (bit < 0) {
+                    throw new IllegalArgumentException("Unknown filter '" + key + "' (email, type, issueId, status).");
+                }
+                filterMask |= 1 << bit;
+            }
+        }
+        fixture = Fixture.create(new BenchmarkParams(agents, issues, 1, "round-robin", repository, "uniform", 0, 0, 1));
+        queried = fixture.createQueriedIssues();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+        Logger.getBackend().close();
+    }
+
+    @Benchmark
+    public List<Issue> getIssues() {
+        int q = next.getAndIncrement();
+        Map<String, String> filter = new HashMap<>();
+        if ((filterMask & 1) != 0) {
+            filter.put("email", Fixture.emailFor(q));
+        }
+        if ((filterMask & 2) != 0) {
+            filter.put("type", fixture.typeFor(q).name());
+        }
+        if ((filterMask & 4) != 0) {
+            filter.put("issueId", queried.get(Math.floorMod(Fixture.mix(q), queried.size())).getId());
+        }
+        if ((filterMask & 8) != 0) {
+            filter.put("status", Fixture.QUERIED_STATUSES[Math.floorMod(q, Fixture.QUERIED_STATUSES.length)].name());
+        }
+        return fixture.issueService.getIssues(filter);
+    }
+
+    // Pages of 100, with the type and status filters of -p filters (the others don't apply to paging)
+    @Benchmark
+    public List<Issue> getIssuesPage() {
+        int q = next.getAndIncrement();
+        Map<String, String> filter = new HashMap<>();
+        if ((filterMask & 2) != 0) {
+            filter.put("type", fixture.typeFor(q).name());
+        }
+        if ((filterMask & 8) != 0) {
+            filter.put("status", Fixture.QUERIED_STATUSES[Math.floorMod(q, Fixture.QUERIED_STATUSES.length)].name());
+        }
+        Issue from = queried.get(Math.floorMod(Fixture.mix(q), queried.size()));
+        String cursor = IssueCursor.of(from, IssueOrder.ID).toToken();
+        return fixture.issueService.getIssuesPage(filter, IssueOrder.ID, cursor, 100).getIssues();
+    }
+
+    // Two or three words from the issue texts, mixing frequent and rare terms; narrowed down by -p filters' status
+    @Benchmark
+    public List<Issue> searchIssues() {
+        int q = next.getAndIncrement();
+        String sentence = Fixture.SENTENCES[Math.floorMod(Fixture.mix(q), Fixture.SENTENCES.length)];
+        String[] words = sentence.split(" ");
+        Map<String, String> filter = new HashMap<>();
+        filter.put("text", Fixture.SUBJECTS[Math.floorMod(q, Fixture.SUBJECTS.length)] + " " + words[words.length - 1]);
+        if ((filterMask & 8) != 0) {
+            filter.put("status", Fixture.QUERIED_STATUSES[Math.floorMod(q, Fixture.QUERIED_STATUSES.length)].name());
+        }
+        return fixture.issueService.getIssues(filter);
+    }
+}
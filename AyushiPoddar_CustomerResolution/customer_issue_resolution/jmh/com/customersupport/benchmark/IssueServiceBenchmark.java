@@ -0,0 +1,146 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * createIssue, assignIssue and resolveIssue of IssueService, on a store that already holds a backlog of -p issues
+ * issues (all of them assigned, so most are WAITING). Each operation changes the state it runs on, so every iteration
+ * gets a fresh service and exactly the issues its batch of calls needs: the mode is single shot with a batch size,
+ * and the score is the time of one batch (-bs, default 1000 calls per thread).
+ * <p>
+ * resolveIssue hands the freed agent the next waiting issue; its time should not grow with -p issues. With
+ * -p repository=durable-always (or -interval, -never) the same calls measure the write throughput with durability on.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1000)
+@Measurement(iterations = 10, batchSize = 1000)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueServiceBenchmark {
+    @Param({"50", "500"})
+    public int agents;
+    @Param({"10000", "100000"})
+    public int issues;
+    @Param({"round-robin"})
+    public String strategy;
+    @Param({"memory"})
+    public String repository;
+    @Param({"1"})
+    public int capacity;
+
+    private Fixture fixture;
+    private List<String> openIssueIds; // For assignIssue, one per call
+    private final AtomicInteger next = new AtomicInteger(); // Index of the next issue created
+    private final AtomicInteger nextOpen = new AtomicInteger();
+
+    // Only warnings and errors, so logging doesn't end up in the numbers
+    @Setup(Level.Trial)
+    public void setUpLogging() {
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownLogging() {
+        Logger.getBackend().close();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp(org.openjdk.jmh.infra.BenchmarkParams benchmark, IterationParams iteration) throws IOException {
+        int calls = iteration.getBatchSize() * benchmark.getThreads();
+        fixture = Fixture.create(new BenchmarkParams(agents, issues, benchmark.getThreads(), strategy, repository,
+                "uniform", 0, 0, capacity));
+        // resolveIssue needs a busy agent for every call, so its backlog is at least as large as the batch
+        int backlog = benchmark.getBenchmark().endsWith(".resolveIssue") ? Math.max(issues, calls) : issues;
+        for (Issue issue : fixture.createIssues(backlog)) {
+            fixture.issueService.assignIssue(issue.getId());
+        }
+        openIssueIds = new ArrayList<>();
+        if (benchmark.getBenchmark().endsWith(".assignIssue")) {
+            for (int i = 0; i < calls; i++) {
+                openIssueIds.add(fixture.createIssue(backlog + i).getId());
+            }
+        }
+        next.set(backlog + openIssueIds.size());
+        nextOpen.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Issue createIssue() {
+        return fixture.createIssue(next.getAndIncrement());
+    }
+
+    @Benchmark
+    public Agent assignIssue() {
+        return fixture.issueService.assignIssue(openIssueIds.get(nextOpen.getAndIncrement()));
+    }
+
+    // Resolves the issue of the next busy agent among the calling thread's share of the agents
+    @Benchmark
+    public void resolveIssue(AgentShare share) {
+        for (int tried = 0; tried < fixture.agents.size(); tried++) {
+            Agent agent = fixture.agents.get(share.nextAgent(fixture.agents.size()));
+            String issueId = agent.getCurrentAssignedIssueId();
+            if (issueId != null) {
+                fixture.issueService.resolveIssue(issueId, "Resolved by benchmark");
+                return;
+            }
+        }
+        throw new IllegalStateException("No agent of thread " + share.thread + " is working on an issue, use at least as "
+                + "many agents as threads.");
+    }
+
+    // The agents (by index) that belong to one benchmark thread, so two threads never resolve the same issue
+    @State(Scope.Thread)
+    public static class AgentShare {
+        int thread;
+        int threads;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            thread = params.getThreadIndex();
+            threads = params.getThreadCount();
+            cursor = thread;
+        }
+
+        int nextAgent(int agentCount) {
+            int agent = cursor;
+            cursor += threads;
+            if (cursor >= agentCount) {
+                cursor = thread;
+            }
+            return agent;
+        }
+    }
+}
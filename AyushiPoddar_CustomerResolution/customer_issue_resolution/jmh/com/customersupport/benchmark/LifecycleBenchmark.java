@@ -0,0 +1,119 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LatencyHistogram;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.instrumentation.MetricsRegistry;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service under a steady backlog: every iteration starts with -p backlog issues waiting for agents, and every call
+ * brings in a new issue (create + assign) and resolves the issue of one busy agent of the calling thread, which pulls
+ * in the next waiting issue. So the backlog stays the same size. Calls are sampled, so JMH reports their p99.
+ * <p>
+ * What the issues themselves see is the time from creation to assignment, recorded by IssueMetrics; after every
+ * iteration its p99 is printed, overall and for the worst IssueType (compare -p strategy, -p distribution=skewed and
+ * -p capacity).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LifecycleBenchmark {
+    @Param({"50"})
+    public int agents;
+    @Param({"1000", "100000"})
+    public int backlog;
+    @Param({"round-robin", "queue-balancing"})
+    public String strategy;
+    @Param({"uniform", "skewed"})
+    public String distribution;
+    @Param({"1"})
+    public int capacity;
+
+    private Fixture fixture;
+    private final AtomicInteger next = new AtomicInteger(); // Index of the next issue created
+
+    // Only warnings and errors, so logging doesn't end up in the numbers
+    @Setup(Level.Trial)
+    public void setUpLogging() {
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownLogging() {
+        Logger.getBackend().close();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp(org.openjdk.jmh.infra.BenchmarkParams benchmark) throws IOException {
+        fixture = Fixture.create(new BenchmarkParams(agents, backlog, benchmark.getThreads(), strategy, "memory",
+                distribution, 0, 0, capacity));
+        for (Issue issue : fixture.createIssues(backlog)) {
+            fixture.issueService.assignIssue(issue.getId());
+        }
+        next.set(backlog);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        MetricsRegistry metrics = fixture.metrics;
+        LatencyHistogram worst = null;
+        IssueType worstType = null;
+        for (IssueType type : IssueType.values()) {
+            LatencyHistogram histogram = metrics.histogram("issue.queue_wait." + type);
+            if (worst == null || histogram.getValueAtPercentile(99) > worst.getValueAtPercentile(99)) {
+                worst = histogram;
+                worstType = type;
+            }
+        }
+        System.out.printf(Locale.ROOT, "tta_p99_us=%.1f wait_p99_us=%.1f worst_wait_p99_us=%.1f(%s) resolved=%d%n",
+                metrics.histogram("issue.time_to_assignment").getValueAtPercentile(99) / 1000.0,
+                metrics.histogram("issue.queue_wait").getValueAtPercentile(99) / 1000.0,
+                worst.getValueAtPercentile(99) / 1000.0, worstType, metrics.counter("issues.resolved").get());
+        fixture.close();
+    }
+
+    @Benchmark
+    public Agent lifecycle(IssueServiceBenchmark.AgentShare share) {
+        Issue issue = fixture.createIssue(next.getAndIncrement());
+        Agent agent = fixture.issueService.assignIssue(issue.getId());
+        resolveOne(share);
+        return agent;
+    }
+
+    // Resolves the issue of the next busy agent of the calling thread, if any
+    private void resolveOne(IssueServiceBenchmark.AgentShare share) {
+        for (int tried = 0; tried < fixture.agents.size(); tried++) {
+            Agent agent = fixture.agents.get(share.nextAgent(fixture.agents.size()));
+            String issueId = agent.getCurrentAssignedIssueId();
+            if (issueId != null) {
+                fixture.issueService.resolveIssue(issueId, "Resolved by benchmark");
+                return;
+            }
+        }
+    }
+}
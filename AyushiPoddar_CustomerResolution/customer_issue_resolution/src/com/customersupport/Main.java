@@ -3,6 +3,12 @@ package com.customersupport;
 import com.customersupport.controller.AgentController;
 import com.customersupport.controller.IssueController;
 import com.customersupport.enums.IssueType;
+import com.customersupport.events.BackpressurePolicy;
+import com.customersupport.events.IssueEventBus;
+import com.customersupport.events.LoggingIssueEventListener;
+import com.customersupport.instrumentation.IssueMetrics;
+import com.customersupport.instrumentation.MetricsHttpServer;
+import com.customersupport.instrumentation.MetricsRegistry;
 import com.customersupport.model.Agent;
 import com.customersupport.model.Issue;
 import com.customersupport.repository.InMemoryIssueRepository;
@@ -11,6 +17,7 @@ import com.customersupport.service.AgentService;
 import com.customersupport.service.IssueService;
 import com.customersupport.Strategy.AssignmentStrategy;
 
+import java.io.IOException;
 import java.util.*;
 
 public class Main {
@@ -19,7 +26,17 @@ public class Main {
         InMemoryIssueRepository issueRepo = new InMemoryIssueRepository();
         InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
         AgentService agentService = new AgentService(agentRepo);
-        IssueService issueService = new IssueService(issueRepo, agentRepo, new AssignmentStrategy());
+        // Lifecycle messages are printed by a listener on the event bus, off the request path
+        IssueEventBus eventBus = new IssueEventBus(2, 1024, BackpressurePolicy.BLOCK);
+        eventBus.subscribe(new LoggingIssueEventListener());
+        IssueService issueService = new IssueService(issueRepo, agentRepo, new AssignmentStrategy(), eventBus);
+
+        // Metrics are fed from the same events; pass --metrics-port=<port> to also serve them on localhost
+        MetricsRegistry metrics = new MetricsRegistry();
+        IssueMetrics issueMetrics = new IssueMetrics(metrics);
+        issueMetrics.watchWaitingQueues(issueService);
+        eventBus.subscribe(issueMetrics);
+        MetricsHttpServer metricsServer = startMetricsServer(metrics, args);
         AgentController agentController = new AgentController(agentService);
         IssueController issueController = new IssueController(issueService);
 
@@ -65,6 +82,7 @@ public class Main {
             // --- 8. View Final Agent Work History ---
             //System.out.println("\n--- 8. Final Agent Work History ---");
             Map<String, List<String>> history = issueController.viewAgentsWorkHistory();
+            System.out.println("\n--- Agent Work History ---");
             history.forEach((agentDisplay, issueList) -> {
                 String agentShortId = "";
                 if (agentDisplay.contains("Agent 1")) agentShortId = "A1";
@@ -72,9 +90,39 @@ public class Main {
                 System.out.println(agentShortId + " -> " + issueList);
             });
 
+            // Maintained on every resolution, so this doesn't walk the histories
+            System.out.println("\n--- Agent Work Stats ---");
+            issueController.viewAgentsWorkStats().forEach((agentId, stats) ->
+                    System.out.println(agentController.getAgentById(agentId).getName() + ": resolved=" + stats.getResolvedCount()
+                            + " meanMs=" + Math.round(stats.getMeanHandlingMillis())
+                            + " p90Ms=" + stats.getHandlingMillisAtPercentile(90)
+                            + " maxMs=" + stats.getMaxHandlingMillis()));
+
         } catch (Exception e) {
             System.err.println("\nAn unexpected error occurred during execution: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            eventBus.close(); // Delivers whatever is still queued
+            System.out.println("\n--- Metrics ---");
+            System.out.print(metrics.exportText());
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+        }
+    }
+
+    private static MetricsHttpServer startMetricsServer(MetricsRegistry metrics, String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--metrics-port=")) {
+                try {
+                    MetricsHttpServer server = new MetricsHttpServer(metrics, Integer.parseInt(arg.substring("--metrics-port=".length())));
+                    System.out.println("Metrics at http://localhost:" + server.getPort() + "/metrics");
+                    return server;
+                } catch (IOException | NumberFormatException e) {
+                    System.err.println("Could not start the metrics endpoint: " + e.getMessage());
+                }
+            }
         }
+        return null;
     }
 }
\ No newline at end of file
@@ -1,116 +1,129 @@
 
 package com.customersupport.Strategy;
 
-import com.customersupport.enums.AgentStatus;
 import com.customersupport.enums.IssueStatus;
 import com.customersupport.enums.IssueType;
+import com.customersupport.instrumentation.Logger;
 import com.customersupport.model.Agent;
 import com.customersupport.model.Issue;
+import com.customersupport.repository.FreeAgentIndex;
 
 import java.util.*;
+import java.util.function.Function;
 
 public class AssignmentStrategy implements IssueAssignmentStrategy {
-
-    // Map that stores the last assigned index against each ISSUE TYPE
-    private final Map<IssueType, Integer> lastAssignedIndex = new HashMap<>();
+    protected static final Logger LOG = Logger.get(AssignmentStrategy.class);
+    protected static final IssueType[] ISSUE_TYPES = IssueType.values(); // values() clones the array on every call
 
     /**
-     * Finds a free agent and assigns them the issue.
-     * If no agent is free, the issue is put on a waiting list.
+     * Finds the least-loaded agent with a free slot and assigns them the issue.
+     * If no agent has a free slot, the issue is put on a waiting list.
+     * The caller must hold the lock for the issue's type, which makes the check-then-enqueue step atomic
+     * with respect to agents draining that type's waiting queue.
      */
     @Override
-    public Optional<Agent> findAndAssignAgent(Issue issue, Map<String, Agent> allAgents, Map<IssueType, Queue<String>> waitingIssuesMap) {
-
-        // --- Step 1: Finding a list of all suitable agents who are free and whose expertise includes the current ISSUE TYPE ---
-        List<Agent> suitableAgents = new ArrayList<>();
-        for (Agent agent : allAgents.values()) {
-            if (agent.getStatus() == AgentStatus.FREE && agent.canHandle(issue.getType())) {
-                suitableAgents.add(agent);
+    public Optional<Agent> findAndAssignAgent(Issue issue, FreeAgentIndex freeAgents, WaitingIssueQueues waitingIssues) {
+        IssueType issueType = issue.getType();
+
+        // --- Step 1: The index hands us the least-loaded agent whose expertise includes the current ISSUE TYPE and who
+        //has a free slot; among equally loaded agents, the one who waited longest since their last change (so they take turns)
+        Agent agentToAssign;
+        while ((agentToAssign = freeAgents.leastLoaded(issueType, agent -> !agent.isWorkingOn(issue.getId()))) != null) {
+
+            // --- Step 2: Claim a slot. The last slot can be claimed concurrently for another issue type (multi-skilled agents),
+            //in that case the agent's entry is stale, refresh() drops it and we move on to the next agent
+            boolean claimed = agentToAssign.tryAssignIssue(issue.getId());
+            freeAgents.refresh(agentToAssign); // Moves the agent to their new load, or out of the index when full
+            if (claimed) {
+                // --- Step 3: Assign the issue ---
+                issue.assignAgent(agentToAssign.getAgentId()); // Marks issue as IN_PROGRESS
+
+                return Optional.of(agentToAssign); // Return the agent that was assigned.
             }
         }
 
-        // If no suitable or no free agent is available, we would add the issue in the waiting queue for that specific ISSUE TYPE
-        if (suitableAgents.isEmpty()) {
-            // No free agent found, so add the issue to the waiting queue.
-            System.out.println("No free agent available for " + issue.getType() + ". Adding " + issue.getId() + " to waitlist.");
+        // If no suitable agent has a free slot, we would add the issue in the waiting queue for that specific ISSUE TYPE
+        // No free agent found, so add the issue to the waiting queue.
+        LOG.debug("No free agent available for {}. Adding {} to waitlist.", issueType, issue.getId());
 
-            // Fetching the waiting queue for this issue type, if it doesn't exist, then creating a new one and adding it in the waitingIssueMap
-            Queue<String> queue = waitingIssuesMap.get(issue.getType());
-            if (queue == null) {
-                queue = new LinkedList<>(); // Using a simple LinkedList for the queue
-                waitingIssuesMap.put(issue.getType(), queue);
-            }
-            //Adding the current issue in the queue
-            queue.add(issue.getId());
+        // An issue that is already WAITING (manual retry) is already in its queue, so it is not added twice
+        if (issue.getStatus() != IssueStatus.WAITING) {
+            //Adding the current issue in the waiting queue of its type, where it is placed by its SLA deadline
+            waitingIssues.add(issue);
             issue.setStatus(IssueStatus.WAITING);
-
-            return Optional.empty(); // Return empty to signal no agent was assigned.
         }
 
-        // --- Step 3 : Now, if there are agents available, 
-        //we would find a suitable index position from the suitableAgents list, to whom we can assign the issue by the round-robin principle
-
-        
-        // For that we would first fetch the index to which issues of this given issueType was previously assigned to 
-        int lastIndex = lastAssignedIndex.getOrDefault(issue.getType(), -1);
-
-        // Find the next index by incrementing the previously used by 1 
-        //and if the new Index comes out to be greater than the size of the list of suitable Agents,
-        //we would just make the index position to circle back to the start of the list
-        int nextIndex = (lastIndex + 1) % suitableAgents.size();
-
-        // Get the agent to assign.
-        Agent agentToAssign = suitableAgents.get(nextIndex);
-
-        // Update the last used index for the next time.
-        lastAssignedIndex.put(issue.getType(), nextIndex);
-
-        // --- Step 4: Assign the issue ---
-        agentToAssign.assignIssue(issue.getId()); // Marks agent as BUSY
-        issue.assignAgent(agentToAssign.getAgentId()); // Marks issue as IN_PROGRESS
-
-        return Optional.of(agentToAssign); // Return the agent that was assigned.
+        return Optional.empty(); // Return empty to signal no agent was assigned.
     }
 
     /**
      * this is called when agent who is free and an issue from the waiting queue is to be assigned to him/her
-     * Called when an agent becomes free. Checks the waiting list for any work
+     * Called when one of the agent's slots becomes free. Checks the waiting list for any work
+     * Across all of the agent's expertise types, the waiting issue with the earliest SLA deadline is picked.
+     * The caller must hold the locks for all of the agent's expertise types.
      */
     @Override
-    public Optional<Issue> assignWaitingIssueToAgent(Agent agent, Map<String, Issue> allIssues, Map<IssueType, Queue<String>> waitingIssuesMap) {
-
-        // --- Step 1: Iterating through the given agent's list of expertise
-        for (IssueType expertiseType : agent.getExpertiseTypes()) {
-            //Fetching the waiting queue for this IssueType
-            Queue<String> waitingQueue = waitingIssuesMap.get(expertiseType);
-
-            // --- Step 2: Making sure that there exists a waiting queue for this IssueType and it is not empty
-            if (waitingQueue != null && !waitingQueue.isEmpty()) {
-
-                // --- Step 3: fetching the out the issueId that exists at the very front of the queue, 
-                //so that issues are assigned in the order they came in
-                String issueId = waitingQueue.poll();
-
-                //Just a validation for issueId
-                if (issueId != null) {
-                    Issue waitingIssue = allIssues.get(issueId);
-
-                    // --- Step 4: Double-check that the issue is still valid to be assigned by checking if it is in WAITING status or not
-                    if (waitingIssue != null && waitingIssue.getStatus() == IssueStatus.WAITING) {
+    public Optional<Issue> assignWaitingIssueToAgent(Agent agent, Function<String, Issue> issueLookup, WaitingIssueQueues waitingIssues) {
+
+        // --- Step 1: Iterating through the given agent's list of expertise, looking for the most urgent waiting issue
+        IssueType mostUrgentType = null;
+        Issue mostUrgentIssue = null;
+        for (IssueType expertiseType : ISSUE_TYPES) {
+            if (!agent.canHandle(expertiseType)) {
+                continue;
+            }
+            // --- Step 2: looking at the issue at the front of this type's queue, which is the one closest to its deadline
+            Issue waitingIssue = nextWaitingIssue(expertiseType, issueLookup, waitingIssues);
+            if (waitingIssue != null && (mostUrgentType == null
+                    || waitingIssues.peekDeadline(expertiseType) < waitingIssues.peekDeadline(mostUrgentType))) {
+                mostUrgentType = expertiseType;
+                mostUrgentIssue = waitingIssue;
+            }
+        }
 
-                        // --- Step 5: Assign the issue to this agent---
-                        agent.assignIssue(waitingIssue.getId());
-                        waitingIssue.assignAgent(agent.getAgentId());
+        // If we finish the loop and haven't found any suitable work.
+        if (mostUrgentIssue == null) {
+            LOG.debug("No suitable waiting issues for agent {}.", agent.getName());
+            return Optional.empty();
+        }
+        return claimWaitingIssue(agent, mostUrgentType, mostUrgentIssue, waitingIssues);
+    }
 
-                        System.out.println("Agent " + agent.getName() + " picked up waiting issue " + waitingIssue.getId() + ".");
-                        return Optional.of(waitingIssue); // Success! Return the assigned issue.
-                    }
-                }
+    /**
+     * Returns the issue at the front of the type's waiting queue, or null if there is none.
+     * Stale entries (issue already picked up or updated elsewhere) are dropped on the way, so the returned issue
+     * is still WAITING. The caller must hold the lock of the type.
+     */
+    protected Issue nextWaitingIssue(IssueType type, Function<String, Issue> issueLookup, WaitingIssueQueues waitingIssues) {
+        String issueId;
+        while ((issueId = waitingIssues.peek(type)) != null) {
+            Issue waitingIssue = issueLookup.apply(issueId);
+
+            // Double-check that the issue is still valid to be assigned by checking if it is in WAITING status or not
+            if (waitingIssue != null && waitingIssue.getStatus() == IssueStatus.WAITING) {
+                return waitingIssue;
             }
+            waitingIssues.poll(type);
         }
+        return null;
+    }
 
-        // If we finish the loop and haven't found any suitable work.
-        System.out.println("No suitable waiting issues for agent " + agent.getName() + ".");
-        return Optional.empty();
+    /**
+     * Assigns the issue at the front of the type's waiting queue (as returned by nextWaitingIssue()) to the agent.
+     * The caller must hold the lock of the type.
+     */
+    protected Optional<Issue> claimWaitingIssue(Agent agent, IssueType type, Issue waitingIssue, WaitingIssueQueues waitingIssues) {
+        // --- Claim a slot before taking the issue off the queue, so the issue is never lost
+        //if the agent's last slot got picked up by a new issue in the meantime
+        if (!agent.tryAssignIssue(waitingIssue.getId())) {
+            return Optional.empty();
+        }
+        waitingIssues.poll(type);
+
+        // --- Assign the issue to this agent---
+        waitingIssue.assignAgent(agent.getAgentId());
+
+        LOG.debug("Agent {} picked up waiting issue {} ({}).", agent.getName(), waitingIssue.getId(), waitingIssue.getPriority());
+        return Optional.of(waitingIssue); // Success! Return the assigned issue.
     }
 }
@@ -0,0 +1,146 @@
+package com.customersupport.Strategy;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Matches a whole batch of pending issues to free agents in one go (bipartite matching, issues on one side and
+ * agents on the other, an edge wherever the agent has the issue's expertise).
+ *
+ * Issues of the same type can go to exactly the same agents, so the matching is done between issue TYPES and agents
+ * (a small flow problem) instead of between individual issues and agents. Issues are offered in the order they are
+ * given (most urgent first), and each one is matched through an augmenting path: an agent already matched to another
+ * type may be moved to a different type they also handle, to make room. A matched issue is never dropped again, so
+ * the result is the largest possible matching, and among those the one that serves the most urgent issues.
+ *
+ * Single-threaded and stateless between calls; the caller makes sure nobody else claims the agents meanwhile.
+ */
+public class BipartiteBatchMatcher {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final int UNMATCHED = -1;
+
+    /**
+     * Returns the matched pairs, in the order of the given issues.
+     * issues should be sorted by urgency; an agent with several free slots is listed once per slot (see
+     * FreeAgentIndex.freeSlots()) and can then be matched to as many issues.
+     */
+    public Map<Issue, Agent> match(List<Issue> issues, List<Agent> agents) {
+        int typeCount = ISSUE_TYPES.length;
+
+        // Agents (by position in the list) that can handle each type, from one packed array of expertise masks
+        int[] expertiseMasks = new int[agents.size()];
+        for (int a = 0; a < expertiseMasks.length; a++) {
+            expertiseMasks[a] = agents.get(a).getExpertiseMask();
+        }
+        List<List<Integer>> agentsByType = new ArrayList<>(typeCount);
+        for (IssueType type : ISSUE_TYPES) {
+            int bit = Agent.bitOf(type);
+            List<Integer> capable = new ArrayList<>();
+            for (int a = 0; a < expertiseMasks.length; a++) {
+                if ((expertiseMasks[a] & bit) != 0) {
+                    capable.add(a);
+                }
+            }
+            agentsByType.add(capable);
+        }
+
+        int[] agentType = new int[agents.size()]; // Type each agent is matched to, or UNMATCHED
+        Arrays.fill(agentType, UNMATCHED);
+        int[] unmatchedCursor = new int[typeCount]; // Agents never become unmatched again, so this only moves forward
+        boolean[] saturated = new boolean[typeCount]; // Once a type can't grow, it never can again in this batch
+
+        List<Issue> matchedIssues = new ArrayList<>();
+        for (Issue issue : issues) {
+            int type = issue.getType().ordinal();
+            if (saturated[type]) {
+                continue;
+            }
+            if (augment(type, agentsByType, agentType, unmatchedCursor)) {
+                matchedIssues.add(issue);
+            } else {
+                saturated[type] = true;
+            }
+        }
+
+        // Within a type any agent will do, so the agents of each type are paired with its issues in order
+        List<Queue<Agent>> agentsForType = new ArrayList<>(typeCount);
+        for (int t = 0; t < typeCount; t++) {
+            agentsForType.add(new ArrayDeque<>());
+        }
+        for (int a = 0; a < agentType.length; a++) {
+            if (agentType[a] != UNMATCHED) {
+                agentsForType.get(agentType[a]).add(agents.get(a));
+            }
+        }
+        Map<Issue, Agent> matches = new LinkedHashMap<>();
+        for (Issue issue : matchedIssues) {
+            matches.put(issue, agentsForType.get(issue.getType().ordinal()).poll());
+        }
+        return matches;
+    }
+
+    /**
+     * Finds one more agent for the given type, moving already matched agents between types if needed
+     * (breadth-first over types, so the chain of moves is as short as possible). Returns false if there is none.
+     */
+    private static boolean augment(int startType, List<List<Integer>> agentsByType, int[] agentType, int[] unmatchedCursor) {
+        int typeCount = agentsByType.size();
+        int[] reachedVia = new int[typeCount]; // Agent whose move to the previous type frees a spot, or UNMATCHED
+        int[] previousType = new int[typeCount];
+        boolean[] visited = new boolean[typeCount];
+        Arrays.fill(reachedVia, UNMATCHED);
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(startType);
+        visited[startType] = true;
+        while (!queue.isEmpty()) {
+            int type = queue.poll();
+
+            // Fast path: an agent of this type who isn't matched to anything yet
+            int freeAgent = nextUnmatched(type, agentsByType, agentType, unmatchedCursor);
+            if (freeAgent != UNMATCHED) {
+                // Give the free agent to this type, then shift one agent back along the path for every type on it
+                agentType[freeAgent] = type;
+                while (type != startType) {
+                    int movedAgent = reachedVia[type];
+                    type = previousType[type];
+                    agentType[movedAgent] = type;
+                }
+                return true;
+            }
+
+            // Otherwise look at agents matched to other types, who could switch to this type
+            for (int agent : agentsByType.get(type)) {
+                int otherType = agentType[agent];
+                if (otherType != UNMATCHED && otherType != type && !visited[otherType]) {
+                    visited[otherType] = true;
+                    reachedVia[otherType] = agent;
+                    previousType[otherType] = type;
+                    queue.add(otherType);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int nextUnmatched(int type, List<List<Integer>> agentsByType, int[] agentType, int[] unmatchedCursor) {
+        List<Integer> capable = agentsByType.get(type);
+        while (unmatchedCursor[type] < capable.size()) {
+            int agent = capable.get(unmatchedCursor[type]);
+            if (agentType[agent] == UNMATCHED) {
+                return agent;
+            }
+            unmatchedCursor[type]++;
+        }
+        return UNMATCHED;
+    }
+}
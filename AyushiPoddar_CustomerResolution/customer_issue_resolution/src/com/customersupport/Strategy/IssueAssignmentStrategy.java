@@ -1,20 +1,21 @@
 package com.customersupport.Strategy;
 
-import com.customersupport.enums.IssueType;
 import com.customersupport.model.Agent;
 import com.customersupport.model.Issue;
+import com.customersupport.repository.FreeAgentIndex;
 
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
+import java.util.function.Function;
 
 public interface IssueAssignmentStrategy {
     // Finds a suitable agent for the given issue and assigns it.
     // Returns Optional of assigned Agent if successful, or empty if issue is put in waiting list.
-    Optional<Agent> findAndAssignAgent(Issue issue, Map<String, Agent> allAgents, Map<IssueType, Queue<String>> waitingIssuesMap);
+    // Agents with a free slot are looked up through the live FreeAgentIndex instead of scanning every agent.
+    Optional<Agent> findAndAssignAgent(Issue issue, FreeAgentIndex freeAgents, WaitingIssueQueues waitingIssues);
 
-    // Attempts to assign a waiting issue to a newly free agent.
+    // Attempts to assign a waiting issue to an agent whose slot was just freed.
     // Returns Optional of assigned Issue if successful, or empty.
-    Optional<Issue> assignWaitingIssueToAgent(Agent agent, Map<String, Issue> allIssues, Map<IssueType, Queue<String>> waitingIssuesMap);
+    // Issues are looked up one ID at a time through issueLookup (returns null if unknown), instead of a snapshot of all issues.
+    // Waiting issues are handed out by SLA deadline, see WaitingIssueQueues.
+    Optional<Issue> assignWaitingIssueToAgent(Agent agent, Function<String, Issue> issueLookup, WaitingIssueQueues waitingIssues);
 }
@@ -0,0 +1,59 @@
+package com.customersupport.Strategy;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Assignment strategy that keeps the waiting queues balanced under skewed load.
+ *
+ * New issues are assigned exactly like in AssignmentStrategy (to the least-loaded agent with a free slot). The difference is what a
+ * freed agent with several expertise types picks up: instead of the single most urgent issue, they take the head of
+ * the LONGEST queue they are qualified for (ties go to the queue whose head has the earliest SLA deadline). A busy
+ * type therefore gets help from every agent who can handle it, rather than its queue growing while the agents
+ * work through a quieter type. Within a queue, the order is still by SLA deadline.
+ *
+ * Queue depths are read from the lock-free counters in WaitingIssueQueues, so choosing a queue costs
+ * O(number of expertise types).
+ */
+public class QueueBalancingAssignmentStrategy extends AssignmentStrategy {
+
+    /**
+     * The caller must hold the locks for all of the agent's expertise types.
+     */
+    @Override
+    public Optional<Issue> assignWaitingIssueToAgent(Agent agent, Function<String, Issue> issueLookup, WaitingIssueQueues waitingIssues) {
+        // Depths include stale entries; those are dropped when we look at a queue's head, and if a queue turns
+        // out to hold only stale entries it is empty afterwards and loses the next round
+        while (true) {
+            IssueType longestType = null;
+            for (IssueType type : ISSUE_TYPES) {
+                if (agent.canHandle(type) && waitingIssues.size(type) > 0 && isBetter(type, longestType, waitingIssues)) {
+                    longestType = type;
+                }
+            }
+
+            if (longestType == null) {
+                LOG.debug("No suitable waiting issues for agent {}.", agent.getName());
+                return Optional.empty();
+            }
+
+            Issue waitingIssue = nextWaitingIssue(longestType, issueLookup, waitingIssues);
+            if (waitingIssue != null) {
+                return claimWaitingIssue(agent, longestType, waitingIssue, waitingIssues);
+            }
+        }
+    }
+
+    // Longer queue wins; for equal lengths, the queue whose head is due first
+    private static boolean isBetter(IssueType type, IssueType current, WaitingIssueQueues waitingIssues) {
+        if (current == null) {
+            return true;
+        }
+        int byDepth = Integer.compare(waitingIssues.size(type), waitingIssues.size(current));
+        return byDepth != 0 ? byDepth > 0 : waitingIssues.peekDeadline(type) < waitingIssues.peekDeadline(current);
+    }
+}
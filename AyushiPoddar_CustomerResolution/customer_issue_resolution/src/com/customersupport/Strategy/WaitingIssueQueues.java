@@ -0,0 +1,90 @@
+package com.customersupport.Strategy;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Issue;
+
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One waiting queue per IssueType, ordered by SLA deadline (earliest deadline first) instead of arrival order.
+ *
+ * The deadline of an issue is its createdAt plus the SLA of its priority, so priority and age are one number:
+ * a CRITICAL issue goes ahead of a LOW one that just came in, but a LOW issue that has been waiting for hours
+ * eventually overtakes freshly created HIGH issues. Waiting issues therefore escalate on their own as their
+ * deadline comes closer, without anything having to re-sort the queue. Issues with the same deadline keep FIFO order.
+ *
+ * Each queue is a binary heap (PriorityBlockingQueue): O(log n) to add or poll, O(1) to peek, safe for concurrent use.
+ * The depth of every queue is also kept in an atomic counter, so it can be read without taking the queue's lock.
+ */
+public class WaitingIssueQueues {
+    private final Map<IssueType, PriorityBlockingQueue<Entry>> queues = new EnumMap<>(IssueType.class);
+
+    // Number of entries in each queue (by IssueType ordinal)
+    private final AtomicIntegerArray depths = new AtomicIntegerArray(IssueType.values().length);
+
+    // Tie-breaker for equal deadlines, so those come out in the order they were added
+    private final AtomicLong sequence = new AtomicLong();
+
+    public WaitingIssueQueues() {
+        // The EnumMap is filled once and never modified afterwards, only the queues inside it are
+        for (IssueType type : IssueType.values()) {
+            queues.put(type, new PriorityBlockingQueue<>());
+        }
+    }
+
+    public void add(Issue issue) {
+        long deadline = issue.getSlaDeadline().toInstant(ZoneOffset.UTC).toEpochMilli();
+        queues.get(issue.getType()).add(new Entry(issue.getId(), deadline, sequence.incrementAndGet()));
+        depths.incrementAndGet(issue.getType().ordinal());
+    }
+
+    // ID of the most urgent waiting issue of this type, or null if there is none
+    public String peek(IssueType type) {
+        Entry head = queues.get(type).peek();
+        return head == null ? null : head.issueId;
+    }
+
+    // Removes and returns the ID of the most urgent waiting issue of this type, or null if there is none
+    public String poll(IssueType type) {
+        Entry head = queues.get(type).poll();
+        if (head == null) {
+            return null;
+        }
+        depths.decrementAndGet(type.ordinal());
+        return head.issueId;
+    }
+
+    // SLA deadline (UTC epoch millis) of the most urgent waiting issue of this type, or Long.MAX_VALUE if there is none
+    public long peekDeadline(IssueType type) {
+        Entry head = queues.get(type).peek();
+        return head == null ? Long.MAX_VALUE : head.deadlineMillis;
+    }
+
+    // Lock-free. Includes stale entries that haven't been dropped yet, see AssignmentStrategy.nextWaitingIssue()
+    public int size(IssueType type) {
+        return depths.get(type.ordinal());
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final String issueId;
+        private final long deadlineMillis;
+        private final long sequence;
+
+        private Entry(String issueId, long deadlineMillis, long sequence) {
+            this.issueId = issueId;
+            this.deadlineMillis = deadlineMillis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byDeadline = Long.compare(deadlineMillis, other.deadlineMillis);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Benchmarks for the assignment and query hot paths of IssueService and the assignment strategies.
+ * <p>
+ * Usage (from the src directory):
+ * <pre>
+ *   javac -d out $(find . -name '*.java')
+ *   java -cp out com.customersupport.benchmark.BenchmarkMain --scenarios=assignIssue,resolveIssue --agents=50,500 --threads=1,4
+ * </pre>
+ * Every option takes a comma separated list and every combination is run:
+ * --scenarios (name prefixes, default all), --agents (50,500), --issues (10000), --threads (1,4),
+ * --strategy (round-robin, queue-balancing), --repository (memory, tiered, durable-always, durable-interval, durable-never),
+ * --distribution (uniform, skewed), --queries (2000), --batch (500), --capacity (1; slots per agent, e.g. 1,3 to
+ * compare single-slot agents with agents who juggle three issues in lifecycle's throughput and wait times).
+ * --warmup (2) and --iterations (3) take a single number.
+ * <p>
+ * This harness runs every scenario end to end and reports throughput, latency percentiles and the service's own
+ * metrics in one table. For regression tracking, the same hot paths are JMH benchmarks in the jmh/ source set of the
+ * Maven build (see pom.xml): IssueServiceBenchmark, IssueQueryBenchmark, AssignmentStrategyBenchmark,
+ * LifecycleBenchmark and IngestBenchmark.
+ */
+public class BenchmarkMain {
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("scenarios", "");
+        DEFAULTS.put("agents", "50,500");
+        DEFAULTS.put("issues", "10000");
+        DEFAULTS.put("threads", "1,4");
+        DEFAULTS.put("strategy", "round-robin");
+        DEFAULTS.put("repository", "memory");
+        DEFAULTS.put("distribution", "uniform");
+        DEFAULTS.put("queries", "2000");
+        DEFAULTS.put("batch", "500");
+        DEFAULTS.put("capacity", "1");
+        DEFAULTS.put("warmup", "2");
+        DEFAULTS.put("iterations", "3");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String key = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+            if (key == null || !DEFAULTS.containsKey(key)) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "'. Options: " + DEFAULTS.keySet());
+            }
+            options.put(key, arg.substring(equals + 1));
+        }
+
+        // Only warnings and errors, so logging doesn't end up in the numbers
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+
+        List<Scenario> scenarios = selectScenarios(options.get("scenarios"));
+        List<BenchmarkParams> combinations = combinations(options);
+        BenchmarkRunner runner = new BenchmarkRunner(Integer.parseInt(options.get("warmup")), Integer.parseInt(options.get("iterations")));
+
+        System.out.printf(Locale.ROOT, "%-40s %7s %4s %7s %4s %-16s %-17s %-8s %12s %10s %10s %10s %10s  %s%n",
+                "scenario", "agents", "cap", "issues", "thr", "strategy", "repository", "dist",
+                "ops/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "extra");
+        for (Scenario scenario : scenarios) {
+            for (BenchmarkParams params : combinations) {
+                BenchmarkRunner.Result result = runner.run(scenario, params);
+                System.out.printf(Locale.ROOT, "%-40s %7d %4d %7d %4d %-16s %-17s %-8s %12.0f %10.1f %10.1f %10.1f %10.1f  %s%n",
+                        result.scenario, params.getAgents(), params.getCapacity(), params.getIssues(), params.getThreads(),
+                        params.getStrategy(), params.getRepository(), params.getDistribution(),
+                        result.opsPerSecond(), result.micros(50), result.micros(99), result.micros(99.9),
+                        result.latency.getMax() / 1000.0, result.report);
+            }
+        }
+        Logger.getBackend().close();
+    }
+
+    // Scenarios whose name starts with one of the given prefixes, or all of them
+    private static List<Scenario> selectScenarios(String selection) {
+        List<Scenario> selected = new ArrayList<>();
+        List<String> prefixes = split(selection);
+        for (Scenario scenario : Scenarios.all()) {
+            if (prefixes.isEmpty() || prefixes.stream().anyMatch(scenario.name()::startsWith)) {
+                selected.add(scenario);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("No scenario matches '" + selection + "'.");
+        }
+        return selected;
+    }
+
+    private static List<BenchmarkParams> combinations(Map<String, String> options) {
+        List<BenchmarkParams> combinations = new ArrayList<>();
+        for (String agents : split(options.get("agents")))
+            for (String issues : split(options.get("issues")))
+                for (String threads : split(options.get("threads")))
+                    for (String strategy : split(options.get("strategy")))
+                        for (String repository : split(options.get("repository")))
+                            for (String distribution : split(options.get("distribution")))
+                                for (String queries : split(options.get("queries")))
+                                    for (String batch : split(options.get("batch")))
+                                        for (String capacity : split(options.get("capacity")))
+                                            combinations.add(new BenchmarkParams(Integer.parseInt(agents), Integer.parseInt(issues),
+                                                    Integer.parseInt(threads), strategy, repository, distribution,
+                                                    Integer.parseInt(queries), Integer.parseInt(batch), Integer.parseInt(capacity)));
+        return combinations;
+    }
+
+    private static List<String> split(String list) {
+        List<String> values = new ArrayList<>();
+        for (String value : Arrays.asList(list.split(","))) {
+            if (!value.isBlank()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,37 @@
+package com.customersupport.benchmark;
+
+// One combination of the harness parameters; every scenario is run once for each combination
+public class BenchmarkParams {
+    private final int agents;
+    private final int issues;
+    private final int threads;
+    private final String strategy;     // See Fixture.newStrategy()
+    private final String repository;   // See Fixture.create()
+    private final String distribution; // "uniform" or "skewed", see Fixture.typeFor()
+    private final int queries;         // Number of getIssues() calls per iteration
+    private final int batchSize;       // Issues per createIssues()/assignPending() round
+    private final int capacity;        // Issues every agent works on at the same time (1 is single-slot mode)
+
+    public BenchmarkParams(int agents, int issues, int threads, String strategy, String repository,
+                           String distribution, int queries, int batchSize, int capacity) {
+        this.agents = agents;
+        this.issues = issues;
+        this.threads = threads;
+        this.strategy = strategy;
+        this.repository = repository;
+        this.distribution = distribution;
+        this.queries = queries;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+    }
+
+    public int getAgents() { return agents; }
+    public int getIssues() { return issues; }
+    public int getThreads() { return threads; }
+    public String getStrategy() { return strategy; }
+    public String getRepository() { return repository; }
+    public String getDistribution() { return distribution; }
+    public int getQueries() { return queries; }
+    public int getBatchSize() { return batchSize; }
+    public int getCapacity() { return capacity; }
+}
@@ -0,0 +1,118 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs one scenario for one parameter combination: a few warm-up iterations (to get the JIT past the code under
+ * test), then the measured ones. Every iteration starts from freshly prepared state, and all threads are released
+ * together, so the wall time covers exactly the concurrent part.
+ */
+class BenchmarkRunner {
+    private final int warmupIterations;
+    private final int measuredIterations;
+
+    BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    Result run(Scenario scenario, BenchmarkParams params) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(scenario, params, new LatencyHistogram());
+        }
+        // The latency of all measured iterations goes into one histogram, the throughput is the total over all of them
+        LatencyHistogram latency = new LatencyHistogram();
+        long operations = 0;
+        long elapsedNanos = 0;
+        String report = "";
+        for (int i = 0; i < measuredIterations; i++) {
+            Iteration iteration = runIteration(scenario, params, latency);
+            operations += iteration.operations;
+            elapsedNanos += iteration.elapsedNanos;
+            report = iteration.report; // Reports are per iteration, the last one is shown
+        }
+        return new Result(scenario.name(), params, operations, elapsedNanos, latency, report);
+    }
+
+    private Iteration runIteration(Scenario scenario, BenchmarkParams params, LatencyHistogram latency) throws Exception {
+        Workload workload = scenario.prepare(params);
+        try {
+            int threadCount = params.getThreads();
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicLong operations = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                        operations.addAndGet(workload.run(thread, threadCount, latency));
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }, "bench-" + scenario.name() + "-" + t));
+            }
+            threads.forEach(Thread::start);
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            if (failure.get() != null) {
+                throw new IllegalStateException("Scenario " + scenario.name() + " failed: " + failure.get(), failure.get());
+            }
+            return new Iteration(operations.get(), elapsed, workload.report());
+        } finally {
+            workload.tearDown();
+        }
+    }
+
+    private static final class Iteration {
+        final long operations;
+        final long elapsedNanos;
+        final String report;
+
+        Iteration(long operations, long elapsedNanos, String report) {
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.report = report;
+        }
+    }
+
+    static final class Result {
+        final String scenario;
+        final BenchmarkParams params;
+        final long operations;
+        final long elapsedNanos;
+        final LatencyHistogram latency;
+        final String report;
+
+        Result(String scenario, BenchmarkParams params, long operations, long elapsedNanos, LatencyHistogram latency, String report) {
+            this.scenario = scenario;
+            this.params = params;
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.report = report;
+        }
+
+        double opsPerSecond() {
+            return elapsedNanos == 0 ? 0 : operations * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        // Percentiles in microseconds
+        double micros(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
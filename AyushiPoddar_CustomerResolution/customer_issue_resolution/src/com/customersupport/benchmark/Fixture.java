@@ -0,0 +1,216 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.Strategy.AssignmentStrategy;
+import com.customersupport.Strategy.IssueAssignmentStrategy;
+import com.customersupport.Strategy.QueueBalancingAssignmentStrategy;
+import com.customersupport.enums.IssuePriority;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.events.IssueEventPublisher;
+import com.customersupport.instrumentation.IssueMetrics;
+import com.customersupport.instrumentation.MetricsRegistry;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import com.customersupport.repository.AgentRepository;
+import com.customersupport.repository.DurableStore;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.InMemoryIssueRepository;
+import com.customersupport.repository.IssueRepository;
+import com.customersupport.repository.TieredIssueRepository;
+import com.customersupport.service.AgentService;
+import com.customersupport.service.IssueService;
+import com.customersupport.storage.FsyncPolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A fully wired service (repositories, strategy, metrics) with the agents of one BenchmarkParams combination.
+ * Everything is deterministic, so two runs with the same parameters put exactly the same load on the code.
+ */
+class Fixture implements Closeable {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final IssuePriority[] PRIORITIES = IssuePriority.values();
+    private static final int CUSTOMERS = 1000;
+    // Building blocks of issue texts, so that a text search has realistic terms: some frequent, some rare
+    static final String[] SUBJECTS = {
+            "Payment failed", "Refund not received", "Money debited twice", "SIP not processed", "Gold purchase pending",
+            "Policy document missing", "KYC verification stuck", "Redemption delayed", "Auto debit mandate failed",
+            "Wrong amount charged", "Premium payment error", "Unable to login"};
+    static final String[] SENTENCES = {
+            "The amount was debited from my bank account", "but the transaction shows as failed in the app",
+            "I have not received the refund yet", "the UPI reference number is attached",
+            "my mutual fund units were not allotted", "the gold balance is not updated", "the insurance policy lapsed",
+            "please check the status urgently", "the NAV applied looks wrong", "customer care did not respond",
+            "the mandate registration failed twice", "I was charged a late fee", "the OTP never arrived",
+            "my nominee details are missing", "the invoice shows the wrong GST"};
+    // The statuses that the query benchmarks filter on, all of which createQueriedIssues() leaves issues in
+    static final IssueStatus[] QUERIED_STATUSES = {
+            IssueStatus.OPEN, IssueStatus.WAITING, IssueStatus.IN_PROGRESS, IssueStatus.RESOLVED};
+
+    final BenchmarkParams params;
+    final IssueRepository issueRepo;
+    final AgentRepository agentRepo;
+    final IssueService issueService;
+    final AgentService agentService;
+    final MetricsRegistry metrics = new MetricsRegistry();
+    final List<Agent> agents = new ArrayList<>();
+
+    private final List<Closeable> resources = new ArrayList<>();
+    private final Path directory; // Null for the in-memory repository
+
+    private Fixture(BenchmarkParams params) throws IOException {
+        this.params = params;
+        String repository = params.getRepository();
+        if (repository.equals("memory")) {
+            directory = null;
+            issueRepo = new InMemoryIssueRepository();
+            agentRepo = new InMemoryAgentRepository();
+        } else if (repository.equals("tiered")) {
+            directory = Files.createTempDirectory("bench-tiered");
+            TieredIssueRepository tiered = new TieredIssueRepository(directory);
+            resources.add(tiered);
+            issueRepo = tiered;
+            agentRepo = new InMemoryAgentRepository();
+        } else if (repository.startsWith("durable-")) {
+            // durable-always, durable-interval or durable-never
+            FsyncPolicy policy = FsyncPolicy.valueOf(repository.substring("durable-".length()).toUpperCase());
+            directory = Files.createTempDirectory("bench-durable");
+            DurableStore store = DurableStore.open(directory, policy, 10, 100_000);
+            resources.add(store);
+            issueRepo = store.getIssueRepository();
+            agentRepo = store.getAgentRepository();
+        } else {
+            throw new IllegalArgumentException("Unknown repository '" + repository + "' (memory, tiered, durable-always, durable-interval, durable-never).");
+        }
+
+        // Metrics are recorded on the calling thread, so the numbers are complete as soon as a workload finishes
+        IssueMetrics issueMetrics = new IssueMetrics(metrics);
+        issueService = new IssueService(issueRepo, agentRepo, newStrategy(params.getStrategy()), IssueEventPublisher.direct(issueMetrics));
+        issueMetrics.watchWaitingQueues(issueService);
+        agentService = new AgentService(agentRepo);
+
+        for (int i = 0; i < params.getAgents(); i++) {
+            agents.add(agentService.addAgent("agent" + i + "@bench.test", "Agent " + i, expertiseFor(i), params.getCapacity()));
+        }
+    }
+
+    static Fixture create(BenchmarkParams params) throws IOException {
+        return new Fixture(params);
+    }
+
+    static IssueAssignmentStrategy newStrategy(String name) {
+        switch (name) {
+            case "round-robin":
+                return new AssignmentStrategy();
+            case "queue-balancing":
+                return new QueueBalancingAssignmentStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown strategy '" + name + "' (round-robin, queue-balancing).");
+        }
+    }
+
+    // Every agent has one or two expertise types; with at least as many agents as types, every type is covered
+    static List<IssueType> expertiseFor(int agentIndex) {
+        List<IssueType> expertise = new ArrayList<>();
+        expertise.add(ISSUE_TYPES[agentIndex % ISSUE_TYPES.length]);
+        IssueType second = ISSUE_TYPES[(agentIndex * 3 + 1) % ISSUE_TYPES.length];
+        if (!expertise.contains(second)) {
+            expertise.add(second);
+        }
+        return expertise;
+    }
+
+    // "uniform" spreads issues evenly over the types, "skewed" sends 70% of them to the first type
+    IssueType typeFor(int issueIndex) {
+        return typeFor(issueIndex, params.getDistribution());
+    }
+
+    static IssueType typeFor(int issueIndex, String distribution) {
+        int hash = mix(issueIndex);
+        if (distribution.equals("skewed") && Math.floorMod(hash, 100) < 70) {
+            return ISSUE_TYPES[0];
+        }
+        return ISSUE_TYPES[Math.floorMod(hash >>> 8, ISSUE_TYPES.length)];
+    }
+
+    static String emailFor(int index) {
+        return "customer" + Math.floorMod(mix(index), CUSTOMERS) + "@bench.test";
+    }
+
+    static IssuePriority priorityFor(int issueIndex) {
+        return PRIORITIES[Math.floorMod(mix(issueIndex) >>> 16, PRIORITIES.length)];
+    }
+
+    // Creates issues through the public service API (not measured by the callers that use this for set-up)
+    List<Issue> createIssues(int count) {
+        List<Issue> issues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            issues.add(createIssue(i));
+        }
+        return issues;
+    }
+
+    Issue createIssue(int index) {
+        return issueService.createIssue("T" + index, typeFor(index).name(), subjectFor(index),
+                descriptionFor(index), emailFor(index), priorityFor(index).name());
+    }
+
+    // Issues in every active state and some resolved ones, for the query benchmarks
+    List<Issue> createQueriedIssues() {
+        List<Issue> issues = createIssues(params.getIssues());
+        for (int i = 0; i < issues.size(); i++) {
+            if (i % 3 != 0) { // A third stays OPEN
+                issueService.assignIssue(issues.get(i).getId());
+            }
+        }
+        for (Agent agent : agents) {
+            String issueId = agent.getCurrentAssignedIssueId();
+            if (issueId != null) {
+                issueService.resolveIssue(issueId, "Resolved by benchmark"); // Also pulls in a waiting issue
+            }
+        }
+        return issues;
+    }
+
+    static String subjectFor(int index) {
+        return SUBJECTS[Math.floorMod(mix(index) >>> 4, SUBJECTS.length)] + " #" + index;
+    }
+
+    // Two to four sentences, so documents differ in length (which BM25 takes into account)
+    static String descriptionFor(int index) {
+        int hash = mix(index + 17);
+        StringBuilder description = new StringBuilder();
+        int sentences = 2 + Math.floorMod(hash, 3);
+        for (int i = 0; i < sentences; i++) {
+            description.append(SENTENCES[Math.floorMod(hash >>> (3 + 4 * i), SENTENCES.length)]).append(". ");
+        }
+        return description.append("Order ").append(index).toString();
+    }
+
+    // Cheap deterministic scrambling, so consecutive indexes don't get consecutive types/customers
+    static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Closeable resource : resources) {
+            resource.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.Strategy.AssignmentStrategy;
+import com.customersupport.controller.AgentController;
+import com.customersupport.controller.IssueController;
+import com.customersupport.events.IssueEventPublisher;
+import com.customersupport.http.Json;
+import com.customersupport.http.SupportHttpServer;
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LatencyHistogram;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.InMemoryIssueRepository;
+import com.customersupport.service.AgentService;
+import com.customersupport.service.IssueService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for the HTTP front end: for each concurrency level, that many clients (virtual threads) work through
+ * --requests issues. Per issue a client creates it, assigns it and, if it got an agent, resolves it; the response of
+ * a resolve says which waiting issue the agent picked up next, and the client resolves that one too, so the backlog
+ * doesn't grow without bound. Every --query-every-th issue the client also runs an email query.
+ * <p>
+ * Without --url, every level gets a fresh in-process server with --agents agents.
+ * Options: --url, --agents (200), --concurrency (1,8,64,256), --requests (5000), --query-every (10).
+ */
+public class HttpLoadClient {
+    private final URI base;
+    private final HttpClient client;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    HttpLoadClient(URI base, HttpClient client) {
+        this.base = base;
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int agents = 200;
+        List<Integer> concurrencyLevels = List.of(1, 8, 64, 256);
+        int requests = 5000;
+        int queryEvery = 10;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--url=")) {
+                url = value;
+            } else if (arg.startsWith("--agents=")) {
+                agents = Integer.parseInt(value);
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrencyLevels = new ArrayList<>();
+                for (String level : value.split(",")) {
+                    concurrencyLevels.add(Integer.parseInt(level.trim()));
+                }
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(value);
+            } else if (arg.startsWith("--query-every=")) {
+                queryEvery = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option '" + arg + "' (--url, --agents, --concurrency, --requests, --query-every).");
+            }
+        }
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+
+        printHeader();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+            for (int concurrency : concurrencyLevels) {
+                SupportHttpServer server = url == null ? startServer() : null;
+                try {
+                    URI base = URI.create(server != null ? "http://127.0.0.1:" + server.getPort() : url);
+                    HttpLoadClient load = new HttpLoadClient(base, client);
+                    if (server != null) {
+                        load.addAgents(agents);
+                    }
+                    load.run(concurrency, requests, queryEvery);
+                } finally {
+                    if (server != null) {
+                        server.close();
+                    }
+                }
+            }
+        }
+        Logger.getBackend().close();
+    }
+
+    static void printHeader() {
+        System.out.printf(Locale.ROOT, "%11s %8s %10s %10s %10s %10s %10s %10s %8s%n",
+                "concurrency", "issues", "calls/s", "issues/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "errors");
+    }
+
+    // A server over fresh in-memory repositories, without event listeners (the HTTP path is what is measured)
+    private static SupportHttpServer startServer() throws IOException {
+        InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
+        IssueService issueService = new IssueService(new InMemoryIssueRepository(), agentRepo, new AssignmentStrategy(),
+                IssueEventPublisher.NO_OP);
+        return new SupportHttpServer(new IssueController(issueService), new AgentController(new AgentService(agentRepo)),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    void addAgents(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> agent = new LinkedHashMap<>();
+            agent.put("email", "agent" + i + "@load.test");
+            agent.put("name", "Agent " + i);
+            agent.put("expertise", Fixture.expertiseFor(i));
+            call("POST", "/agents", agent);
+        }
+    }
+
+    void run(int concurrency, int requests, int queryEvery) throws InterruptedException {
+        AtomicInteger nextIssue = new AtomicInteger();
+        List<Thread> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                int i;
+                while ((i = nextIssue.getAndIncrement()) < requests) {
+                    try {
+                        handleIssue(i, queryEvery > 0 && i % queryEvery == 0);
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%11d %8d %10.0f %10.0f %10.1f %10.1f %10.1f %10.1f %8d%n",
+                concurrency, requests, calls.get() / seconds, requests / seconds,
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getValueAtPercentile(99.9) / 1000.0, latency.getMax() / 1000.0, errors.get());
+    }
+
+    private void handleIssue(int i, boolean query) throws IOException, InterruptedException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("transactionId", "T" + i);
+        request.put("type", Fixture.typeFor(i, "uniform"));
+        request.put("subject", "Subject " + i);
+        request.put("description", "Description of issue " + i);
+        request.put("email", Fixture.emailFor(i));
+        request.put("priority", Fixture.priorityFor(i));
+        Map<?, ?> issue = call("POST", "/issues", request);
+        if (issue == null) {
+            return;
+        }
+        String issueId = (String) issue.get("id");
+
+        Map<?, ?> assigned = call("POST", "/issues/" + issueId + "/assign", null);
+        String toResolve = assigned != null && assigned.get("agent") != null ? issueId : null;
+        while (toResolve != null) {
+            Map<String, Object> resolution = new LinkedHashMap<>();
+            resolution.put("resolution", "Resolved by load test");
+            Map<?, ?> resolved = call("POST", "/issues/" + toResolve + "/resolve", resolution);
+            Map<?, ?> agent = resolved == null ? null : (Map<?, ?>) resolved.get("agent");
+            Object next = agent == null ? null : agent.get("currentIssueId");
+            // Normally the waiting issue the agent just picked up. If the agent was free and got a new issue from
+            //another client in the meantime, both resolve it, which is harmless (resolving twice is a no-op).
+            toResolve = next != null && !next.equals(toResolve) ? (String) next : null;
+        }
+
+        if (query) {
+            call("GET", "/issues?email=" + URLEncoder.encode(Fixture.emailFor(i), StandardCharsets.UTF_8), null);
+        }
+    }
+
+    // Sends one request and returns the parsed JSON object, or null (counted as an error) if it didn't succeed
+    private Map<?, ?> call(String method, String path, Object body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path));
+        if (method.equals("POST")) {
+            request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body == null ? "{}" : Json.write(body)));
+        }
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        latency.record(System.nanoTime() - start);
+        calls.incrementAndGet();
+        if (response.statusCode() / 100 != 2) {
+            errors.incrementAndGet();
+            return null;
+        }
+        Object json = Json.parse(response.body());
+        return json instanceof Map ? (Map<?, ?>) json : null;
+    }
+}
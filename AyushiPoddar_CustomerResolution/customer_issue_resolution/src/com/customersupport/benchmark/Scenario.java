@@ -0,0 +1,8 @@
+package com.customersupport.benchmark;
+
+// A named benchmark; prepare() builds fresh state for one iteration, which isn't part of the measurement
+interface Scenario {
+    String name();
+
+    Workload prepare(BenchmarkParams params) throws Exception;
+}
@@ -0,0 +1,532 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.Strategy.IssueAssignmentStrategy;
+import com.customersupport.Strategy.WaitingIssueQueues;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.instrumentation.LatencyHistogram;
+import com.customersupport.instrumentation.MetricsRegistry;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import com.customersupport.model.IssueRequest;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.IssueCursor;
+import com.customersupport.repository.IssueOrder;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * All benchmark scenarios. Work is split between threads by striding over the issue (or agent) indexes, so every
+ * thread gets the same share and no coordination is needed beyond what the code under test does itself.
+ */
+final class Scenarios {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final String[] FILTER_KEYS = {"email", "type", "issueId", "status"};
+
+    private Scenarios() {
+    }
+
+    interface Preparer {
+        Workload prepare(BenchmarkParams params) throws Exception;
+    }
+
+    static List<Scenario> all() {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(scenario("createIssue", Scenarios::createIssue));
+        scenarios.add(scenario("assignIssue", Scenarios::assignIssue));
+        scenarios.add(scenario("resolveIssue", Scenarios::resolveIssue));
+        // Every combination of the four filters, including none (which returns everything)
+        for (int mask = 0; mask < 1 << FILTER_KEYS.length; mask++) {
+            int filterMask = mask;
+            scenarios.add(scenario("getIssues[" + filterName(mask) + "]", params -> getIssues(params, filterMask)));
+        }
+        // Cursor paging with no filter, a type and a status filter (bits of the same mask)
+        for (int mask : new int[]{0, 2, 8}) {
+            scenarios.add(scenario("getIssuesPage[" + filterName(mask) + "]", params -> getIssuesPage(params, mask)));
+        }
+        // Ranked full-text search, alone and narrowed down by a status
+        scenarios.add(scenario("searchIssues[text]", params -> searchIssues(params, false)));
+        scenarios.add(scenario("searchIssues[text+status]", params -> searchIssues(params, true)));
+        scenarios.add(scenario("strategy.findAndAssignAgent", Scenarios::strategyFindAndAssign));
+        scenarios.add(scenario("strategy.assignWaitingIssueToAgent", Scenarios::strategyAssignWaiting));
+        scenarios.add(scenario("lifecycle", Scenarios::lifecycle));
+        scenarios.add(scenario("ingest.single", Scenarios::ingestSingle));
+        scenarios.add(scenario("ingest.batch", Scenarios::ingestBatch));
+        return scenarios;
+    }
+
+    private static Scenario scenario(String name, Preparer preparer) {
+        return new Scenario() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Workload prepare(BenchmarkParams params) throws Exception {
+                return preparer.prepare(params);
+            }
+        };
+    }
+
+    // --- IssueService ---
+
+    // Creating issues; nothing else is going on
+    private static Workload createIssue(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int i = thread; i < params.getIssues(); i += threadCount) {
+                    long start = System.nanoTime();
+                    fixture.createIssue(i);
+                    latency.record(System.nanoTime() - start);
+                    ops++;
+                }
+                return ops;
+            }
+        };
+    }
+
+    // Assigning OPEN issues; once every agent is busy, the rest go to the waiting queues
+    private static Workload assignIssue(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        List<Issue> issues = fixture.createIssues(params.getIssues());
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int i = thread; i < issues.size(); i += threadCount) {
+                    String issueId = issues.get(i).getId();
+                    long start = System.nanoTime();
+                    fixture.issueService.assignIssue(issueId);
+                    latency.record(System.nanoTime() - start);
+                    ops++;
+                }
+                return ops;
+            }
+        };
+    }
+
+    /**
+     * Resolving issues, each of which hands the freed agent the next waiting issue, until the backlog is gone.
+     * Each thread resolves the issues of its own agents. The latency should stay flat as --issues grows.
+     */
+    private static Workload resolveIssue(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        for (Issue issue : fixture.createIssues(params.getIssues())) {
+            fixture.issueService.assignIssue(issue.getId());
+        }
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                List<Agent> ownAgents = share(fixture.agents, thread, threadCount);
+                long ops = 0;
+                boolean progress = true;
+                while (progress) {
+                    progress = false;
+                    for (Agent agent : ownAgents) {
+                        String issueId = agent.getCurrentAssignedIssueId();
+                        if (issueId != null) {
+                            long start = System.nanoTime();
+                            fixture.issueService.resolveIssue(issueId, "Resolved by benchmark");
+                            latency.record(System.nanoTime() - start);
+                            ops++;
+                            progress = true;
+                        }
+                    }
+                }
+                return ops;
+            }
+        };
+    }
+
+    /**
+     * getIssues() with the filters selected by the mask (bit i = FILTER_KEYS[i]), over a store with issues in every
+     * active state and some resolved ones. The filter values vary from query to query.
+     */
+    private static Workload getIssues(BenchmarkParams params, int filterMask) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        List<Issue> issues = fixture.createQueriedIssues();
+        LongAdder rows = new LongAdder();
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int q = thread; q < params.getQueries(); q += threadCount) {
+                    Map<String, String> filter = new HashMap<>();
+                    if ((filterMask & 1) != 0) {
+                        filter.put("email", Fixture.emailFor(q));
+                    }
+                    if ((filterMask & 2) != 0) {
+                        filter.put("type", fixture.typeFor(q).name());
+                    }
+                    if ((filterMask & 4) != 0) {
+                        filter.put("issueId", issues.get(Math.floorMod(Fixture.mix(q), issues.size())).getId());
+                    }
+                    if ((filterMask & 8) != 0) {
+                        filter.put("status", Fixture.QUERIED_STATUSES[q % Fixture.QUERIED_STATUSES.length].name());
+                    }
+                    long start = System.nanoTime();
+                    int found = fixture.issueService.getIssues(filter).size();
+                    latency.record(System.nanoTime() - start);
+                    rows.add(found);
+                    ops++;
+                }
+                return ops;
+            }
+
+            @Override
+            public String report() {
+                return String.format(Locale.ROOT, "rows/query=%.1f", (double) rows.sum() / Math.max(1, params.getQueries()));
+            }
+        };
+    }
+
+    /**
+     * getIssuesPage() with pages of 100, resuming from the cursor of a different issue every time, so pages start
+     * anywhere in the result; filters as in getIssues(). The cost of a page should not depend on where it starts.
+     */
+    private static Workload getIssuesPage(BenchmarkParams params, int filterMask) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        List<Issue> issues = fixture.createQueriedIssues();
+        LongAdder rows = new LongAdder();
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int q = thread; q < params.getQueries(); q += threadCount) {
+                    Map<String, String> filter = new HashMap<>();
+                    if ((filterMask & 2) != 0) {
+                        filter.put("type", fixture.typeFor(q).name());
+                    }
+                    if ((filterMask & 8) != 0) {
+                        filter.put("status", Fixture.QUERIED_STATUSES[q % Fixture.QUERIED_STATUSES.length].name());
+                    }
+                    Issue from = issues.get(Math.floorMod(Fixture.mix(q), issues.size()));
+                    String cursor = IssueCursor.of(from, IssueOrder.ID).toToken();
+                    long start = System.nanoTime();
+                    int found = fixture.issueService.getIssuesPage(filter, IssueOrder.ID, cursor, 100).getIssues().size();
+                    latency.record(System.nanoTime() - start);
+                    rows.add(found);
+                    ops++;
+                }
+                return ops;
+            }
+
+            @Override
+            public String report() {
+                return String.format(Locale.ROOT, "rows/page=%.1f", (double) rows.sum() / Math.max(1, params.getQueries()));
+            }
+        };
+    }
+
+    /**
+     * getIssues() with a "text" filter: two or three words taken from the issue texts (a subject and a sentence
+     * fragment), so queries mix frequent and rare terms and match a large part of the store.
+     */
+    private static Workload searchIssues(BenchmarkParams params, boolean byStatus) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        fixture.createQueriedIssues();
+        LongAdder rows = new LongAdder();
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int q = thread; q < params.getQueries(); q += threadCount) {
+                    String sentence = Fixture.SENTENCES[Math.floorMod(Fixture.mix(q), Fixture.SENTENCES.length)];
+                    String[] words = sentence.split(" ");
+                    Map<String, String> filter = new HashMap<>();
+                    filter.put("text", Fixture.SUBJECTS[q % Fixture.SUBJECTS.length] + " " + words[words.length - 1]);
+                    if (byStatus) {
+                        filter.put("status", Fixture.QUERIED_STATUSES[q % Fixture.QUERIED_STATUSES.length].name());
+                    }
+                    long start = System.nanoTime();
+                    int found = fixture.issueService.getIssues(filter).size();
+                    latency.record(System.nanoTime() - start);
+                    rows.add(found);
+                    ops++;
+                }
+                return ops;
+            }
+
+            @Override
+            public String report() {
+                return String.format(Locale.ROOT, "rows/query=%.1f", (double) rows.sum() / Math.max(1, params.getQueries()));
+            }
+        };
+    }
+
+    private static String filterName(int mask) {
+        if (mask == 0) {
+            return "none";
+        }
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < FILTER_KEYS.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                name.append(name.length() > 0 ? "+" : "").append(FILTER_KEYS[i]);
+            }
+        }
+        return name.toString();
+    }
+
+    // --- The assignment strategy on its own, without the service or repositories around it ---
+
+    // findAndAssignAgent() for a stream of new issues; agents are never freed, so after the first few the rest wait
+    private static Workload strategyFindAndAssign(BenchmarkParams params) {
+        StrategyBench bench = new StrategyBench(params);
+        return (thread, threadCount, latency) -> {
+            long ops = 0;
+            for (int i = thread; i < bench.issues.size(); i += threadCount) {
+                Issue issue = bench.issues.get(i);
+                ReentrantLock lock = bench.typeLocks.get(issue.getType());
+                lock.lock();
+                try {
+                    long start = System.nanoTime();
+                    bench.strategy.findAndAssignAgent(issue, bench.agentRepo.getFreeAgentIndex(), bench.waitingIssues);
+                    latency.record(System.nanoTime() - start);
+                } finally {
+                    lock.unlock();
+                }
+                ops++;
+            }
+            return ops;
+        };
+    }
+
+    // assignWaitingIssueToAgent() for agents that keep finishing their issue, until the waiting queues are empty
+    private static Workload strategyAssignWaiting(BenchmarkParams params) {
+        StrategyBench bench = new StrategyBench(params);
+        for (Issue issue : bench.issues) {
+            bench.strategy.findAndAssignAgent(issue, bench.agentRepo.getFreeAgentIndex(), bench.waitingIssues);
+        }
+        return (thread, threadCount, latency) -> {
+            List<Agent> ownAgents = share(bench.agents, thread, threadCount);
+            long ops = 0;
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                for (Agent agent : ownAgents) {
+                    String issueId = agent.getCurrentAssignedIssueId();
+                    if (issueId == null) {
+                        continue;
+                    }
+                    bench.issuesById.get(issueId).setStatus(IssueStatus.RESOLVED);
+                    agent.releaseIssue(issueId);
+                    bench.agentRepo.getFreeAgentIndex().refresh(agent);
+
+                    List<ReentrantLock> locks = new ArrayList<>();
+                    for (IssueType type : ISSUE_TYPES) {
+                        if (agent.canHandle(type)) {
+                            locks.add(bench.typeLocks.get(type));
+                        }
+                    }
+                    locks.forEach(ReentrantLock::lock);
+                    try {
+                        long start = System.nanoTime();
+                        Optional<Issue> next = bench.strategy.assignWaitingIssueToAgent(agent, bench.issuesById::get, bench.waitingIssues);
+                        latency.record(System.nanoTime() - start);
+                        if (next.isPresent()) {
+                            bench.agentRepo.getFreeAgentIndex().refresh(agent);
+                        }
+                    } finally {
+                        for (int i = locks.size() - 1; i >= 0; i--) {
+                            locks.get(i).unlock();
+                        }
+                    }
+                    ops++;
+                    progress = true;
+                }
+            }
+            return ops;
+        };
+    }
+
+    // What a strategy needs, built by hand: agents in a repository (for the free-agent index), queues, type locks.
+    //Also used by the JMH AssignmentStrategyBenchmark
+    static final class StrategyBench {
+        final IssueAssignmentStrategy strategy;
+        final InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
+        final WaitingIssueQueues waitingIssues = new WaitingIssueQueues();
+        final Map<IssueType, ReentrantLock> typeLocks = new EnumMap<>(IssueType.class);
+        final List<Agent> agents = new ArrayList<>();
+        final List<Issue> issues = new ArrayList<>();
+        final Map<String, Issue> issuesById = new ConcurrentHashMap<>();
+
+        StrategyBench(BenchmarkParams params) {
+            strategy = Fixture.newStrategy(params.getStrategy());
+            for (IssueType type : ISSUE_TYPES) {
+                typeLocks.put(type, new ReentrantLock());
+            }
+            for (int i = 0; i < params.getAgents(); i++) {
+                Agent agent = new Agent("A" + (i + 1), "agent" + i + "@bench.test", "Agent " + i, Fixture.expertiseFor(i),
+                        params.getCapacity());
+                agentRepo.save(agent);
+                agents.add(agent);
+            }
+            for (int i = 0; i < params.getIssues(); i++) {
+                Issue issue = new Issue("I" + (i + 1), "T" + i, Fixture.typeFor(i, params.getDistribution()), "Subject " + i,
+                        "Description of issue " + i, Fixture.emailFor(i), Fixture.priorityFor(i));
+                issues.add(issue);
+                issuesById.put(issue.getId(), issue);
+            }
+        }
+    }
+
+    // --- End to end ---
+
+    /**
+     * Issues keep coming in (create + assign, which is the measured latency) while every thread also resolves
+     * issues of its own agents, one per new issue, so a backlog builds up when agents are scarce. Once all issues are
+     * in, the backlog is worked off. The report has the tail of the time to assignment and of the time spent waiting,
+     * overall and for the worst IssueType (compare --strategy, --distribution=skewed and --capacity).
+     */
+    private static Workload lifecycle(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        CountDownLatch allCreated = new CountDownLatch(params.getThreads());
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) throws InterruptedException {
+                List<Agent> ownAgents = share(fixture.agents, thread, threadCount);
+                int cursor = 0;
+                long ops = 0;
+                for (int i = thread; i < params.getIssues(); i += threadCount) {
+                    long start = System.nanoTime();
+                    Issue issue = fixture.createIssue(i);
+                    fixture.issueService.assignIssue(issue.getId());
+                    latency.record(System.nanoTime() - start);
+                    ops++;
+
+                    // Resolve the issue of the next busy agent of this thread, if any
+                    for (int tried = 0; tried < ownAgents.size(); tried++) {
+                        Agent agent = ownAgents.get(cursor);
+                        cursor = (cursor + 1) % ownAgents.size();
+                        String issueId = agent.getCurrentAssignedIssueId();
+                        if (issueId != null) {
+                            fixture.issueService.resolveIssue(issueId, "Resolved by benchmark");
+                            break;
+                        }
+                    }
+                }
+                // Work off what is left for this thread's agents. Only once no thread adds issues anymore, otherwise an
+                //issue could be put on the waiting list after the agents that can handle it have gone idle
+                allCreated.countDown();
+                allCreated.await();
+                boolean progress = true;
+                while (progress) {
+                    progress = false;
+                    for (Agent agent : ownAgents) {
+                        String issueId = agent.getCurrentAssignedIssueId();
+                        if (issueId != null) {
+                            fixture.issueService.resolveIssue(issueId, "Resolved by benchmark");
+                            progress = true;
+                        }
+                    }
+                }
+                return ops;
+            }
+
+            @Override
+            public String report() {
+                MetricsRegistry metrics = fixture.metrics;
+                LatencyHistogram worst = null;
+                IssueType worstType = null;
+                for (IssueType type : ISSUE_TYPES) {
+                    LatencyHistogram histogram = metrics.histogram("issue.queue_wait." + type);
+                    if (worst == null || histogram.getValueAtPercentile(99) > worst.getValueAtPercentile(99)) {
+                        worst = histogram;
+                        worstType = type;
+                    }
+                }
+                return String.format(Locale.ROOT, "tta_p99_us=%.1f wait_p99_us=%.1f worst_wait_p99_us=%.1f(%s) resolved=%d",
+                        metrics.histogram("issue.time_to_assignment").getValueAtPercentile(99) / 1000.0,
+                        metrics.histogram("issue.queue_wait").getValueAtPercentile(99) / 1000.0,
+                        worst.getValueAtPercentile(99) / 1000.0, worstType,
+                        metrics.counter("issues.resolved").get());
+            }
+        };
+    }
+
+    // --- Bulk ingestion: one issue at a time vs createIssues() + assignPending() ---
+
+    private static Workload ingestSingle(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int i = thread; i < params.getIssues(); i += threadCount) {
+                    long start = System.nanoTime();
+                    Issue issue = fixture.createIssue(i);
+                    fixture.issueService.assignIssue(issue.getId());
+                    latency.record(System.nanoTime() - start);
+                    ops++;
+                }
+                return ops;
+            }
+        };
+    }
+
+    // Latency is per batch here, throughput is still in issues per second
+    private static Workload ingestBatch(BenchmarkParams params) throws Exception {
+        Fixture fixture = Fixture.create(params);
+        List<List<IssueRequest>> batches = new ArrayList<>();
+        for (int from = 0; from < params.getIssues(); from += params.getBatchSize()) {
+            List<IssueRequest> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(params.getIssues(), from + params.getBatchSize()); i++) {
+                batch.add(new IssueRequest("T" + i, fixture.typeFor(i).name(), Fixture.subjectFor(i),
+                        Fixture.descriptionFor(i), Fixture.emailFor(i), Fixture.priorityFor(i).name()));
+            }
+            batches.add(batch);
+        }
+        return new FixtureWorkload(fixture) {
+            @Override
+            public long run(int thread, int threadCount, LatencyHistogram latency) {
+                long ops = 0;
+                for (int b = thread; b < batches.size(); b += threadCount) {
+                    long start = System.nanoTime();
+                    fixture.issueService.createIssues(batches.get(b));
+                    fixture.issueService.assignPending();
+                    latency.record(System.nanoTime() - start);
+                    ops += batches.get(b).size();
+                }
+                return ops;
+            }
+        };
+    }
+
+    // --- Helpers ---
+
+    // The agents (by index) that belong to the given thread
+    private static List<Agent> share(List<Agent> agents, int thread, int threadCount) {
+        List<Agent> share = new ArrayList<>();
+        for (int i = thread; i < agents.size(); i += threadCount) {
+            share.add(agents.get(i));
+        }
+        return share;
+    }
+
+    private abstract static class FixtureWorkload implements Workload {
+        private final Fixture fixture;
+
+        FixtureWorkload(Fixture fixture) {
+            this.fixture = fixture;
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            fixture.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.cluster.LocalCluster;
+import com.customersupport.cluster.ShardKey;
+import com.customersupport.cluster.ShardRouter;
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How throughput scales with the number of shards: for each node count, starts that many ShardNodes (separate JVMs,
+ * see LocalCluster) behind a ShardRouter, adds --agents agents through the router and runs the HttpLoadClient load
+ * against it. The router runs in this process, so with few cores it is as much the bottleneck as the nodes are.
+ * <p>
+ * Options: --nodes (1,2,4), --shard-by (type|email, default email), --agents (200), --concurrency (64),
+ * --requests (5000), --query-every (10), --node-heap (256m).
+ */
+public class ShardScalingBenchmark {
+    public static void main(String[] args) throws Exception {
+        List<Integer> nodeCounts = List.of(1, 2, 4);
+        ShardKey shardKey = ShardKey.CUSTOMER_EMAIL;
+        int agents = 200;
+        int concurrency = 64;
+        int requests = 5000;
+        int queryEvery = 10;
+        String nodeHeap = "256m";
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--nodes=")) {
+                nodeCounts = new ArrayList<>();
+                for (String count : value.split(",")) {
+                    nodeCounts.add(Integer.parseInt(count.trim()));
+                }
+            } else if (arg.startsWith("--shard-by=")) {
+                shardKey = value.equals("type") ? ShardKey.ISSUE_TYPE : ShardKey.CUSTOMER_EMAIL;
+            } else if (arg.startsWith("--agents=")) {
+                agents = Integer.parseInt(value);
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(value);
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(value);
+            } else if (arg.startsWith("--query-every=")) {
+                queryEvery = Integer.parseInt(value);
+            } else if (arg.startsWith("--node-heap=")) {
+                nodeHeap = value;
+            } else {
+                throw new IllegalArgumentException("Unknown option '" + arg
+                        + "' (--nodes, --shard-by, --agents, --concurrency, --requests, --query-every, --node-heap).");
+            }
+        }
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+
+        System.out.println("Sharded by " + shardKey + ", " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+            for (int nodeCount : nodeCounts) {
+                System.out.println();
+                System.out.println(nodeCount + " node(s)");
+                HttpLoadClient.printHeader();
+                try (LocalCluster cluster = new LocalCluster(nodeCount, List.of("-Xmx" + nodeHeap));
+                     ShardRouter router = new ShardRouter(cluster.getNodes(), shardKey,
+                             new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                    HttpLoadClient load = new HttpLoadClient(URI.create("http://127.0.0.1:" + router.getPort()), client);
+                    load.addAgents(agents);
+                    load.run(concurrency, requests, queryEvery);
+                }
+            }
+        }
+        Logger.getBackend().close();
+    }
+}
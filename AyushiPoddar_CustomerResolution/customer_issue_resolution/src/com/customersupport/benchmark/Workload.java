@@ -0,0 +1,21 @@
+package com.customersupport.benchmark;
+
+import com.customersupport.instrumentation.LatencyHistogram;
+
+// The measured part of one benchmark iteration, prepared by a Scenario
+interface Workload {
+
+    /**
+     * Runs this thread's share of the work, recording the latency of every operation, and returns the number of
+     * operations done. Called concurrently by all threads of the iteration.
+     */
+    long run(int thread, int threadCount, LatencyHistogram latency) throws Exception;
+
+    // Extra results of the iteration (e.g. tail waiting times), printed after the standard columns
+    default String report() {
+        return "";
+    }
+
+    default void tearDown() throws Exception {
+    }
+}
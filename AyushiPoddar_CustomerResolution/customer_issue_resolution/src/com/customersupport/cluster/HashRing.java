@@ -0,0 +1,92 @@
+package com.customersupport.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent-hash ring over nodes 0..nodeCount-1. Every node owns a number of points (virtual nodes) on a 64-bit
+ * ring, and a key belongs to the node of the first point at or after the key's hash. With enough virtual nodes the
+ * keys spread evenly, and adding a node only moves the keys that land on its points.
+ *
+ * Immutable; lookups are a binary search over a sorted long[].
+ */
+public class HashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int nodeCount;
+    private final long[] points; // Sorted
+    private final int[] owners;  // owners[i] is the node of points[i]
+
+    public HashRing(int nodeCount) {
+        this(nodeCount, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(int nodeCount, int virtualNodes) {
+        if (nodeCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs at least one node and one point per node.");
+        }
+        this.nodeCount = nodeCount;
+        long[][] entries = new long[nodeCount * virtualNodes][];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[node * virtualNodes + v] = new long[]{hash("node-" + node + "#" + v), node};
+            }
+        }
+        // Ties (practically never) go to the lower node, so every process builds the same ring
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int nodeFor(String key) {
+        return owners[firstPointAtOrAfter(hash(key))];
+    }
+
+    // Every node once, in ring order starting with the key's owner: the order in which to ask nodes for help
+    public List<Integer> nodesFor(String key) {
+        List<Integer> nodes = new ArrayList<>(nodeCount);
+        boolean[] seen = new boolean[nodeCount];
+        int start = firstPointAtOrAfter(hash(key));
+        for (int i = 0; i < points.length && nodes.size() < nodeCount; i++) {
+            int node = owners[(start + i) % points.length];
+            if (!seen[node]) {
+                seen[node] = true;
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    private int firstPointAtOrAfter(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == points.length ? 0 : index; // Past the last point wraps around to the first
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, with a final mix (from MurmurHash3) so that similar keys spread out
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
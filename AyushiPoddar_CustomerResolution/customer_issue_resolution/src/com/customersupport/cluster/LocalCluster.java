@@ -0,0 +1,88 @@
+package com.customersupport.cluster;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts ShardNodes 0..n-1 as separate JVMs on this machine (same java and classpath as the current process), each
+ * on a free loopback port. close() stops them all.
+ */
+public class LocalCluster implements Closeable {
+    private final List<Process> processes = new ArrayList<>();
+    private final List<URI> nodes = new ArrayList<>();
+
+    public LocalCluster(int nodeCount, List<String> jvmOptions) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        try {
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ShardNode.class.getName());
+                command.add("--node-id=" + nodeId);
+                Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(process);
+                nodes.add(URI.create("http://127.0.0.1:" + awaitPort(process, nodeId)));
+            }
+        } catch (IOException | RuntimeException e) {
+            stop();
+            throw e;
+        }
+    }
+
+    // Node i is at getNodes().get(i), which is the order the ShardRouter expects
+    public List<URI> getNodes() {
+        return nodes;
+    }
+
+    // Reads the node's "LISTENING <port>" line; the rest of its stdout is drained so the node never blocks on it
+    private static int awaitPort(Process process, int nodeId) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith("LISTENING ")) {
+                Thread drain = new Thread(() -> {
+                    try {
+                        while (out.readLine() != null) {
+                            // Discarded
+                        }
+                    } catch (IOException e) {
+                        // The node is gone
+                    }
+                }, "node-" + nodeId + "-stdout");
+                drain.setDaemon(true);
+                drain.start();
+                return Integer.parseInt(line.substring("LISTENING ".length()).trim());
+            }
+        }
+        throw new IOException("Node " + nodeId + " exited before it was listening.");
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void stop() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.customersupport.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a ShardRouter until the process is stopped.
+ * Options: --nodes=http://host:port,... (node i is the i-th URL, started with --node-id=i) or --local-nodes=N to start
+ * N ShardNodes on this machine; --port=N (default 8080, 0 picks a free one); --shard-by=type|email (default type).
+ */
+public class RouterMain {
+    public static void main(String[] args) throws IOException {
+        List<URI> nodes = new ArrayList<>();
+        int localNodes = 0;
+        int port = 8080;
+        ShardKey shardKey = ShardKey.ISSUE_TYPE;
+        for (String arg : args) {
+            if (arg.startsWith("--nodes=")) {
+                for (String node : arg.substring("--nodes=".length()).split(",")) {
+                    nodes.add(URI.create(node.trim()));
+                }
+            } else if (arg.startsWith("--local-nodes=")) {
+                localNodes = Integer.parseInt(arg.substring("--local-nodes=".length()));
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--shard-by=")) {
+                String key = arg.substring("--shard-by=".length());
+                if (key.equals("type")) {
+                    shardKey = ShardKey.ISSUE_TYPE;
+                } else if (key.equals("email")) {
+                    shardKey = ShardKey.CUSTOMER_EMAIL;
+                } else {
+                    throw new IllegalArgumentException("--shard-by must be 'type' or 'email'.");
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown option '" + arg + "' (--nodes=URL,..., --local-nodes=N, --port=N, --shard-by=type|email).");
+            }
+        }
+        if (nodes.isEmpty() == (localNodes == 0)) {
+            throw new IllegalArgumentException("Give either --nodes or --local-nodes.");
+        }
+
+        LocalCluster cluster = localNodes > 0 ? new LocalCluster(localNodes, List.of()) : null;
+        ShardRouter router = new ShardRouter(cluster != null ? cluster.getNodes() : nodes, shardKey, new InetSocketAddress(port));
+        System.out.println("Routing http://localhost:" + router.getPort() + "/issues and /agents over "
+                + (cluster != null ? cluster.getNodes() : nodes));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            router.close();
+            if (cluster != null) {
+                cluster.close();
+            }
+        }));
+    }
+}
@@ -0,0 +1,8 @@
+package com.customersupport.cluster;
+
+// What decides the node of an issue in a sharded deployment
+public enum ShardKey {
+    ISSUE_TYPE,     // All issues of a type on one node: its waiting queue stays whole, but there are only a few keys
+    CUSTOMER_EMAIL  // A customer's issues on one node: spreads evenly, every node handles every type, and every
+                    // duplicate of a customer's issue is detected (with ISSUE_TYPE, only if it has the same type)
+}
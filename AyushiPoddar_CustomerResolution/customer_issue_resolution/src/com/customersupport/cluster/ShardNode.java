@@ -0,0 +1,86 @@
+package com.customersupport.cluster;
+
+import com.customersupport.Strategy.AssignmentStrategy;
+import com.customersupport.controller.AgentController;
+import com.customersupport.controller.IssueController;
+import com.customersupport.events.IssueEventPublisher;
+import com.customersupport.http.SupportHttpServer;
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.InMemoryIssueRepository;
+import com.customersupport.scheduler.TimingWheel;
+import com.customersupport.service.AgentService;
+import com.customersupport.service.IdGenerator;
+import com.customersupport.service.IssueService;
+import com.customersupport.service.IssueTimerSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * One node of a sharded deployment: a complete IssueService and AgentService over their own in-memory repositories,
+ * served by a SupportHttpServer on the loopback interface. Node n generates issue and agent IDs with node ID n,
+ * which is how the ShardRouter knows where an issue or agent lives.
+ * <p>
+ * Runs as its own process with --node-id=N and --port=P (default 0, a free port); it prints "LISTENING <port>"
+ * once it accepts requests.
+ */
+public class ShardNode implements Closeable {
+    private final int nodeId;
+    private final SupportHttpServer server;
+    private final TimingWheel timers;
+
+    public ShardNode(int nodeId, int port) throws IOException {
+        this.nodeId = nodeId;
+        InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
+        IssueService issueService = new IssueService(new InMemoryIssueRepository(), agentRepo, new AssignmentStrategy(),
+                IssueEventPublisher.NO_OP, new IdGenerator("I", nodeId));
+        this.timers = new TimingWheel(100);
+        issueService.startTimers(timers, IssueTimerSettings.DEFAULTS);
+        AgentService agentService = new AgentService(agentRepo, new IdGenerator("A", nodeId));
+        this.server = new SupportHttpServer(new IssueController(issueService), new AgentController(agentService),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+        timers.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int nodeId = -1;
+        int port = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--node-id=")) {
+                nodeId = Integer.parseInt(arg.substring("--node-id=".length()));
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option '" + arg + "' (--node-id=N, --port=N).");
+            }
+        }
+        if (nodeId < 0) {
+            throw new IllegalArgumentException("--node-id is required.");
+        }
+        // Only warnings, and on stderr: stdout is how the starting process learns the port
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+
+        ShardNode node = new ShardNode(nodeId, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(node::close));
+        System.out.println("LISTENING " + node.getPort());
+        System.out.flush();
+    }
+}
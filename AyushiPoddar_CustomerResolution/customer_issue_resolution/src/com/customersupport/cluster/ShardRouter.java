@@ -0,0 +1,609 @@
+package com.customersupport.cluster;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.http.Json;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.repository.IssueCursor;
+import com.customersupport.repository.IssueOrder;
+import com.customersupport.service.IdGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing layer of a sharded deployment: serves the same HTTP API as SupportHttpServer and spreads it over
+ * ShardNodes (node i at nodes.get(i), started with --node-id=i).
+ *
+ * - New issues go to the node that owns their key (issue type or customer email, see ShardKey) on a HashRing.
+ *   New agents go to the node of their first expertise type, or of their email.
+ * - Issue and agent IDs carry the node ID of the node that created them, so every request about an existing issue
+ *   or agent goes straight to its node, whatever the key.
+ * - Queries that name the shard key, or an issue ID, go to one node; other queries and listings ask every node in
+ *   parallel and concatenate the answers (pages of issues are merged in their sort order; text search results are
+ *   ranked per node).
+ * - Agent borrowing: when an issue's node has no free expert (the issue ends up WAITING), the other nodes are asked
+ *   in ring order to lend one. The lender marks the agent BUSY with the issue, the issue's node assigns the issue to
+ *   them, and when the issue is resolved the router hands the agent back to the lender, who records the issue in
+ *   their history and gives them the next waiting issue there. The loans are recorded on the nodes, not here: the
+ *   lender has the other node's issue in the agent's slot, and the issue names an agent with another node's ID.
+ *   So a loan that the router lost track of (it was restarted, or handing the agent back failed) is settled by
+ *   reconcileLoans(), which runs at start-up and then every RECONCILE_INTERVAL.
+ * - A batch of new issues is split by node; each node creates its part all-or-nothing, but not the batch as a whole.
+ */
+public class ShardRouter implements Closeable {
+    private static final Logger LOG = Logger.get(ShardRouter.class);
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100; // Issues per page without ?limit=, as on the nodes
+    private static final Duration RECONCILE_INTERVAL = Duration.ofSeconds(10);
+
+    private final List<URI> nodes;
+    private final HashRing ring;
+    private final ShardKey shardKey;
+    private final HttpClient client;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService reconciler;
+
+    // Only used to read the node ID out of issue and agent IDs
+    private final IdGenerator issueIds = new IdGenerator("I", 0);
+    private final IdGenerator agentIds = new IdGenerator("A", 0);
+
+    // Issues for which an agent is being borrowed right now; reconcileLoans() leaves their loans alone
+    private final Set<String> borrowing = ConcurrentHashMap.newKeySet();
+
+    public ShardRouter(List<URI> nodes, ShardKey shardKey, InetSocketAddress address) throws IOException {
+        this.nodes = new ArrayList<>(nodes);
+        this.ring = new HashRing(nodes.size());
+        this.shardKey = shardKey;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/issues", exchange -> handle(exchange, this::routeIssues));
+        server.createContext("/agents", exchange -> handle(exchange, this::routeAgents));
+        server.start();
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loan-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, 0, RECONCILE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Routing ---
+
+    private interface Route {
+        Reply route(String method, List<String> path, HttpExchange exchange) throws IOException;
+    }
+
+    private Reply routeIssues(String method, List<String> path, HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                Integer node = nodeForQuery(queryParameters(query));
+                return node != null ? call(node, "GET", pathAndQuery(exchange), null) : gatherLists("GET", pathAndQuery(exchange), null);
+            }
+            if (method.equals("POST")) {
+                String body = body(exchange);
+                return call(nodeForIssue(Json.parseObject(body)), "POST", "/issues", body);
+            }
+        } else if (path.size() == 2 && method.equals("GET") && path.get(1).equals("page")) {
+            Map<String, String> filter = queryParameters(query);
+            Integer node = nodeForQuery(filter);
+            return node != null ? call(node, "GET", pathAndQuery(exchange), null) : mergePages(filter, pathAndQuery(exchange));
+        } else if (path.size() == 2 && method.equals("POST")) {
+            if (path.get(1).equals("batch")) {
+                return createBatch(body(exchange));
+            }
+            if (path.get(1).equals("assign-pending")) {
+                return gatherLists("POST", "/issues/assign-pending", "{}");
+            }
+        } else if (path.size() == 3 && method.equals("POST")) {
+            String issueId = path.get(1);
+            int node = issueIds.nodeIdOf(issueId);
+            if (node < 0 || node >= nodes.size()) {
+                return Reply.error(404, "Issue with ID '" + issueId + "' not found.");
+            }
+            String body = body(exchange);
+            Reply reply = call(node, "POST", exchange.getRequestURI().getRawPath(), body.isEmpty() ? "{}" : body);
+            if (reply.status == 200 && path.get(2).equals("assign")) {
+                return borrowIfWaiting(node, reply);
+            }
+            if (reply.status == 200 && path.get(2).equals("resolve")) {
+                return returnIfLent(node, reply);
+            }
+            return reply;
+        }
+        return Reply.notFound(exchange);
+    }
+
+    private Reply routeAgents(String method, List<String> path, HttpExchange exchange) throws IOException {
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                return gatherLists("GET", "/agents", null);
+            }
+            if (method.equals("POST")) {
+                String body = body(exchange);
+                return call(nodeForAgent(Json.parseObject(body)), "POST", "/agents", body);
+            }
+        } else if (method.equals("GET") && (path.size() == 2 || path.size() == 3)) {
+            if (path.size() == 2 && (path.get(1).equals("history") || path.get(1).equals("stats"))) {
+                // Every node pages through its own agents, so a page here holds up to one page per node
+                return gatherObjects(pathAndQuery(exchange));
+            }
+            int node = agentIds.nodeIdOf(path.get(1));
+            if (node < 0 || node >= nodes.size()) {
+                return Reply.error(404, "Agent with ID '" + path.get(1) + "' not found.");
+            }
+            return call(node, "GET", pathAndQuery(exchange), null);
+        }
+        return Reply.notFound(exchange);
+    }
+
+    // --- Sharding ---
+
+    private int nodeForIssue(Map<?, ?> issue) {
+        if (shardKey == ShardKey.ISSUE_TYPE) {
+            return ring.nodeFor(normalizedType(issue.get("type")));
+        }
+        return ring.nodeFor(String.valueOf(issue.get("email")));
+    }
+
+    private int nodeForAgent(Map<?, ?> agent) {
+        if (shardKey == ShardKey.ISSUE_TYPE) {
+            Object expertise = agent.get("expertise");
+            Object firstType = expertise instanceof List && !((List<?>) expertise).isEmpty() ? ((List<?>) expertise).get(0) : null;
+            return ring.nodeFor(normalizedType(firstType));
+        }
+        return ring.nodeFor(String.valueOf(agent.get("email")));
+    }
+
+    // The single node that can answer the query, or null if every node has to be asked
+    private Integer nodeForQuery(Map<String, String> filter) {
+        String issueId = filter.get("issueId");
+        if (issueId != null && !issueId.isBlank()) {
+            int node = issueIds.nodeIdOf(issueId.trim());
+            return node >= 0 && node < nodes.size() ? node : 0; // An unknown ID isn't on any node; node 0 says so
+        }
+        String type = filter.get("type");
+        if (shardKey == ShardKey.ISSUE_TYPE && type != null && !type.isBlank()) {
+            return ring.nodeFor(normalizedType(type));
+        }
+        String email = filter.get("email");
+        if (shardKey == ShardKey.CUSTOMER_EMAIL && email != null && !email.isBlank()) {
+            return ring.nodeFor(email);
+        }
+        return null;
+    }
+
+    // Same reading of the type as IssueService (unknown types become OTHER), so an issue lands where it is looked for
+    private static String normalizedType(Object type) {
+        if (type == null) {
+            return IssueType.OTHER.name();
+        }
+        try {
+            return IssueType.valueOf(type.toString().trim().toUpperCase().replace(" ", "_")).name();
+        } catch (IllegalArgumentException e) {
+            return IssueType.OTHER.name();
+        }
+    }
+
+    private Reply createBatch(String body) throws IOException {
+        Object value = Json.parse(body);
+        if (!(value instanceof List)) {
+            return Reply.error(400, "Expected a JSON array of issues.");
+        }
+        List<?> requests = (List<?>) value;
+        // Split by node, remembering where every request came from so the answer keeps the request order
+        Map<Integer, List<Object>> parts = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (!(requests.get(i) instanceof Map)) {
+                return Reply.error(400, "Expected a JSON array of issues.");
+            }
+            int node = nodeForIssue((Map<?, ?>) requests.get(i));
+            parts.computeIfAbsent(node, n -> new ArrayList<>()).add(requests.get(i));
+            positions.computeIfAbsent(node, n -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, CompletableFuture<Reply>> replies = new LinkedHashMap<>();
+        parts.forEach((node, part) -> replies.put(node, callAsync(node, "POST", "/issues/batch", Json.write(part))));
+        Object[] created = new Object[requests.size()];
+        for (Map.Entry<Integer, CompletableFuture<Reply>> entry : replies.entrySet()) {
+            Reply reply = join(entry.getValue());
+            if (reply.status != 201) {
+                return reply;
+            }
+            List<?> issues = (List<?>) Json.parse(reply.body);
+            List<Integer> at = positions.get(entry.getKey());
+            for (int i = 0; i < issues.size(); i++) {
+                created[at.get(i)] = issues.get(i);
+            }
+        }
+        return new Reply(201, Json.write(Arrays.asList(created)));
+    }
+
+    // Every node's page from the same cursor, merged. Cursor positions are global (issue IDs and creation times compare
+    //across nodes), so the first pageSize issues of the merge are the page, and the position of the last one is a
+    //cursor every node can resume from.
+    private Reply mergePages(Map<String, String> filter, String pathAndQuery) throws IOException {
+        List<Reply> replies = callAll("GET", pathAndQuery, null);
+        List<Map<?, ?>> issues = new ArrayList<>();
+        boolean more = false;
+        for (Reply reply : replies) {
+            if (reply.status / 100 != 2) {
+                return reply; // The nodes check the order, limit and cursor
+            }
+            Map<?, ?> page = (Map<?, ?>) Json.parse(reply.body);
+            for (Object issue : (List<?>) page.get("issues")) {
+                issues.add((Map<?, ?>) issue);
+            }
+            more |= page.get("nextCursor") != null;
+        }
+        String orderName = filter.get("order");
+        IssueOrder order = orderName == null || orderName.isBlank() ? IssueOrder.ID
+                : IssueOrder.valueOf(orderName.trim().toUpperCase().replace(" ", "_"));
+        String limit = filter.get("limit");
+        int pageSize = limit == null || limit.isBlank() ? DEFAULT_PAGE_SIZE : Integer.parseInt(limit.trim());
+
+        issues.sort(Comparator.comparing(issue -> cursorOf(issue, order)));
+        if (issues.size() > pageSize) {
+            issues = issues.subList(0, pageSize);
+            more = true;
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("issues", issues);
+        page.put("nextCursor", more ? cursorOf(issues.get(issues.size() - 1), order).toToken() : null);
+        return new Reply(200, Json.write(page));
+    }
+
+    private static IssueCursor cursorOf(Map<?, ?> issue, IssueOrder order) {
+        return IssueCursor.of(order, (String) issue.get("id"), LocalDateTime.parse((String) issue.get("createdAt")));
+    }
+
+    // --- Agent borrowing ---
+
+    // The issue went WAITING on its node: ask the other nodes, in ring order from the issue's type, for a free expert
+    private Reply borrowIfWaiting(int owner, Reply assigned) throws IOException {
+        Map<?, ?> result = (Map<?, ?>) Json.parse(assigned.body);
+        Map<?, ?> issue = (Map<?, ?>) result.get("issue");
+        if (result.get("agent") != null || !"WAITING".equals(issue.get("status")) || nodes.size() == 1) {
+            return assigned;
+        }
+        String issueId = (String) issue.get("id");
+        borrowing.add(issueId);
+        try {
+            return borrow(owner, issueId, (String) issue.get("type"), assigned);
+        } finally {
+            borrowing.remove(issueId);
+        }
+    }
+
+    private Reply borrow(int owner, String issueId, String type, Reply assigned) throws IOException {
+        for (int lender : ring.nodesFor(type)) {
+            if (lender == owner) {
+                continue;
+            }
+            Map<String, Object> lendRequest = new LinkedHashMap<>();
+            lendRequest.put("type", type);
+            lendRequest.put("issueId", issueId);
+            Reply lent = call(lender, "POST", "/cluster/lend", Json.write(lendRequest));
+            if (lent.status == 409) {
+                continue; // Nobody free there either
+            }
+            if (lent.status != 200) {
+                return assigned;
+            }
+            Map<?, ?> agent = (Map<?, ?>) Json.parse(lent.body);
+            String agentId = (String) agent.get("agentId");
+
+            Map<String, Object> assignRequest = new LinkedHashMap<>();
+            assignRequest.put("agentId", agentId);
+            Reply lentAssigned = call(owner, "POST", "/cluster/issues/" + issueId + "/assign-lent", Json.write(assignRequest));
+            if (lentAssigned.status == 200) {
+                Map<String, Object> borrowed = new LinkedHashMap<>();
+                borrowed.put("issue", Json.parse(lentAssigned.body));
+                borrowed.put("agent", agent);
+                return new Reply(200, Json.write(borrowed));
+            }
+            // The issue got a local agent in the meantime (or is gone): the lender gets their agent back
+            returnUnused(lender, agentId, issueId);
+            return call(owner, "POST", "/issues/" + issueId + "/assign", "{}");
+        }
+        return assigned;
+    }
+
+    // The resolved issue was worked on by a lent agent: hand them back, and answer with the agent as the lender has them
+    private Reply returnIfLent(int owner, Reply resolved) throws IOException {
+        Map<?, ?> result = (Map<?, ?>) Json.parse(resolved.body);
+        Map<?, ?> issue = (Map<?, ?>) result.get("issue");
+        int lender = lenderOf(owner, issue);
+        if (lender < 0 || !"RESOLVED".equals(issue.get("status"))) {
+            return resolved;
+        }
+        Reply returned = returnResolved(lender, issue);
+        if (returned.status != 200) {
+            if (returned.status != 409) { // 409: reconcileLoans() got there first
+                LOG.warn("Agent {} could not be returned to node {}, the next reconciliation retries.", issue.get("assignedAgentId"), lender);
+            }
+            return resolved;
+        }
+        Map<String, Object> answer = new LinkedHashMap<>();
+        answer.put("issue", issue);
+        answer.put("agent", Json.parse(returned.body));
+        return new Reply(200, Json.write(answer));
+    }
+
+    /**
+     * Settles the loans that nobody is going to settle otherwise: asks every node for its lent agents, looks up each
+     * issue they are lent for on its own node, and hands the agent back if that issue is finished (as returnIfLent()
+     * would have) or isn't being worked on by them (the router stopped between lending the agent and assigning the
+     * issue). Loans of issues that are being borrowed for right now are left alone. A node that can't be reached is
+     * skipped until the next round. Returns the number of agents handed back.
+     */
+    public int reconcileLoans() {
+        int settled = 0;
+        for (int lender = 0; lender < nodes.size(); lender++) {
+            Map<?, ?> lent;
+            try {
+                Reply reply = call(lender, "GET", "/cluster/lent", null);
+                if (reply.status != 200) {
+                    continue;
+                }
+                lent = (Map<?, ?>) Json.parse(reply.body);
+            } catch (IOException e) {
+                continue;
+            }
+            for (Map.Entry<?, ?> loan : lent.entrySet()) {
+                String agentId = (String) loan.getKey();
+                for (Object issueId : (List<?>) loan.getValue()) {
+                    try {
+                        if (settle(lender, agentId, (String) issueId)) {
+                            settled++;
+                        }
+                    } catch (IOException e) {
+                        // The issue's node is unreachable, try again next time
+                    }
+                }
+            }
+        }
+        return settled;
+    }
+
+    private boolean settle(int lender, String agentId, String issueId) throws IOException {
+        int owner = issueIds.nodeIdOf(issueId);
+        if (borrowing.contains(issueId) || owner < 0 || owner >= nodes.size()) {
+            return false;
+        }
+        Reply found = call(owner, "GET", "/issues?issueId=" + issueId, null);
+        if (found.status != 200) {
+            return false;
+        }
+        List<?> issues = (List<?>) Json.parse(found.body);
+        Map<?, ?> issue = issues.isEmpty() ? null : (Map<?, ?>) issues.get(0);
+        Reply returned;
+        if (issue != null && agentId.equals(issue.get("assignedAgentId"))) {
+            String status = (String) issue.get("status");
+            if (!"RESOLVED".equals(status) && !"CLOSED".equals(status)) {
+                return false; // Still on loan
+            }
+            returned = returnResolved(lender, issue);
+        } else {
+            returned = returnUnused(lender, agentId, issueId);
+        }
+        if (returned.status == 200) {
+            LOG.info("Agent {} was still lent out for issue {}, handed back to node {}.", agentId, issueId, lender);
+            return true;
+        }
+        return false; // 409: returned by someone else in the meantime
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcileLoans();
+        } catch (RuntimeException e) {
+            LOG.error("Loan reconciliation failed, retrying at the next interval.", e);
+        }
+    }
+
+    // The node that lent the issue's agent, or -1 if the agent is the owner's own (or there is none)
+    private int lenderOf(int owner, Map<?, ?> issue) {
+        String agentId = (String) issue.get("assignedAgentId");
+        int node = agentId == null ? -1 : agentIds.nodeIdOf(agentId);
+        return node == owner || node >= nodes.size() ? -1 : node;
+    }
+
+    private Reply returnResolved(int lender, Map<?, ?> issue) throws IOException {
+        Map<String, Object> returnRequest = new LinkedHashMap<>();
+        returnRequest.put("issueId", issue.get("id"));
+        returnRequest.put("type", issue.get("type"));
+        returnRequest.put("handlingMillis", Duration.between(LocalDateTime.parse((String) issue.get("createdAt")),
+                LocalDateTime.parse((String) issue.get("updatedAt"))).toMillis());
+        return call(lender, "POST", "/cluster/agents/" + issue.get("assignedAgentId") + "/return", Json.write(returnRequest));
+    }
+
+    private Reply returnUnused(int lender, String agentId, String issueId) throws IOException {
+        Map<String, Object> returnRequest = new LinkedHashMap<>();
+        returnRequest.put("issueId", issueId);
+        return call(lender, "POST", "/cluster/agents/" + agentId + "/return", Json.write(returnRequest));
+    }
+
+    // --- Talking to the nodes ---
+
+    private Reply call(int node, String method, String pathAndQuery, String body) throws IOException {
+        return join(callAsync(node, method, pathAndQuery, body));
+    }
+
+    private CompletableFuture<Reply> callAsync(int node, String method, String pathAndQuery, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(nodes.get(node).resolve(pathAndQuery));
+        if (method.equals("POST")) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> new Reply(response.statusCode(), response.body()));
+    }
+
+    // Every node in parallel; the JSON arrays are concatenated, the first failure is returned as it is
+    private Reply gatherLists(String method, String pathAndQuery, String body) throws IOException {
+        List<Object> all = new ArrayList<>();
+        for (Reply reply : callAll(method, pathAndQuery, body)) {
+            if (reply.status / 100 != 2) {
+                return reply;
+            }
+            all.addAll((List<?>) Json.parse(reply.body));
+        }
+        return new Reply(200, Json.write(all));
+    }
+
+    // Every node in parallel; the JSON objects (keyed by agent) are merged
+    private Reply gatherObjects(String pathAndQuery) throws IOException {
+        Map<Object, Object> all = new LinkedHashMap<>();
+        for (Reply reply : callAll("GET", pathAndQuery, null)) {
+            if (reply.status / 100 != 2) {
+                return reply;
+            }
+            all.putAll((Map<?, ?>) Json.parse(reply.body));
+        }
+        return new Reply(200, Json.write(all));
+    }
+
+    private List<Reply> callAll(String method, String pathAndQuery, String body) throws IOException {
+        List<CompletableFuture<Reply>> pending = new ArrayList<>();
+        for (int node = 0; node < nodes.size(); node++) {
+            pending.add(callAsync(node, method, pathAndQuery, body));
+        }
+        List<Reply> replies = new ArrayList<>();
+        for (CompletableFuture<Reply> reply : pending) {
+            replies.add(join(reply));
+        }
+        return replies;
+    }
+
+    // A node that can't be reached surfaces as the IOException it failed with
+    private static Reply join(CompletableFuture<Reply> reply) throws IOException {
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // --- Request handling ---
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try (exchange) {
+            Reply reply;
+            try {
+                reply = route.route(exchange.getRequestMethod(), pathSegments(exchange), exchange);
+            } catch (IllegalArgumentException | ClassCastException e) {
+                reply = Reply.error(400, e.getMessage());
+            } catch (IOException e) {
+                reply = Reply.error(503, "A node is not reachable: " + e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.error("Request {} failed.", exchange.getRequestURI(), e);
+                reply = Reply.error(500, "Internal error.");
+            }
+            byte[] bytes = reply.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(reply.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String pathAndQuery(HttpExchange exchange) {
+        URI uri = exchange.getRequestURI();
+        return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+    }
+
+    private static List<String> pathSegments(HttpExchange exchange) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : exchange.getRequestURI().getPath().split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> queryParameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    // A node's answer (or our own), passed on as it is
+    private static final class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Reply error(int status, String message) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("error", message);
+            return new Reply(status, Json.write(body));
+        }
+
+        static Reply notFound(HttpExchange exchange) {
+            return error(404, "No route for " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    @Override
+    public void close() {
+        reconciler.shutdownNow();
+        server.stop(1);
+        executor.close();
+    }
+}
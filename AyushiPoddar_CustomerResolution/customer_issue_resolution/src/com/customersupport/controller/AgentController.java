@@ -18,6 +18,11 @@ public class AgentController {
         return agentService.addAgent(email, name, expertiseTypes);
     }
 
+    // An agent who works on up to capacity issues at the same time
+    public Agent addAgent(String email, String name, List<IssueType> expertiseTypes, int capacity) {
+        return agentService.addAgent(email, name, expertiseTypes, capacity);
+    }
+
     // Renamed from getAgent(String email) to getAgentByEmail to match AgentService
     public Agent getAgentByEmail(String email) {
         return agentService.getAgentByEmail(email);
@@ -3,12 +3,17 @@ package com.customersupport.controller;
 import com.customersupport.enums.IssueStatus;
 import com.customersupport.enums.IssueType; // Import IssueType enum
 import com.customersupport.model.Agent;
+import com.customersupport.model.AgentWorkStats;
 import com.customersupport.model.Issue;
+import com.customersupport.model.IssueRequest;
+import com.customersupport.repository.IssueOrder;
+import com.customersupport.repository.IssuePage;
 import com.customersupport.service.IssueService;
 // No direct dependency on AgentService here if agent lookups are handled by Main or a dedicated agent controller
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class IssueController {
     private final IssueService issueService;
@@ -27,14 +32,37 @@ public class IssueController {
         return issueService.createIssue(transactionId, type, subject, description, email);
     }
 
+    // Same as above, with a priority (LOW, MEDIUM, HIGH, CRITICAL) that sets the SLA for picking the issue up
+    public Issue createIssue(String transactionId, String type, String subject, String description, String email,
+                             String priority) {
+        return issueService.createIssue(transactionId, type, subject, description, email, priority);
+    }
+
+    // Bulk ingestion: create a whole batch, then assign everything pending in one pass
+    public List<Issue> createIssues(List<IssueRequest> requests) {
+        return issueService.createIssues(requests);
+    }
+
     public Agent assignIssue(String issueId) {
         return issueService.assignIssue(issueId);
     }
 
+    public List<Issue> assignPending() {
+        return issueService.assignPending();
+    }
+
     public List<Issue> getIssues(Map<String, String> filter) {
         return issueService.getIssues(filter);
     }
 
+    public IssuePage getIssuesPage(Map<String, String> filter, IssueOrder order, String cursor, int pageSize) {
+        return issueService.getIssuesPage(filter, order, cursor, pageSize);
+    }
+
+    public Stream<Issue> streamIssues(Map<String, String> filter, IssueOrder order) {
+        return issueService.streamIssues(filter, order);
+    }
+
     public void updateIssue(String issueId, IssueStatus status, String resolution) {
         issueService.updateIssue(issueId, status, resolution);
     }
@@ -43,7 +71,50 @@ public class IssueController {
         issueService.resolveIssue(issueId, resolution);
     }
 
+    public void closeIssue(String issueId) {
+        issueService.closeIssue(issueId);
+    }
+
+    // --- Agent lending between the nodes of a sharded deployment ---
+
+    public Agent lendAgent(IssueType type, String foreignIssueId) {
+        return issueService.lendAgent(type, foreignIssueId);
+    }
+
+    public Issue assignLentAgent(String issueId, String agentId) {
+        return issueService.assignLentAgent(issueId, agentId);
+    }
+
+    public Agent returnUnusedAgent(String agentId, String foreignIssueId) {
+        return issueService.returnUnusedAgent(agentId, foreignIssueId);
+    }
+
+    public Agent returnLentAgent(String agentId, String foreignIssueId, IssueType type, long handlingMillis) {
+        return issueService.returnLentAgent(agentId, foreignIssueId, type, handlingMillis);
+    }
+
+    public Map<String, List<String>> viewLentAgents() {
+        return issueService.viewLentAgents();
+    }
+
     public Map<String, List<String>> viewAgentsWorkHistory() {
         return issueService.viewAgentsWorkHistory();
     }
+
+    // Paged: at most limit entries of each agent's history, starting at offset
+    public Map<String, List<String>> viewAgentsWorkHistory(int offset, int limit) {
+        return issueService.viewAgentsWorkHistory(offset, limit);
+    }
+
+    public List<String> viewAgentWorkHistory(String agentId, int offset, int limit) {
+        return issueService.viewAgentWorkHistory(agentId, offset, limit);
+    }
+
+    public Map<String, AgentWorkStats.Snapshot> viewAgentsWorkStats() {
+        return issueService.viewAgentsWorkStats();
+    }
+
+    public AgentWorkStats.Snapshot viewAgentWorkStats(String agentId) {
+        return issueService.viewAgentWorkStats(agentId);
+    }
 }
@@ -1,6 +1,6 @@
 package com.customersupport.enums;
 
 public enum AgentStatus {
-    FREE,
-    BUSY
+    FREE, // No active issue
+    BUSY  // Working on at least one issue; an agent with several slots may still take more (Agent.hasFreeSlot())
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.customersupport.enums;
+
+import java.time.Duration;
+
+public enum IssuePriority {
+    LOW(Duration.ofHours(24)),
+    MEDIUM(Duration.ofHours(8)),
+    HIGH(Duration.ofHours(2)),
+    CRITICAL(Duration.ofMinutes(30));
+
+    // How long after creation the issue should be picked up at the latest
+    private final Duration sla;
+
+    IssuePriority(Duration sla) {
+        this.sla = sla;
+    }
+
+    public Duration getSla() {
+        return sla;
+    }
+}
@@ -0,0 +1,7 @@
+package com.customersupport.enums;
+
+// What happens to an issue that has been IN_PROGRESS for too long without any change
+public enum StaleIssueAction {
+    ESCALATE, // Publish ISSUE_ESCALATED and leave the issue with its agent
+    REASSIGN  // Hand the issue to another free agent of its type (escalate if there is none)
+}
@@ -0,0 +1,7 @@
+package com.customersupport.events;
+
+// What IssueEventBus.publish() does when the partition's ring buffer is full
+public enum BackpressurePolicy {
+    BLOCK, // The publisher waits until the consumer has made room; no event is ever lost
+    DROP   // The event is dropped and counted, so publishers never wait on slow listeners
+}
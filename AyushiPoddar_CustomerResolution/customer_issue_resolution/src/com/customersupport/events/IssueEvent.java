@@ -0,0 +1,39 @@
+package com.customersupport.events;
+
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+
+/**
+ * An immutable record of one lifecycle transition. It carries everything a listener usually needs, so listeners
+ * don't have to go back to the repositories (where the issue may have moved on already).
+ */
+public class IssueEvent {
+    private final IssueEventType eventType;
+    private final String issueId;
+    private final IssueType issueType;
+    private final IssueStatus status; // Status of the issue right after the transition
+    private final String agentId;     // Null if the transition doesn't involve an agent
+    private final long timestampNanos; // System.nanoTime() when the transition happened, for measuring delays
+
+    public IssueEvent(IssueEventType eventType, String issueId, IssueType issueType, IssueStatus status, String agentId) {
+        this.eventType = eventType;
+        this.issueId = issueId;
+        this.issueType = issueType;
+        this.status = status;
+        this.agentId = agentId;
+        this.timestampNanos = System.nanoTime();
+    }
+
+    public IssueEventType getEventType() { return eventType; }
+    public String getIssueId() { return issueId; }
+    public IssueType getIssueType() { return issueType; }
+    public IssueStatus getStatus() { return status; }
+    public String getAgentId() { return agentId; }
+    public long getTimestampNanos() { return timestampNanos; }
+
+    @Override
+    public String toString() {
+        return eventType + "{issueId=" + issueId + ", type=" + issueType + ", status=" + status
+                + (agentId != null ? ", agentId=" + agentId : "") + "}";
+    }
+}
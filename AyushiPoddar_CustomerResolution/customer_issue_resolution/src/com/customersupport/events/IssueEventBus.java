@@ -0,0 +1,216 @@
+package com.customersupport.events;
+
+import com.customersupport.instrumentation.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event pipeline: publish() puts the event into a bounded ring buffer and returns, and consumer threads
+ * hand the events to the subscribed listeners in batches. Follow-on work (logging, notifications, metrics) thereby
+ * moves off the request path.
+ *
+ * - The bus has a number of partitions, each a lock-free ring buffer with many producers and a single consumer thread.
+ *   The partition is chosen by issue ID, so all events of one issue are delivered in the order they were published.
+ *   IssueService publishes while it still holds the lock of the issue's type, which makes that the order in which
+ *   the transitions actually happened.
+ * - When a ring is full, the BackpressurePolicy decides: BLOCK makes the publisher wait for room, DROP discards the
+ *   event and counts it.
+ * - A listener that throws is logged and doesn't stop the other listeners or the consumer thread.
+ *   With BLOCK, a listener must not wait for IssueService (whose publishing thread may be waiting for the listener).
+ */
+public final class IssueEventBus implements IssueEventPublisher, Closeable {
+    private static final Logger LOG = Logger.get(IssueEventBus.class);
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final EventRing[] partitions;
+    private final Thread[] consumers;
+    private final BackpressurePolicy backpressure;
+    private final List<IssueEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    public IssueEventBus(int partitionCount, int capacityPerPartition, BackpressurePolicy backpressure) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("An event bus needs at least one partition.");
+        }
+        this.backpressure = backpressure;
+        this.partitions = new EventRing[partitionCount];
+        this.consumers = new Thread[partitionCount];
+        for (int p = 0; p < partitionCount; p++) {
+            partitions[p] = new EventRing(capacityPerPartition);
+            EventRing ring = partitions[p];
+            consumers[p] = new Thread(() -> consume(ring), "issue-events-" + p);
+            consumers[p].setDaemon(true);
+            consumers[p].start();
+        }
+    }
+
+    public void subscribe(IssueEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void publish(IssueEvent event) {
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed.");
+        }
+        EventRing ring = partitions[Math.floorMod(event.getIssueId().hashCode(), partitions.length)];
+        if (!ring.offer(event)) {
+            if (backpressure == BackpressurePolicy.DROP) {
+                dropped.incrementAndGet();
+                return;
+            }
+            // BLOCK: back off until the consumer has made room
+            int attempts = 0;
+            while (!ring.offer(event)) {
+                if (++attempts < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(10_000);
+                }
+            }
+        }
+        published.incrementAndGet();
+        ring.wakeConsumer();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Events published but not delivered yet, over all partitions
+    public long getBacklog() {
+        long backlog = 0;
+        for (EventRing ring : partitions) {
+            backlog += ring.size();
+        }
+        return backlog;
+    }
+
+    // Stops accepting events, delivers everything already published and stops the consumer threads.
+    // Meant to be called once publishers have stopped; an event published at the same moment may be lost.
+    @Override
+    public void close() {
+        closed = true;
+        for (EventRing ring : partitions) {
+            ring.wakeConsumer();
+        }
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void consume(EventRing ring) {
+        ring.consumer = Thread.currentThread();
+        List<IssueEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            IssueEvent event;
+            while (batch.size() < MAX_BATCH && (event = ring.poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                batch.clear();
+                continue;
+            }
+            if (closed && ring.size() == 0) {
+                return;
+            }
+            ring.consumerParked = true;
+            if (ring.size() == 0 && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS); // Timed, so a missed wake-up only costs a millisecond
+            }
+            ring.consumerParked = false;
+        }
+    }
+
+    private void deliver(List<IssueEvent> batch) {
+        for (IssueEventListener listener : listeners) {
+            try {
+                for (IssueEvent event : batch) {
+                    listener.onEvent(event);
+                }
+                listener.onEndOfBatch();
+            } catch (RuntimeException e) {
+                LOG.error("Event listener {} failed.", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Bounded multi-producer / single-consumer ring buffer.
+     * Producers claim a position with a CAS on 'tail' and then fill the slot; the consumer reads slots in position
+     * order and treats an unfilled slot as "not there yet", which keeps the per-partition order intact.
+     */
+    private static final class EventRing {
+        private final AtomicReferenceArray<IssueEvent> slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong(); // Next position to be claimed by a producer
+        private final AtomicLong head = new AtomicLong(); // Next position to be read; only the consumer writes it
+
+        private volatile Thread consumer;
+        private volatile boolean consumerParked;
+
+        private EventRing(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // Round up to a power of two
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        boolean offer(IssueEvent event) {
+            while (true) {
+                long position = tail.get();
+                if (position - head.get() >= slots.length()) {
+                    return false; // Full
+                }
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set((int) (position & mask), event);
+                    return true;
+                }
+            }
+        }
+
+        // Consumer thread only
+        IssueEvent poll() {
+            long position = head.get();
+            int index = (int) (position & mask);
+            IssueEvent event = slots.get(index);
+            if (event == null) {
+                return null; // Empty, or claimed by a producer that hasn't filled the slot yet
+            }
+            slots.set(index, null);
+            head.lazySet(position + 1); // The slot is cleared before producers can see it as free
+            return event;
+        }
+
+        long size() {
+            return tail.get() - head.get();
+        }
+
+        void wakeConsumer() {
+            Thread thread = consumer;
+            if (consumerParked && thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.customersupport.events;
+
+// Receives lifecycle events. With IssueEventBus, this runs on a consumer thread, not on the thread that made the change.
+public interface IssueEventListener {
+    void onEvent(IssueEvent event);
+
+    // Called after each batch of events a consumer thread has handed out, e.g. to flush buffered output
+    default void onEndOfBatch() {
+    }
+}
@@ -0,0 +1,16 @@
+package com.customersupport.events;
+
+// Where IssueService sends its lifecycle events
+public interface IssueEventPublisher {
+    IssueEventPublisher NO_OP = event -> { };
+
+    void publish(IssueEvent event);
+
+    // Calls the listener right away on the publishing thread (no queueing, no extra threads)
+    static IssueEventPublisher direct(IssueEventListener listener) {
+        return event -> {
+            listener.onEvent(event);
+            listener.onEndOfBatch();
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.customersupport.events;
+
+// The lifecycle transitions that IssueService publishes
+public enum IssueEventType {
+    ISSUE_CREATED,  // New OPEN issue
+    ISSUE_ASSIGNED, // Issue got an agent and is IN_PROGRESS
+    ISSUE_WAITING,  // No agent was free, the issue was put on its type's waiting queue
+    ISSUE_UPDATED,  // Status and/or resolution changed through updateIssue()
+    ISSUE_RESOLVED, // Issue is RESOLVED
+    AGENT_FREED,    // The agent of a resolved issue is free again (issueId is the issue they just resolved)
+    ISSUE_CLOSED,   // A RESOLVED issue is CLOSED, after its grace period or through closeIssue()
+    SLA_BREACHED,   // The issue is still not picked up at its SLA deadline
+    ISSUE_ESCALATED, // The issue has been IN_PROGRESS for too long without any change
+    ISSUE_COALESCED  // New issue linked to an open issue of the same transaction and customer, instead of queued
+}
@@ -0,0 +1,44 @@
+package com.customersupport.events;
+
+import com.customersupport.instrumentation.Logger;
+
+// Logs the lifecycle messages that IssueService used to print itself
+public class LoggingIssueEventListener implements IssueEventListener {
+    private static final Logger LOG = Logger.get(LoggingIssueEventListener.class);
+
+    @Override
+    public void onEvent(IssueEvent event) {
+        switch (event.getEventType()) {
+            case ISSUE_CREATED:
+                LOG.info(">>> Issue {} created.", event.getIssueId());
+                break;
+            case ISSUE_ASSIGNED:
+                LOG.info(">>> Issue {} assigned to agent {}.", event.getIssueId(), event.getAgentId());
+                break;
+            case ISSUE_WAITING:
+                LOG.info("Issue {} could not be assigned immediately. It's now in WAITING state.", event.getIssueId());
+                break;
+            case ISSUE_UPDATED:
+                LOG.info(">>> Issue {} status updated to {} and/or resolution updated.", event.getIssueId(), event.getStatus());
+                break;
+            case ISSUE_RESOLVED:
+                LOG.info(">>> Issue {} marked RESOLVED.", event.getIssueId());
+                break;
+            case AGENT_FREED:
+                LOG.info("Agent {} is free again after {}.", event.getAgentId(), event.getIssueId());
+                break;
+            case ISSUE_CLOSED:
+                LOG.info(">>> Issue {} CLOSED.", event.getIssueId());
+                break;
+            case SLA_BREACHED:
+                LOG.warn("Issue {} missed its SLA: still {} at its deadline.", event.getIssueId(), event.getStatus());
+                break;
+            case ISSUE_ESCALATED:
+                LOG.warn("Issue {} escalated: no progress by agent {}.", event.getIssueId(), event.getAgentId());
+                break;
+            case ISSUE_COALESCED:
+                LOG.info(">>> Issue {} linked to an open issue of the same transaction.", event.getIssueId());
+                break;
+        }
+    }
+}
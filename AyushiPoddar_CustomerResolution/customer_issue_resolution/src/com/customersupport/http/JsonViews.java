@@ -0,0 +1,100 @@
+package com.customersupport.http;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+import com.customersupport.model.AgentWorkStats;
+import com.customersupport.model.Issue;
+import com.customersupport.repository.IssuePage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// How issues and agents look on the wire; field names follow the getters, enums are written by name
+final class JsonViews {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+
+    private JsonViews() {
+    }
+
+    static Map<String, Object> issue(Issue issue) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", issue.getId());
+        view.put("transactionId", issue.getTransactionId());
+        view.put("type", issue.getType());
+        view.put("subject", issue.getSubject());
+        view.put("description", issue.getDescription());
+        view.put("customerEmail", issue.getCustomerEmail());
+        view.put("priority", issue.getPriority());
+        view.put("status", issue.getStatus());
+        view.put("resolution", issue.getResolution());
+        view.put("assignedAgentId", issue.getAssignedAgentId());
+        view.put("createdAt", issue.getCreatedAt());
+        view.put("updatedAt", issue.getUpdatedAt());
+        view.put("slaDeadline", issue.getSlaDeadline());
+        view.put("duplicateOf", issue.getDuplicateOfId());
+        return view;
+    }
+
+    static List<Map<String, Object>> issues(List<Issue> issues) {
+        List<Map<String, Object>> views = new ArrayList<>(issues.size());
+        for (Issue issue : issues) {
+            views.add(issue(issue));
+        }
+        return views;
+    }
+
+    static Map<String, Object> issuePage(IssuePage page) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("issues", issues(page.getIssues()));
+        view.put("nextCursor", page.getNextCursor());
+        return view;
+    }
+
+    // Null stays null, e.g. for "no agent was assigned"
+    static Map<String, Object> agent(Agent agent) {
+        if (agent == null) {
+            return null;
+        }
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("agentId", agent.getAgentId());
+        view.put("email", agent.getEmail());
+        view.put("name", agent.getName());
+        view.put("expertise", new ArrayList<>(agent.getExpertiseTypes())); // An EnumSet, so in enum order
+        view.put("status", agent.getStatus());
+        view.put("currentIssueId", agent.getCurrentAssignedIssueId()); // The oldest of the active issues
+        view.put("activeIssueIds", agent.getActiveIssueIds());
+        view.put("capacity", agent.getCapacity());
+        return view;
+    }
+
+    static Map<String, Object> workStats(AgentWorkStats.Snapshot stats) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("resolved", stats.getResolvedCount());
+        view.put("meanHandlingMillis", Math.round(stats.getMeanHandlingMillis()));
+        view.put("p50HandlingMillis", stats.getHandlingMillisAtPercentile(50));
+        view.put("p90HandlingMillis", stats.getHandlingMillisAtPercentile(90));
+        view.put("p99HandlingMillis", stats.getHandlingMillisAtPercentile(99));
+        view.put("maxHandlingMillis", stats.getMaxHandlingMillis());
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (IssueType type : ISSUE_TYPES) {
+            if (stats.getResolvedCount(type) > 0) {
+                Map<String, Object> typeView = new LinkedHashMap<>();
+                typeView.put("resolved", stats.getResolvedCount(type));
+                typeView.put("meanHandlingMillis", Math.round(stats.getMeanHandlingMillis(type)));
+                byType.put(type.name(), typeView);
+            }
+        }
+        view.put("byType", byType);
+        return view;
+    }
+
+    static List<Map<String, Object>> agents(List<Agent> agents) {
+        List<Map<String, Object>> views = new ArrayList<>(agents.size());
+        for (Agent agent : agents) {
+            views.add(agent(agent));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,71 @@
+package com.customersupport.http;
+
+import com.customersupport.Strategy.AssignmentStrategy;
+import com.customersupport.controller.AgentController;
+import com.customersupport.controller.IssueController;
+import com.customersupport.events.BackpressurePolicy;
+import com.customersupport.events.IssueEventBus;
+import com.customersupport.instrumentation.IssueMetrics;
+import com.customersupport.instrumentation.MetricsHttpServer;
+import com.customersupport.instrumentation.MetricsRegistry;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.InMemoryIssueRepository;
+import com.customersupport.scheduler.TimingWheel;
+import com.customersupport.service.AgentService;
+import com.customersupport.service.IssueService;
+import com.customersupport.service.IssueTimerSettings;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Runs the HTTP front end until the process is stopped.
+ * Options: --port=N (default 8080, 0 picks a free one) and --metrics-port=N to also serve the metrics on localhost.
+ */
+public class ServerMain {
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int metricsPort = -1;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--metrics-port=")) {
+                metricsPort = Integer.parseInt(arg.substring("--metrics-port=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option '" + arg + "' (--port=N, --metrics-port=N).");
+            }
+        }
+
+        // Same wiring as Main, except that lifecycle events only feed the metrics: one log line per event
+        //would be most of the work under load
+        IssueEventBus eventBus = new IssueEventBus(2, 1024, BackpressurePolicy.BLOCK);
+        MetricsRegistry metrics = new MetricsRegistry();
+        IssueMetrics issueMetrics = new IssueMetrics(metrics);
+        eventBus.subscribe(issueMetrics);
+        InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
+        IssueService issueService = new IssueService(new InMemoryIssueRepository(), agentRepo, new AssignmentStrategy(), eventBus);
+        issueMetrics.watchWaitingQueues(issueService);
+        // SLA breaches, stale issues and auto-close, on a wheel with 100 ms ticks
+        TimingWheel timers = new TimingWheel(100);
+        issueService.startTimers(timers, IssueTimerSettings.DEFAULTS);
+        AgentService agentService = new AgentService(agentRepo);
+
+        SupportHttpServer server = new SupportHttpServer(new IssueController(issueService), new AgentController(agentService),
+                new InetSocketAddress(port));
+        MetricsHttpServer metricsServer = metricsPort >= 0 ? new MetricsHttpServer(metrics, metricsPort) : null;
+        System.out.println("Serving on http://localhost:" + server.getPort() + "/issues and /agents");
+        if (metricsServer != null) {
+            System.out.println("Metrics at http://localhost:" + metricsServer.getPort() + "/metrics");
+        }
+
+        // The server's dispatcher thread keeps the JVM alive; this runs on Ctrl-C / SIGTERM
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            timers.close();
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            eventBus.close();
+        }));
+    }
+}
@@ -0,0 +1,427 @@
+package com.customersupport.http;
+
+import com.customersupport.controller.AgentController;
+import com.customersupport.controller.IssueController;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.exceptions.AgentBusyException;
+import com.customersupport.exceptions.AgentNotFoundException;
+import com.customersupport.exceptions.InvalidFilterException;
+import com.customersupport.exceptions.InvalidIssueStatusTransitionException;
+import com.customersupport.exceptions.IssueNotFoundException;
+import com.customersupport.exceptions.NoAgentAvailableException;
+import com.customersupport.exceptions.NotFoundException;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import com.customersupport.model.IssueRequest;
+import com.customersupport.repository.IssueOrder;
+import com.customersupport.repository.IssuePage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON front end over IssueController and AgentController, on the JDK's built-in HttpServer.
+ * Every request runs on its own virtual thread, so a request that waits (on a type lock, or on the disk with a
+ * durable store) costs a parked virtual thread rather than a platform thread.
+ * <pre>
+ *   GET  /agents                      all agents
+ *   POST /agents                      {"email", "name", "expertise": [types], "capacity"} adds an agent who works on up
+ *                                     to capacity issues at a time (default 1)
+ *   GET  /agents/history?offset=&limit=        a page of every agent's work history (default 0 and 100)
+ *   GET  /agents/stats                resolved count and handling times of every agent
+ *   GET  /agents/{id}                 one agent
+ *   GET  /agents/{id}/history?offset=&limit=   a page of one agent's work history
+ *   GET  /agents/{id}/stats           one agent's resolved count and handling times
+ *   GET  /issues?email=&type=&issueId=&status=   issues matching the filter
+ *   GET  /issues?text=(&filter)       the best 100 matches of a full-text search over subject and description
+ *   GET  /issues/page?(filter)&order=id|created_at&limit=&cursor=   {"issues", "nextCursor"}: a page of the same,
+ *                                     resumed with the nextCursor of the previous page (null on the last page)
+ *   POST /issues                      {"transactionId", "type", "subject", "description", "email", "priority"}
+ *   POST /issues/batch                [issue, ...] creates a batch of issues
+ *   POST /issues/assign-pending       assigns every pending issue in one pass
+ *   POST /issues/{id}/assign          {"issue", "agent"}; agent is null if the issue is now WAITING
+ *   POST /issues/{id}/update          {"status", "resolution"}
+ *   POST /issues/{id}/resolve         {"resolution"}; returns {"issue", "agent"}, the agent as it is after picking
+ *                                     up the next waiting issue (if any)
+ *   POST /issues/{id}/close           closes a RESOLVED issue before its auto-close timer does
+ * </pre>
+ * For the shard router (see cluster.ShardRouter), a node also lends agents to the other nodes:
+ * <pre>
+ *   POST /cluster/lend                {"type", "issueId"} claims a free agent for another node's issue (409 if none)
+ *   POST /cluster/issues/{id}/assign-lent    {"agentId"} assigns the issue to an agent lent by another node
+ *   POST /cluster/agents/{id}/return  {"issueId", "type", "handlingMillis"} takes a lent agent back after resolving
+ *                                     the issue; {"issueId"} alone if the issue didn't need them
+ *   GET  /cluster/lent                {agentId: [issueId, ...]} the agents that are lent out, with the other nodes'
+ *                                     issues they are lent for
+ * </pre>
+ * Errors come back as {"error": message} with 400 (bad input), 404 (unknown issue/agent), 409 (conflicting state)
+ * or 500.
+ */
+public class SupportHttpServer implements Closeable {
+    private static final Logger LOG = Logger.get(SupportHttpServer.class);
+    private static final int BACKLOG = 1024; // Pending connections, so a burst of clients isn't refused
+    private static final int DEFAULT_PAGE_SIZE = 100; // History entries per agent, or issues per page, unless ?limit= says otherwise
+
+    // Settings of the JDK server, read once when the first server is created; explicit -D values win.
+    // The server writes the headers and the body of a response separately, so with Nagle's algorithm on, the body
+    //waits for the client's delayed ACK (~40 ms) on every keep-alive request. Beyond 200 idle keep-alive connections
+    //(the default) every further client would have to reconnect for each request.
+    static {
+        setDefault("sun.net.httpserver.nodelay", "true");
+        setDefault("sun.net.httpserver.maxIdleConnections", Integer.toString(BACKLOG));
+    }
+
+    private final IssueController issueController;
+    private final AgentController agentController;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Port 0 picks a free port, see getPort()
+    public SupportHttpServer(IssueController issueController, AgentController agentController, InetSocketAddress address)
+            throws IOException {
+        this.issueController = issueController;
+        this.agentController = agentController;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/issues", exchange -> handle(exchange, this::routeIssues));
+        server.createContext("/agents", exchange -> handle(exchange, this::routeAgents));
+        server.createContext("/cluster", exchange -> handle(exchange, this::routeCluster));
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Routing ---
+
+    private interface Route {
+        Response route(String method, List<String> path, HttpExchange exchange) throws IOException;
+    }
+
+    private Response routeIssues(String method, List<String> path, HttpExchange exchange) throws IOException {
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                return Response.ok(JsonViews.issues(issueController.getIssues(queryParameters(exchange))));
+            }
+            if (method.equals("POST")) {
+                Issue issue = createIssue(Json.parseObject(body(exchange)));
+                return new Response(201, JsonViews.issue(issue));
+            }
+        } else if (path.size() == 2 && method.equals("GET") && path.get(1).equals("page")) {
+            Map<String, String> query = queryParameters(exchange);
+            String order = query.get("order");
+            IssuePage page = issueController.getIssuesPage(query,
+                    order == null || order.isBlank() ? IssueOrder.ID : parseEnum(IssueOrder.class, order, "order"),
+                    query.get("cursor"), intParameter(query, "limit", DEFAULT_PAGE_SIZE));
+            return Response.ok(JsonViews.issuePage(page));
+        } else if (path.size() == 2 && method.equals("POST")) {
+            if (path.get(1).equals("batch")) {
+                return new Response(201, JsonViews.issues(issueController.createIssues(issueRequests(body(exchange)))));
+            }
+            if (path.get(1).equals("assign-pending")) {
+                return Response.ok(JsonViews.issues(issueController.assignPending()));
+            }
+        } else if (path.size() == 3 && method.equals("POST")) {
+            String issueId = path.get(1);
+            switch (path.get(2)) {
+                case "assign": {
+                    Agent agent = issueController.assignIssue(issueId);
+                    return Response.ok(issueAndAgent(issueId, agent));
+                }
+                case "update": {
+                    Map<String, Object> request = Json.parseObject(body(exchange));
+                    String status = optionalString(request, "status");
+                    issueController.updateIssue(issueId, status == null ? null : parseEnum(IssueStatus.class, status, "status"),
+                            optionalString(request, "resolution"));
+                    return Response.ok(JsonViews.issue(findIssue(issueId)));
+                }
+                case "resolve": {
+                    Map<String, Object> request = Json.parseObject(body(exchange));
+                    issueController.resolveIssue(issueId, optionalString(request, "resolution"));
+                    Issue issue = findIssue(issueId);
+                    //An agent lent by another node isn't known here; the shard router fills them in
+                    Agent agent = issue.getAssignedAgentId() == null ? null : findAgent(issue.getAssignedAgentId());
+                    return Response.ok(issueAndAgent(issueId, agent));
+                }
+                case "close":
+                    issueController.closeIssue(issueId);
+                    return Response.ok(JsonViews.issue(findIssue(issueId)));
+                default:
+                    break;
+            }
+        }
+        return Response.notFound(exchange);
+    }
+
+    private Response routeAgents(String method, List<String> path, HttpExchange exchange) throws IOException {
+        if (path.size() == 1) {
+            if (method.equals("GET")) {
+                return Response.ok(JsonViews.agents(agentController.listAllAgents()));
+            }
+            if (method.equals("POST")) {
+                Map<String, Object> request = Json.parseObject(body(exchange));
+                List<IssueType> expertise = new ArrayList<>();
+                Object types = request.get("expertise");
+                if (!(types instanceof List)) {
+                    throw new IllegalArgumentException("'expertise' must be a list of issue types.");
+                }
+                for (Object type : (List<?>) types) {
+                    expertise.add(parseEnum(IssueType.class, String.valueOf(type), "expertise"));
+                }
+                Object capacity = request.getOrDefault("capacity", Agent.DEFAULT_CAPACITY);
+                if (!(capacity instanceof Number)) {
+                    throw new IllegalArgumentException("'capacity' must be a number.");
+                }
+                Agent agent = agentController.addAgent(optionalString(request, "email"), optionalString(request, "name"), expertise,
+                        ((Number) capacity).intValue());
+                return new Response(201, JsonViews.agent(agent));
+            }
+        } else if (path.size() == 2 && method.equals("GET")) {
+            if (path.get(1).equals("history")) {
+                Map<String, String> page = queryParameters(exchange);
+                return Response.ok(issueController.viewAgentsWorkHistory(intParameter(page, "offset", 0), intParameter(page, "limit", DEFAULT_PAGE_SIZE)));
+            }
+            if (path.get(1).equals("stats")) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                issueController.viewAgentsWorkStats().forEach((agentId, snapshot) -> stats.put(agentId, JsonViews.workStats(snapshot)));
+                return Response.ok(stats);
+            }
+            return Response.ok(JsonViews.agent(agentController.getAgentById(path.get(1))));
+        } else if (path.size() == 3 && method.equals("GET")) {
+            String agentId = path.get(1);
+            if (path.get(2).equals("history")) {
+                Map<String, String> page = queryParameters(exchange);
+                return Response.ok(issueController.viewAgentWorkHistory(agentId, intParameter(page, "offset", 0), intParameter(page, "limit", DEFAULT_PAGE_SIZE)));
+            }
+            if (path.get(2).equals("stats")) {
+                return Response.ok(JsonViews.workStats(issueController.viewAgentWorkStats(agentId)));
+            }
+        }
+        return Response.notFound(exchange);
+    }
+
+    private Response routeCluster(String method, List<String> path, HttpExchange exchange) throws IOException {
+        if (method.equals("GET") && path.size() == 2 && path.get(1).equals("lent")) {
+            return Response.ok(issueController.viewLentAgents());
+        }
+        if (!method.equals("POST")) {
+            return Response.notFound(exchange);
+        }
+        if (path.size() == 2 && path.get(1).equals("lend")) {
+            Map<String, Object> request = Json.parseObject(body(exchange));
+            IssueType type = parseEnum(IssueType.class, String.valueOf(request.get("type")), "type");
+            return Response.ok(JsonViews.agent(issueController.lendAgent(type, requiredString(request, "issueId"))));
+        }
+        if (path.size() == 4 && path.get(1).equals("issues") && path.get(3).equals("assign-lent")) {
+            Map<String, Object> request = Json.parseObject(body(exchange));
+            return Response.ok(JsonViews.issue(issueController.assignLentAgent(path.get(2), requiredString(request, "agentId"))));
+        }
+        if (path.size() == 4 && path.get(1).equals("agents") && path.get(3).equals("return")) {
+            Map<String, Object> request = Json.parseObject(body(exchange));
+            String issueId = requiredString(request, "issueId");
+            if (request.get("type") == null) {
+                return Response.ok(JsonViews.agent(issueController.returnUnusedAgent(path.get(2), issueId)));
+            }
+            IssueType type = parseEnum(IssueType.class, String.valueOf(request.get("type")), "type");
+            Object handlingMillis = request.get("handlingMillis");
+            if (!(handlingMillis instanceof Number)) {
+                throw new IllegalArgumentException("'handlingMillis' must be a number.");
+            }
+            return Response.ok(JsonViews.agent(issueController.returnLentAgent(path.get(2), issueId, type, ((Number) handlingMillis).longValue())));
+        }
+        return Response.notFound(exchange);
+    }
+
+    // --- Request handling ---
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try (exchange) {
+            Response response;
+            try {
+                response = route.route(exchange.getRequestMethod(), pathSegments(exchange), exchange);
+            } catch (IssueNotFoundException | AgentNotFoundException | NotFoundException e) {
+                response = Response.error(404, e.getMessage());
+            } catch (IllegalArgumentException | InvalidFilterException | InvalidIssueStatusTransitionException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (AgentBusyException | NoAgentAvailableException | IllegalStateException e) {
+                response = Response.error(409, e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.error("Request {} failed.", exchange.getRequestURI(), e);
+                response = Response.error(500, "Internal error.");
+            }
+            byte[] bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private Issue createIssue(Map<String, Object> request) {
+        return issueController.createIssue(optionalString(request, "transactionId"), optionalString(request, "type"),
+                optionalString(request, "subject"), optionalString(request, "description"),
+                optionalString(request, "email"), optionalString(request, "priority"));
+    }
+
+    private static List<IssueRequest> issueRequests(String body) {
+        Object value = Json.parse(body);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a JSON array of issues.");
+        }
+        List<IssueRequest> requests = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (!(element instanceof Map)) {
+                throw new IllegalArgumentException("Expected a JSON array of issues.");
+            }
+            Map<?, ?> request = (Map<?, ?>) element;
+            requests.add(new IssueRequest(optionalString(request, "transactionId"), optionalString(request, "type"),
+                    optionalString(request, "subject"), optionalString(request, "description"),
+                    optionalString(request, "email"), optionalString(request, "priority")));
+        }
+        return requests;
+    }
+
+    private Issue findIssue(String issueId) {
+        Map<String, String> filter = new HashMap<>();
+        filter.put("issueId", issueId);
+        List<Issue> issues = issueController.getIssues(filter);
+        if (issues.isEmpty()) {
+            throw new IssueNotFoundException("Issue with ID '" + issueId + "' not found.");
+        }
+        return issues.get(0);
+    }
+
+    private Agent findAgent(String agentId) {
+        try {
+            return agentController.getAgentById(agentId);
+        } catch (AgentNotFoundException e) {
+            return null;
+        }
+    }
+
+    private Map<String, Object> issueAndAgent(String issueId, Agent agent) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("issue", JsonViews.issue(findIssue(issueId)));
+        result.put("agent", JsonViews.agent(agent));
+        return result;
+    }
+
+    private static String optionalString(Map<?, ?> request, String field) {
+        Object value = request.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    private static String requiredString(Map<?, ?> request, String field) {
+        String value = optionalString(request, field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("'" + field + "' is required.");
+        }
+        return value;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String field) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase().replace(" ", "_"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    // "/issues/I01/assign" gives [issues, I01, assign]
+    private static List<String> pathSegments(HttpExchange exchange) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : exchange.getRequestURI().getPath().split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + name + "' must be a number, got '" + value + "'.");
+        }
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static final class Response {
+        final int status;
+        final Object body;
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(Object body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("error", message);
+            return new Response(status, body);
+        }
+
+        static Response notFound(HttpExchange exchange) {
+            return error(404, "No route for " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    // Stops accepting requests, gives running ones a second to finish
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+}
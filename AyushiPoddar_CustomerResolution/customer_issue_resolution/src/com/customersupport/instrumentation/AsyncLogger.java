@@ -0,0 +1,176 @@
+package com.customersupport.instrumentation;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logging backend that keeps console I/O and string formatting off the calling thread.
+ *
+ * Log calls copy their pattern and up to three arguments into a pre-allocated slot of a ring buffer and return;
+ * a single writer thread formats the messages ("{}" placeholders are replaced by the arguments, in order) and
+ * writes them out in batches. Nothing is allocated per message on the calling side apart from boxing of primitive
+ * arguments. If the ring is full the message is dropped and counted rather than making the caller wait.
+ * An argument left over after the placeholders are filled that is a Throwable is printed with its stack trace on
+ * the following lines.
+ *
+ * Each line looks like: 14:03:07.125 INFO  [IssueService] message
+ */
+public final class AsyncLogger implements Closeable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Next position to be claimed by a caller
+    private final AtomicLong head = new AtomicLong(); // Next position to be written out; only the writer thread moves it
+
+    private final PrintStream out;
+    private final LogLevel minLevel;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncLogger(PrintStream out, LogLevel minLevel, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // Round up to a power of two
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.minLevel = minLevel;
+        this.writer = new Thread(this::writeLoop, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    void log(LogLevel level, String loggerName, String pattern, Object arg0, Object arg1, Object arg2) {
+        if (closed || !isEnabled(level)) {
+            return;
+        }
+        long position;
+        do {
+            position = tail.get();
+            if (position - head.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        Slot slot = slots[(int) (position & mask)];
+        slot.timeMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.loggerName = loggerName;
+        slot.pattern = pattern;
+        slot.arg0 = arg0;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.sequence = position; // Volatile write, publishes the fields above to the writer thread
+    }
+
+    // Writes out everything already logged and stops the writer thread
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(8192);
+        ZoneId zone = ZoneId.systemDefault();
+        while (true) {
+            long position = head.get();
+            Slot slot;
+            while ((slot = slots[(int) (position & mask)]).sequence == position) {
+                format(batch, slot, zone);
+                slot.clear();
+                position++;
+                head.lazySet(position); // The slot is cleared before callers can claim it again
+                if (batch.length() > 64 * 1024) {
+                    break;
+                }
+            }
+            if (batch.length() > 0) {
+                out.print(batch);
+                out.flush();
+                batch.setLength(0);
+                continue;
+            }
+            if (closed && tail.get() == head.get()) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private static void format(StringBuilder line, Slot slot, ZoneId zone) {
+        line.append(LocalTime.ofInstant(Instant.ofEpochMilli(slot.timeMillis), zone)).append(' ');
+        String level = slot.level.name();
+        line.append(level);
+        for (int i = level.length(); i < 6; i++) {
+            line.append(' ');
+        }
+        line.append('[').append(slot.loggerName).append("] ");
+
+        String pattern = slot.pattern;
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while ((placeholder = pattern.indexOf("{}", from)) >= 0 && argIndex < 3) {
+            line.append(pattern, from, placeholder);
+            line.append(argIndex == 0 ? slot.arg0 : argIndex == 1 ? slot.arg1 : slot.arg2);
+            argIndex++;
+            from = placeholder + 2;
+        }
+        line.append(pattern, from, pattern.length()).append(System.lineSeparator());
+
+        //The first argument that no placeholder took is the cause, if it is a Throwable
+        Object extra = argIndex == 0 ? slot.arg0 : argIndex == 1 ? slot.arg1 : argIndex == 2 ? slot.arg2 : null;
+        if (extra instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) extra).printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+    }
+
+    // A reusable log record; 'sequence' tells the writer which ring position the slot currently holds
+    private static final class Slot {
+        private volatile long sequence = -1;
+        private long timeMillis;
+        private LogLevel level;
+        private String loggerName;
+        private String pattern;
+        private Object arg0;
+        private Object arg1;
+        private Object arg2;
+
+        private void clear() {
+            loggerName = null;
+            pattern = null;
+            arg0 = null;
+            arg1 = null;
+            arg2 = null;
+        }
+    }
+}
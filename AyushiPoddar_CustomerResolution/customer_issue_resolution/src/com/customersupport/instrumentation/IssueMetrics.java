@@ -0,0 +1,134 @@
+package com.customersupport.instrumentation;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.events.IssueEvent;
+import com.customersupport.events.IssueEventListener;
+import com.customersupport.events.IssueEventType;
+import com.customersupport.service.IssueService;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns issue lifecycle events into metrics. Subscribe it to the IssueEventBus (or pass it to
+ * IssueEventPublisher.direct()) and it records, using the timestamps carried by the events:
+ *
+ * - issue.time_to_assignment: created -> first assigned
+ * - issue.queue_wait: put on a waiting queue -> assigned, also per IssueType (issue.queue_wait.<TYPE>)
+ * - issue.resolution_time: assigned -> resolved
+ * - issues.created / assigned / waitlisted / updated / resolved / closed / sla_breached / escalated / coalesced and
+ *   agents.freed, in total and per IssueType (issues.coalesced is the load that duplicate detection kept off the
+ *   agents)
+ *
+ * watchWaitingQueues() adds a waitlist.depth gauge per IssueType.
+ */
+public class IssueMetrics implements IssueEventListener {
+    private final MetricsRegistry registry;
+    private final LatencyHistogram timeToAssignment;
+    private final LatencyHistogram queueWait;
+    private final Map<IssueType, LatencyHistogram> queueWaitByType = new EnumMap<>(IssueType.class);
+    private final LatencyHistogram resolutionTime;
+    private final Map<IssueEventType, Counter> totals = new EnumMap<>(IssueEventType.class);
+    private final Map<IssueEventType, Map<IssueType, Counter>> perType = new EnumMap<>(IssueEventType.class);
+
+    // Timestamps of issues that are not resolved yet. The events of one issue arrive in order and one at a time,
+    // so an entry is never updated by two threads at once.
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    public IssueMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.timeToAssignment = registry.histogram("issue.time_to_assignment");
+        this.queueWait = registry.histogram("issue.queue_wait");
+        this.resolutionTime = registry.histogram("issue.resolution_time");
+        for (IssueType issueType : IssueType.values()) {
+            queueWaitByType.put(issueType, registry.histogram("issue.queue_wait." + issueType));
+        }
+        for (IssueEventType eventType : IssueEventType.values()) {
+            String name = counterName(eventType);
+            totals.put(eventType, registry.counter(name));
+            Map<IssueType, Counter> byType = new EnumMap<>(IssueType.class);
+            for (IssueType issueType : IssueType.values()) {
+                byType.put(issueType, registry.counter(name + "." + issueType));
+            }
+            perType.put(eventType, byType);
+        }
+    }
+
+    // Registers the waitlist.depth.<TYPE> gauges for the given service's waiting queues
+    public void watchWaitingQueues(IssueService issueService) {
+        for (IssueType type : IssueType.values()) {
+            registry.gauge("waitlist.depth." + type, () -> issueService.getWaitingQueueDepth(type));
+        }
+    }
+
+    @Override
+    public void onEvent(IssueEvent event) {
+        totals.get(event.getEventType()).increment();
+        perType.get(event.getEventType()).get(event.getIssueType()).increment();
+
+        long now = event.getTimestampNanos();
+        switch (event.getEventType()) {
+            case ISSUE_CREATED:
+                timelines.put(event.getIssueId(), new Timeline(now));
+                break;
+            case ISSUE_WAITING:
+                timeline(event).waitingSince = now;
+                break;
+            case ISSUE_ASSIGNED: {
+                Timeline timeline = timeline(event);
+                if (timeline.createdAt != 0 && timeline.assignedAt == 0) {
+                    timeToAssignment.record(now - timeline.createdAt);
+                }
+                if (timeline.waitingSince != 0) {
+                    queueWait.record(now - timeline.waitingSince);
+                    queueWaitByType.get(event.getIssueType()).record(now - timeline.waitingSince);
+                    timeline.waitingSince = 0;
+                }
+                timeline.assignedAt = now;
+                break;
+            }
+            case ISSUE_RESOLVED: {
+                Timeline timeline = timelines.remove(event.getIssueId());
+                if (timeline != null && timeline.assignedAt != 0) {
+                    resolutionTime.record(now - timeline.assignedAt);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    // Issues created before the metrics were attached (e.g. recovered from a durable store) get a timeline without createdAt
+    private Timeline timeline(IssueEvent event) {
+        return timelines.computeIfAbsent(event.getIssueId(), id -> new Timeline(0));
+    }
+
+    private static String counterName(IssueEventType eventType) {
+        switch (eventType) {
+            case ISSUE_CREATED: return "issues.created";
+            case ISSUE_ASSIGNED: return "issues.assigned";
+            case ISSUE_WAITING: return "issues.waitlisted";
+            case ISSUE_UPDATED: return "issues.updated";
+            case ISSUE_RESOLVED: return "issues.resolved";
+            case AGENT_FREED: return "agents.freed";
+            case ISSUE_CLOSED: return "issues.closed";
+            case SLA_BREACHED: return "issues.sla_breached";
+            case ISSUE_ESCALATED: return "issues.escalated";
+            case ISSUE_COALESCED: return "issues.coalesced";
+            default: return eventType.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class Timeline {
+        private final long createdAt;
+        private long waitingSince;
+        private long assignedAt;
+
+        private Timeline(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.customersupport.instrumentation;
+
+public enum LogLevel {
+    DEBUG, // Per-attempt details of the hot paths, off by default
+    INFO,  // Lifecycle messages
+    WARN,  // Input that was corrected or ignored
+    ERROR  // Something failed in the background
+}
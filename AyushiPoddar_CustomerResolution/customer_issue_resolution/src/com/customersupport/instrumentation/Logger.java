@@ -0,0 +1,72 @@
+package com.customersupport.instrumentation;
+
+/**
+ * Named logger used by the services and strategies instead of System.out.
+ * All loggers write through one shared AsyncLogger, which is a console logger at INFO level unless another one is
+ * installed with setBackend(). Messages use "{}" placeholders, which are only filled in on the logger's own thread.
+ * A Throwable passed after the arguments that fill the placeholders is written out with its stack trace, e.g.
+ * LOG.error("Snapshot of {} failed.", path, e).
+ */
+public final class Logger {
+    private static volatile AsyncLogger backend;
+
+    private final String name;
+
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    public static Logger get(Class<?> type) {
+        return new Logger(type.getSimpleName());
+    }
+
+    // Replaces the shared backend; the previous one is closed, which writes out what it still holds
+    public static synchronized void setBackend(AsyncLogger newBackend) {
+        AsyncLogger previous = backend;
+        backend = newBackend;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public static AsyncLogger getBackend() {
+        AsyncLogger current = backend;
+        return current != null ? current : createDefaultBackend();
+    }
+
+    private static synchronized AsyncLogger createDefaultBackend() {
+        if (backend == null) {
+            AsyncLogger console = new AsyncLogger(System.out, LogLevel.INFO, 8192);
+            // Messages still in the ring when the program ends are written out, not lost
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> getBackend().close(), "async-logger-shutdown"));
+            backend = console;
+        }
+        return backend;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return getBackend().isEnabled(level);
+    }
+
+    public void debug(String pattern) { log(LogLevel.DEBUG, pattern, null, null, null); }
+    public void debug(String pattern, Object arg0) { log(LogLevel.DEBUG, pattern, arg0, null, null); }
+    public void debug(String pattern, Object arg0, Object arg1) { log(LogLevel.DEBUG, pattern, arg0, arg1, null); }
+    public void debug(String pattern, Object arg0, Object arg1, Object arg2) { log(LogLevel.DEBUG, pattern, arg0, arg1, arg2); }
+
+    public void info(String pattern) { log(LogLevel.INFO, pattern, null, null, null); }
+    public void info(String pattern, Object arg0) { log(LogLevel.INFO, pattern, arg0, null, null); }
+    public void info(String pattern, Object arg0, Object arg1) { log(LogLevel.INFO, pattern, arg0, arg1, null); }
+    public void info(String pattern, Object arg0, Object arg1, Object arg2) { log(LogLevel.INFO, pattern, arg0, arg1, arg2); }
+
+    public void warn(String pattern) { log(LogLevel.WARN, pattern, null, null, null); }
+    public void warn(String pattern, Object arg0) { log(LogLevel.WARN, pattern, arg0, null, null); }
+    public void warn(String pattern, Object arg0, Object arg1) { log(LogLevel.WARN, pattern, arg0, arg1, null); }
+
+    public void error(String pattern, Object arg0) { log(LogLevel.ERROR, pattern, arg0, null, null); }
+    public void error(String pattern, Object arg0, Object arg1) { log(LogLevel.ERROR, pattern, arg0, arg1, null); }
+    public void error(String pattern, Object arg0, Object arg1, Object arg2) { log(LogLevel.ERROR, pattern, arg0, arg1, arg2); }
+
+    private void log(LogLevel level, String pattern, Object arg0, Object arg1, Object arg2) {
+        getBackend().log(level, name, pattern, arg0, arg1, arg2);
+    }
+}
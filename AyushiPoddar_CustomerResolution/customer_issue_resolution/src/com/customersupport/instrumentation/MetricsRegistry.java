@@ -0,0 +1,98 @@
+package com.customersupport.instrumentation;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and latency histograms, readable from code and exportable as text or JSON.
+ * Metrics are created on first use; asking for the same name again returns the same metric.
+ */
+public class MetricsRegistry {
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    // Sorted by name, so exports are stable and related metrics end up next to each other
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // A value that is read when asked for, e.g. a queue depth. Registering a name again replaces the supplier.
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public long gaugeValue(String name) {
+        LongSupplier value = gauges.get(name);
+        return value == null ? 0 : value.getAsLong();
+    }
+
+    // One metric per line; histogram values are in microseconds
+    public String exportText() {
+        StringBuilder text = new StringBuilder();
+        counters.forEach((name, counter) -> text.append("counter ").append(name).append(' ').append(counter.get()).append('\n'));
+        gauges.forEach((name, value) -> text.append("gauge ").append(name).append(' ').append(value.getAsLong()).append('\n'));
+        histograms.forEach((name, histogram) -> {
+            text.append("histogram ").append(name)
+                    .append(" count=").append(histogram.getCount())
+                    .append(" mean_us=").append(micros(histogram.getMean()));
+            for (double percentile : EXPORTED_PERCENTILES) {
+                text.append(' ').append(percentileKey(percentile)).append('=')
+                        .append(micros(histogram.getValueAtPercentile(percentile)));
+            }
+            text.append(" max_us=").append(micros(histogram.getMax())).append('\n');
+        });
+        return text.toString();
+    }
+
+    // {"counters":{...},"gauges":{...},"histograms":{"name":{"count":..,"mean_us":..,"p50_us":..,...}}}
+    public String exportJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        appendEntries(json, counters, counter -> Long.toString(counter.get()));
+        json.append("},\"gauges\":{");
+        appendEntries(json, gauges, value -> Long.toString(value.getAsLong()));
+        json.append("},\"histograms\":{");
+        appendEntries(json, histograms, histogram -> {
+            StringBuilder fields = new StringBuilder("{\"count\":").append(histogram.getCount())
+                    .append(",\"mean_us\":").append(micros(histogram.getMean()));
+            for (double percentile : EXPORTED_PERCENTILES) {
+                fields.append(",\"").append(percentileKey(percentile)).append("\":")
+                        .append(micros(histogram.getValueAtPercentile(percentile)));
+            }
+            return fields.append(",\"max_us\":").append(micros(histogram.getMax())).append('}').toString();
+        });
+        return json.append("}}").toString();
+    }
+
+    private static <T> void appendEntries(StringBuilder json, Map<String, T> metrics, Function<T, String> value) {
+        boolean first = true;
+        for (Map.Entry<String, T> entry : metrics.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(escape(entry.getKey())).append("\":").append(value.apply(entry.getValue()));
+        }
+    }
+
+    private static String percentileKey(double percentile) {
+        return "p" + (percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile).replace(".", "")) + "_us";
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
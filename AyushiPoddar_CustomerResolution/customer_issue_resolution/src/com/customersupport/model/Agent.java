@@ -5,60 +5,251 @@ import com.customersupport.enums.IssueType;
 import com.customersupport.exceptions.AgentBusyException;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Agent {
+    public static final int DEFAULT_CAPACITY = 1; // One issue at a time, unless the agent is added with more slots
+
     private final String agentId; // Added agentId for explicit ID, email is unique identifier
     private final String email;
     private final String name;
-    private final Set<IssueType> expertiseTypes; // Changed to IssueType enum
-    private String currentAssignedIssueId; // Null if free, holds ID of the issue being worked on
-    private AgentStatus status; // Added status enum
+    // Expertise never changes, so it is kept as a bitmask (bit i = IssueType ordinal i) for allocation-free checks,
+    //plus one read-only EnumSet view for callers that want a Set
+    private final int expertiseMask;
+    private final Set<IssueType> expertiseTypes;
+    private final int capacity; // Issues the agent works on at the same time (chat agents juggle several)
+    // The active issues in one immutable word, swapped atomically: readers always see a consistent set without taking
+    //a lock, and claiming a slot is a single compare-and-set that can never go beyond the capacity
+    private final AtomicReference<State> state;
     private final List<String> workHistory; // Stores issueIds (references to issues worked on)
+    // Guards the work history, and lets the durable store log the agent's changes in order. That is a ReentrantLock
+    //rather than the agent's monitor: a virtual thread that blocks while holding a monitor pins its carrier thread.
+    private final ReentrantLock lock;
+    private final AgentWorkStats workStats; // Updated on every resolution, has its own lock
 
     // Constructor now takes agentId and expertiseTypes as IssueType
     public Agent(String agentId, String email, String name, List<IssueType> expertiseTypes) {
+        this(agentId, email, name, expertiseTypes, DEFAULT_CAPACITY);
+    }
+
+    public Agent(String agentId, String email, String name, List<IssueType> expertiseTypes, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("An agent needs at least one slot, got " + capacity + ".");
+        }
         this.agentId = agentId;
         this.email = email;
         this.name = name;
-        this.expertiseTypes = new HashSet<>(expertiseTypes);
-        this.currentAssignedIssueId = null;
-        this.status = AgentStatus.FREE; // Initially free
+        this.expertiseMask = maskOf(expertiseTypes);
+        this.expertiseTypes = Collections.unmodifiableSet(expertiseTypes.isEmpty()
+                ? EnumSet.noneOf(IssueType.class) : EnumSet.copyOf(expertiseTypes));
+        this.capacity = capacity;
+        this.state = new AtomicReference<>(State.FREE);
         this.workHistory = new ArrayList<>();
+        this.lock = new ReentrantLock();
+        this.workStats = new AgentWorkStats();
+    }
+
+    private Agent(Agent agent) {
+        this.agentId = agent.agentId;
+        this.email = agent.email;
+        this.name = agent.name;
+        this.expertiseMask = agent.expertiseMask;
+        this.expertiseTypes = agent.expertiseTypes;
+        this.capacity = agent.capacity;
+        this.state = new AtomicReference<>(agent.state.get());
+        this.workHistory = agent.workHistory;
+        this.lock = agent.lock;
+        this.workStats = agent.workStats;
+    }
+
+    /**
+     * A copy for repository snapshots, with the status and active issues the agent has now.
+     * The work history and statistics are shared with this agent rather than copied (they only grow, and copying
+     * them on every save would cost more than the save), so they read as they are at the time of reading.
+     */
+    public Agent copy() {
+        return new Agent(this);
     }
 
     // --- Getters ---
     public String getAgentId() { return agentId; }
     public String getEmail() { return email; }
     public String getName() { return name; }
-    public Set<IssueType> getExpertiseTypes() {
-        return new HashSet<>(expertiseTypes); // Return a copy for encapsulation
+    public Set<IssueType> getExpertiseTypes() { return expertiseTypes; } // Read-only, so no copy needed
+    public int getExpertiseMask() { return expertiseMask; }
+    public int getCapacity() { return capacity; }
+    public int getLoad() { return state.get().issueIds.length; } // Number of active issues
+    public List<String> getActiveIssueIds() { return List.of(state.get().issueIds); } // Oldest assignment first
+    // The oldest active issue, or null; with a single slot that is simply the issue being worked on
+    public String getCurrentAssignedIssueId() {
+        String[] issueIds = state.get().issueIds;
+        return issueIds.length == 0 ? null : issueIds[0];
     }
-    public String getCurrentAssignedIssueId() { return currentAssignedIssueId; }
-    public AgentStatus getStatus() { return status; }
+    public boolean isWorkingOn(String issueId) { return state.get().indexOf(issueId) >= 0; }
+    // BUSY as soon as the agent works on one issue; whether they can take another is hasFreeSlot()
+    public AgentStatus getStatus() { return state.get() == State.FREE ? AgentStatus.FREE : AgentStatus.BUSY; }
+    public boolean isFree() { return state.get() == State.FREE; }
+    public boolean hasFreeSlot() { return state.get().issueIds.length < capacity; }
     public List<String> getWorkHistory() {
-        return new ArrayList<>(workHistory); // Return a copy for encapsulation
+        lock.lock();
+        try {
+            return new ArrayList<>(workHistory); // Return a copy for encapsulation
+        } finally {
+            lock.unlock();
+        }
+    }
+    // Copies only the requested part of the history
+    public List<String> getWorkHistory(int offset, int limit) {
+        lock.lock();
+        try {
+            int from = Math.min(Math.max(offset, 0), workHistory.size());
+            int to = (int) Math.min((long) from + Math.max(limit, 0), workHistory.size());
+            return new ArrayList<>(workHistory.subList(from, to));
+        } finally {
+            lock.unlock();
+        }
+    }
+    public AgentWorkStats getWorkStats() { return workStats; }
+    public int getWorkHistorySize() {
+        lock.lock();
+        try {
+            return workHistory.size();
+        } finally {
+            lock.unlock();
+        }
     }
 
+    // The lock that guards this agent's work history. Hold it to read the history consistently (e.g. to persist the agent).
+    public ReentrantLock getLock() { return lock; }
+
     // --- Business Logic / Controlled Setters ---
     public boolean canHandle(IssueType issueType) { // Helper to check expertise
-        return expertiseTypes.contains(issueType);
+        return (expertiseMask & bitOf(issueType)) != 0;
     }
 
-    public void assignIssue(String issueId)  {
-        this.currentAssignedIssueId = issueId;
-        this.status = AgentStatus.BUSY;
+    /**
+     * Atomically claims one of this agent's slots for the given issue.
+     * Returns false if every slot is taken (or the agent already works on the issue), so threads racing for the
+     * same agent can never give them more issues than their capacity.
+     */
+    public boolean tryAssignIssue(String issueId) {
+        while (true) {
+            State current = state.get();
+            if (current.issueIds.length >= capacity || current.indexOf(issueId) >= 0) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.plus(issueId))) {
+                return true;
+            }
+        }
     }
 
-    public void markFree() {
-        this.currentAssignedIssueId = null;
-        this.status = AgentStatus.FREE;
+    // Frees the slot of the given issue; returns false if the agent wasn't working on it
+    public boolean releaseIssue(String issueId) {
+        while (true) {
+            State current = state.get();
+            int index = current.indexOf(issueId);
+            if (index < 0) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.minus(index))) {
+                return true;
+            }
+        }
+    }
+
+    // Replaces the active issues with the persisted ones, used when recovering from storage
+    public void restoreActiveIssues(List<String> issueIds) {
+        state.set(issueIds.isEmpty() ? State.FREE : new State(issueIds.toArray(new String[0])));
     }
 
     public void addToWorkHistory(String issueId) { // Only adds to history when resolved
-        this.workHistory.add(issueId);
+        lock.lock();
+        try {
+            this.workHistory.add(issueId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Recovery from storage ---
+
+    // Rebuilds an agent exactly as it was persisted
+    public static Agent restore(String agentId, String email, String name, List<IssueType> expertiseTypes, int capacity,
+                                List<String> activeIssueIds, List<String> workHistory) {
+        Agent agent = new Agent(agentId, email, name, expertiseTypes, capacity);
+        agent.restoreActiveIssues(activeIssueIds);
+        agent.workHistory.addAll(workHistory);
+        return agent;
+    }
+
+    // --- Expertise masks ---
+
+    public static int bitOf(IssueType type) {
+        return 1 << type.ordinal();
+    }
+
+    public static int maskOf(Iterable<IssueType> types) {
+        int mask = 0;
+        for (IssueType type : types) {
+            mask |= bitOf(type);
+        }
+        return mask;
+    }
+
+    // Replaces the history from the given position onwards; replaying the same entries twice is harmless
+    public void restoreWorkHistory(int offset, List<String> entries) {
+        lock.lock();
+        try {
+            if (offset < workHistory.size()) {
+                workHistory.subList(offset, workHistory.size()).clear();
+            }
+            workHistory.addAll(entries);
+        } finally {
+            lock.unlock();
+        }
     }
 
+    // The active issues, oldest assignment first. Never changed once published (a change makes a new State), and a
+    //capacity is a handful of slots, so copying the array is cheaper than any shared set. FREE is the only empty state.
+    private static final class State {
+        static final State FREE = new State(new String[0]);
+
+        final String[] issueIds;
+
+        State(String[] issueIds) {
+            this.issueIds = issueIds;
+        }
+
+        int indexOf(String issueId) {
+            for (int i = 0; i < issueIds.length; i++) {
+                if (issueIds[i].equals(issueId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        State plus(String issueId) {
+            String[] added = Arrays.copyOf(issueIds, issueIds.length + 1);
+            added[issueIds.length] = issueId;
+            return new State(added);
+        }
+
+        State minus(int index) {
+            if (issueIds.length == 1) {
+                return FREE;
+            }
+            String[] removed = new String[issueIds.length - 1];
+            System.arraycopy(issueIds, 0, removed, 0, index);
+            System.arraycopy(issueIds, index + 1, removed, index, removed.length - index);
+            return new State(removed);
+        }
+    }
 }
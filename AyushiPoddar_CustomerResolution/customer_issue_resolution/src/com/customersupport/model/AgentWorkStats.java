@@ -0,0 +1,149 @@
+package com.customersupport.model;
+
+import com.customersupport.enums.IssueType;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Running statistics of the issues an agent resolved: how many, how long they took (from creation to resolution),
+ * overall and per IssueType. Every resolution updates a handful of counters, whatever the agent's history length.
+ *
+ * Handling times go into a small log-linear histogram (8 buckets per power of two, so percentiles are within 12.5%).
+ * Readers take a Snapshot, which copies the counters under an optimistic read of a StampedLock: it never blocks
+ * the resolution path, and all numbers in a snapshot belong together (count, mean and percentiles always agree).
+ */
+public class AgentWorkStats {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final int LINEAR_BUCKETS = 16;                // 0..15 ms get a bucket each
+    private static final int SUB_BUCKET_BITS = 3;                // Above that, 8 buckets per power of two
+    private static final int MAX_EXPONENT = 40;                  // Up to 2^41 ms (~70 years), larger values are clamped
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - 3) * (1 << SUB_BUCKET_BITS);
+
+    private final StampedLock lock = new StampedLock();
+
+    // All guarded by lock
+    private long resolvedCount;
+    private long totalHandlingMillis;
+    private long maxHandlingMillis;
+    private final long[] resolvedByType = new long[ISSUE_TYPES.length];
+    private final long[] handlingMillisByType = new long[ISSUE_TYPES.length];
+    private final long[] buckets = new long[BUCKET_COUNT];
+
+    public void recordResolution(IssueType type, long handlingMillis) {
+        long millis = Math.max(0, handlingMillis); // Clock adjustments
+        long stamp = lock.writeLock();
+        try {
+            resolvedCount++;
+            totalHandlingMillis += millis;
+            maxHandlingMillis = Math.max(maxHandlingMillis, millis);
+            resolvedByType[type.ordinal()]++;
+            handlingMillisByType[type.ordinal()] += millis;
+            buckets[bucketOf(millis)]++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Snapshot snapshot() {
+        // Optimistic first: a resolution that slips in while we copy invalidates the stamp, then we copy again
+        //under a read lock (which only waits for that one resolution)
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Snapshot snapshot = copy();
+            if (lock.validate(stamp)) {
+                return snapshot;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return copy();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Snapshot copy() {
+        return new Snapshot(resolvedCount, totalHandlingMillis, maxHandlingMillis,
+                resolvedByType.clone(), handlingMillisByType.clone(), buckets.clone());
+    }
+
+    private static int bucketOf(long millis) {
+        if (millis < LINEAR_BUCKETS) {
+            return (int) millis;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(millis), MAX_EXPONENT); // >= 4
+        if (exponent == MAX_EXPONENT && millis >= (2L << MAX_EXPONENT)) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (millis >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * (1 << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    // Largest value that falls into the bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / (1 << SUB_BUCKET_BITS) + 4;
+        int subBucket = (bucket - LINEAR_BUCKETS) % (1 << SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+
+    /**
+     * The statistics at one moment. Immutable, so it can be handed out freely.
+     */
+    public static final class Snapshot {
+        private final long resolvedCount;
+        private final long totalHandlingMillis;
+        private final long maxHandlingMillis;
+        private final long[] resolvedByType;
+        private final long[] handlingMillisByType;
+        private final long[] buckets;
+
+        private Snapshot(long resolvedCount, long totalHandlingMillis, long maxHandlingMillis,
+                         long[] resolvedByType, long[] handlingMillisByType, long[] buckets) {
+            this.resolvedCount = resolvedCount;
+            this.totalHandlingMillis = totalHandlingMillis;
+            this.maxHandlingMillis = maxHandlingMillis;
+            this.resolvedByType = resolvedByType;
+            this.handlingMillisByType = handlingMillisByType;
+            this.buckets = buckets;
+        }
+
+        public long getResolvedCount() { return resolvedCount; }
+        public long getMaxHandlingMillis() { return maxHandlingMillis; }
+
+        public double getMeanHandlingMillis() {
+            return resolvedCount == 0 ? 0 : (double) totalHandlingMillis / resolvedCount;
+        }
+
+        public long getResolvedCount(IssueType type) {
+            return resolvedByType[type.ordinal()];
+        }
+
+        public double getMeanHandlingMillis(IssueType type) {
+            long count = resolvedByType[type.ordinal()];
+            return count == 0 ? 0 : (double) handlingMillisByType[type.ordinal()] / count;
+        }
+
+        /**
+         * The handling time (millis) at or below which the given percentage (0-100) of the resolutions fall,
+         * reported as the upper end of its bucket but never above the maximum. 0 if nothing was resolved.
+         */
+        public long getHandlingMillisAtPercentile(double percentile) {
+            if (resolvedCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * resolvedCount));
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(bucket), maxHandlingMillis);
+                }
+            }
+            return maxHandlingMillis;
+        }
+    }
+}
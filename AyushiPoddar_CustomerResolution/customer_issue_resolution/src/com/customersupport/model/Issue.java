@@ -1,34 +1,83 @@
 package com.customersupport.model;
 
+import com.customersupport.enums.IssuePriority;
 import com.customersupport.enums.IssueStatus;
 import com.customersupport.enums.IssueType;
+import com.customersupport.exceptions.InvalidIssueStatusTransitionException;
 
+import java.time.Instant;
 import java.time.LocalDateTime; // For tracking creation and update times
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Issue {
+    // Status changes are compare-and-set on the volatile field, checked against IssueStateMachine
+    private static final AtomicReferenceFieldUpdater<Issue, IssueStatus> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(Issue.class, IssueStatus.class, "status");
+
     private final String id;
     private final String transactionId;
     private final IssueType type; // Changed to IssueType enum
     private final String subject;
     private final String description;
     private final String customerEmail;
-    private IssueStatus status;
-    private String resolution;
-    private String assignedAgentId; // Changed to agentId (String) for consistency with Agent's ID
-    private LocalDateTime createdAt; // Added creation timestamp
-    private LocalDateTime updatedAt; // Added update timestamp
+    private final IssuePriority priority; // Decides the SLA deadline, and with it the position in the waiting queue
+    // Mutable fields are volatile: they are written under the issue type's lock in IssueService
+    // but read without any lock by getIssues() and the assignment strategy.
+    private volatile IssueStatus status;
+    private volatile String resolution;
+    private volatile String assignedAgentId; // Changed to agentId (String) for consistency with Agent's ID
+    private final LocalDateTime createdAt; // Added creation timestamp
+    // Epoch millis of the last change, never earlier than the one before; a LocalDateTime is only made when asked for
+    private volatile long updatedAtMillis;
+    private volatile IssueStatusListener statusListener; // Set by the repository that indexes this issue, may be null
+    // The open issue of the same transaction and customer that this one was linked to when it was created (see
+    // IssueService.createIssue()), or null. Set before the issue is saved and never changed afterwards.
+    private volatile String duplicateOfId;
 
     public Issue(String id, String transactionId, IssueType type, String subject,
                  String description, String customerEmail) {
+        this(id, transactionId, type, subject, description, customerEmail, IssuePriority.MEDIUM);
+    }
+
+    public Issue(String id, String transactionId, IssueType type, String subject,
+                 String description, String customerEmail, IssuePriority priority) {
+        this(id, transactionId, type, subject, description, customerEmail, priority, toLocalDateTime(System.currentTimeMillis()));
+    }
+
+    private Issue(String id, String transactionId, IssueType type, String subject,
+                  String description, String customerEmail, IssuePriority priority, LocalDateTime createdAt) {
         this.id = id;
         this.transactionId = transactionId;
         this.type = type;
         this.subject = subject;
         this.description = description;
         this.customerEmail = customerEmail;
+        this.priority = priority;
         this.status = IssueStatus.OPEN; // Initially OPEN
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+        this.createdAt = createdAt;
+        this.updatedAtMillis = toEpochMillis(createdAt);
+    }
+
+    // Rebuilds an issue exactly as it was persisted, used when recovering a repository from storage
+    public static Issue restore(String id, String transactionId, IssueType type, String subject, String description,
+                                String customerEmail, IssuePriority priority, IssueStatus status, String resolution,
+                                String assignedAgentId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        Issue issue = new Issue(id, transactionId, type, subject, description, customerEmail, priority, createdAt);
+        issue.status = status;
+        issue.resolution = resolution;
+        issue.assignedAgentId = assignedAgentId;
+        issue.updatedAtMillis = toEpochMillis(updatedAt);
+        return issue;
+    }
+
+    // A copy of the issue as it is now, without the status listener; used for repository snapshots
+    public Issue copy() {
+        Issue copy = restore(id, transactionId, type, subject, description, customerEmail, priority, status, resolution,
+                assignedAgentId, createdAt, createdAt);
+        copy.updatedAtMillis = updatedAtMillis; // Exactly, without a round trip through LocalDateTime
+        copy.duplicateOfId = duplicateOfId;
+        return copy;
     }
 
     // --- Getters ---
@@ -38,32 +87,77 @@ public class Issue {
     public String getSubject() { return subject; }
     public String getDescription() { return description; }
     public String getCustomerEmail() { return customerEmail; }
+    public IssuePriority getPriority() { return priority; }
     public IssueStatus getStatus() { return status; }
     public String getResolution() { return resolution; }
     public String getAssignedAgentId() { return assignedAgentId; }
     public LocalDateTime getCreatedAt() { return createdAt; }
-    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public LocalDateTime getUpdatedAt() { return toLocalDateTime(updatedAtMillis); }
+    public long getUpdatedAtMillis() { return updatedAtMillis; }
+    public String getDuplicateOfId() { return duplicateOfId; }
+    public LocalDateTime getSlaDeadline() { return createdAt.plus(priority.getSla()); } // Latest time it should be picked up
 
     // --- Controlled Setters / Updaters ---
+    // Throws InvalidIssueStatusTransitionException if IssueStateMachine doesn't allow the change
     public void setStatus(IssueStatus status) {
-        this.status = status;
-        this.updatedAt = LocalDateTime.now(); // Update timestamp on status change
+        IssueStatus oldStatus;
+        do {
+            oldStatus = this.status;
+            IssueStateMachine.check(this, oldStatus, status);
+        } while (!STATUS.compareAndSet(this, oldStatus, status));
+        touch(); // Update timestamp on status change
+        IssueStatusListener listener = statusListener;
+        if (listener != null && oldStatus != status) {
+            listener.onStatusChanged(this, oldStatus, status); // Keeps repository status indexes in sync
+        }
+    }
+
+    public void setStatusListener(IssueStatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public void setDuplicateOfId(String duplicateOfId) {
+        this.duplicateOfId = duplicateOfId;
     }
 
     public void setResolution(String resolution) {
         this.resolution = resolution;
-        this.updatedAt = LocalDateTime.now(); // Update timestamp on resolution change
+        touch(); // Update timestamp on resolution change
     }
 
     public void setAssignedAgentId(String assignedAgentId) { // Updated setter
         this.assignedAgentId = assignedAgentId;
-        this.updatedAt = LocalDateTime.now(); // Update timestamp on assignment
+        touch(); // Update timestamp on assignment
     }
 
-    // Convenience method to handle assignment details in one go
+    // Convenience method to handle assignment details in one go. The transition is checked before the agent is set,
+    //so a refused assignment leaves the issue as it was; if the status changed in between, the agent is taken back.
     public void assignAgent(String agentId) {
+        IssueStateMachine.checkAssignable(this);
+        String previousAgentId = this.assignedAgentId;
         this.setAssignedAgentId(agentId);
-        this.setStatus(IssueStatus.IN_PROGRESS); // Automatically set to IN_PROGRESS when assigned
+        try {
+            this.setStatus(IssueStatus.IN_PROGRESS); // Automatically set to IN_PROGRESS when assigned
+        } catch (InvalidIssueStatusTransitionException e) {
+            this.assignedAgentId = previousAgentId;
+            throw e;
+        }
+    }
+
+    // Moves updatedAt to now, unless the wall clock went back since the last change
+    private void touch() {
+        long now = System.currentTimeMillis();
+        if (now > updatedAtMillis) {
+            updatedAtMillis = now;
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
     }
 
 }
\ No newline at end of file
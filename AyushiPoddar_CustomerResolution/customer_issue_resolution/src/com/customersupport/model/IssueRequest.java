@@ -0,0 +1,32 @@
+package com.customersupport.model;
+
+// The input for creating one issue, used for creating issues in bulk (see IssueService.createIssues())
+public class IssueRequest {
+    private final String transactionId;
+    private final String issueType; // Same strings as accepted by createIssue(), e.g. "PAYMENT_RELATED" or "Payment Related"
+    private final String subject;
+    private final String description;
+    private final String customerEmail;
+    private final String priority; // Null means MEDIUM
+
+    public IssueRequest(String transactionId, String issueType, String subject, String description, String customerEmail) {
+        this(transactionId, issueType, subject, description, customerEmail, null);
+    }
+
+    public IssueRequest(String transactionId, String issueType, String subject, String description, String customerEmail,
+                        String priority) {
+        this.transactionId = transactionId;
+        this.issueType = issueType;
+        this.subject = subject;
+        this.description = description;
+        this.customerEmail = customerEmail;
+        this.priority = priority;
+    }
+
+    public String getTransactionId() { return transactionId; }
+    public String getIssueType() { return issueType; }
+    public String getSubject() { return subject; }
+    public String getDescription() { return description; }
+    public String getCustomerEmail() { return customerEmail; }
+    public String getPriority() { return priority; }
+}
@@ -0,0 +1,129 @@
+package com.customersupport.model;
+
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.exceptions.InvalidIssueStatusTransitionException;
+
+import java.util.function.Predicate;
+
+/**
+ * The legal status transitions of an issue, as a table indexed by the ordinals of the old and the new status.
+ *
+ * A cell holds the rule for that transition, or null if the transition is never allowed. A rule may have a guard,
+ * a condition on the issue that must hold as well (e.g. an issue is only IN_PROGRESS with an agent). Checking a
+ * transition is an array lookup plus the guard, and allocates nothing: the refusal messages, which name the current
+ * status, are built once here, and only a refused transition adds the issue ID and pays for its exception.
+ *
+ * Issue.setStatus() checks every change against this table, so the rules live in one place instead of in every
+ * method of IssueService that moves an issue. Setting the status an issue already has is not a transition and
+ * is not checked. The action of a transition is the issue's IssueStatusListener, called after the status changed.
+ */
+public final class IssueStateMachine {
+    private static final IssueStatus[] STATUSES = IssueStatus.values(); // values() clones the array on every call
+    private static final int COUNT = STATUSES.length;
+
+    private static final Predicate<Issue> HAS_AGENT = issue -> issue.getAssignedAgentId() != null;
+    private static final Predicate<Issue> IS_DUPLICATE = issue -> issue.getDuplicateOfId() != null;
+
+    private static final Rule[] RULES = new Rule[COUNT * COUNT];
+    // Refusal message of each transition without a rule; like the rules' messages, it follows "Issue <ID>"
+    private static final String[] ILLEGAL = new String[COUNT * COUNT];
+
+    static {
+        //Waiting for an agent, and back; updateIssue() may also move an issue between these by hand
+        allow(IssueStatus.OPEN, IssueStatus.WAITING);
+        allow(IssueStatus.WAITING, IssueStatus.OPEN);
+        allow(IssueStatus.IN_PROGRESS, IssueStatus.OPEN);
+        allow(IssueStatus.IN_PROGRESS, IssueStatus.WAITING);
+
+        //Picked up by an agent
+        String withoutAgent = " cannot be IN_PROGRESS without being assigned to an agent.";
+        allow(IssueStatus.OPEN, IssueStatus.IN_PROGRESS, HAS_AGENT, withoutAgent);
+        allow(IssueStatus.WAITING, IssueStatus.IN_PROGRESS, HAS_AGENT, withoutAgent);
+
+        //Resolved by its agent; an issue linked to another one is resolved together with it, whatever its status
+        allow(IssueStatus.IN_PROGRESS, IssueStatus.RESOLVED);
+        String notInProgress = " must be IN_PROGRESS to be RESOLVED.";
+        allow(IssueStatus.OPEN, IssueStatus.RESOLVED, IS_DUPLICATE, notInProgress);
+        allow(IssueStatus.WAITING, IssueStatus.RESOLVED, IS_DUPLICATE, notInProgress);
+
+        allow(IssueStatus.RESOLVED, IssueStatus.CLOSED);
+
+        for (IssueStatus from : STATUSES) {
+            for (IssueStatus to : STATUSES) {
+                ILLEGAL[index(from, to)] = to == IssueStatus.CLOSED
+                        ? " must be RESOLVED to be CLOSED. Current status: " + from
+                        : from == IssueStatus.RESOLVED || from == IssueStatus.CLOSED
+                        ? " is already " + from + " and cannot be updated."
+                        : " cannot move from " + from + " to " + to + ".";
+            }
+        }
+    }
+
+    private IssueStateMachine() {
+    }
+
+    // Whether the table has a rule for the transition, without looking at the guard
+    public static boolean isLegal(IssueStatus from, IssueStatus to) {
+        return RULES[index(from, to)] != null;
+    }
+
+    // RESOLVED or CLOSED: the issue is done, and at most moves on to CLOSED
+    public static boolean isFinished(IssueStatus status) {
+        return status == IssueStatus.RESOLVED || status == IssueStatus.CLOSED;
+    }
+
+    // Throws InvalidIssueStatusTransitionException unless the issue may move from its current status to the new one
+    public static void check(Issue issue, IssueStatus to) {
+        check(issue, issue.getStatus(), to);
+    }
+
+    static void check(Issue issue, IssueStatus from, IssueStatus to) {
+        String refusal = refusal(issue, from, to);
+        if (refusal != null) {
+            throw new InvalidIssueStatusTransitionException("Issue " + issue.getId() + refusal);
+        }
+    }
+
+    // Whether an agent may pick the issue up: checked before the agent is set, so without the guard that it has one
+    static void checkAssignable(Issue issue) {
+        IssueStatus from = issue.getStatus();
+        if (from != IssueStatus.IN_PROGRESS && !isLegal(from, IssueStatus.IN_PROGRESS)) {
+            throw new InvalidIssueStatusTransitionException("Issue " + issue.getId() + ILLEGAL[index(from, IssueStatus.IN_PROGRESS)]);
+        }
+    }
+
+    // Null if the transition is allowed, otherwise the reason why not, to follow "Issue <ID>"
+    private static String refusal(Issue issue, IssueStatus from, IssueStatus to) {
+        if (from == to) {
+            return null;
+        }
+        int index = index(from, to);
+        Rule rule = RULES[index];
+        if (rule == null) {
+            return ILLEGAL[index];
+        }
+        return rule.guard == null || rule.guard.test(issue) ? null : rule.refusal;
+    }
+
+    private static void allow(IssueStatus from, IssueStatus to) {
+        allow(from, to, null, null);
+    }
+
+    private static void allow(IssueStatus from, IssueStatus to, Predicate<Issue> guard, String refusal) {
+        RULES[index(from, to)] = new Rule(guard, refusal == null ? null : refusal + " Current status: " + from);
+    }
+
+    private static int index(IssueStatus from, IssueStatus to) {
+        return from.ordinal() * COUNT + to.ordinal();
+    }
+
+    private static final class Rule {
+        final Predicate<Issue> guard; // Null if the transition is always allowed
+        final String refusal;         // Message when the guard doesn't hold
+
+        Rule(Predicate<Issue> guard, String refusal) {
+            this.guard = guard;
+            this.refusal = refusal;
+        }
+    }
+}
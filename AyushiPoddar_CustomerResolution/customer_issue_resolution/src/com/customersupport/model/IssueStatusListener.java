@@ -0,0 +1,9 @@
+package com.customersupport.model;
+
+import com.customersupport.enums.IssueStatus;
+
+// Notified by Issue.setStatus() on every status change, after IssueStateMachine allowed it; used by repositories to
+// keep their status indexes current
+public interface IssueStatusListener {
+    void onStatusChanged(Issue issue, IssueStatus oldStatus, IssueStatus newStatus);
+}
@@ -8,7 +8,17 @@ import java.util.Optional;
 public interface AgentRepository {
     // save now returns Optional to indicate if a new agent was saved or existing one was updated/returned
     Optional<Agent> save(Agent agent);
+    // Saves the agent only if there is no agent with the same email yet; returns the agent that is stored for that email
+    Agent saveIfAbsent(Agent agent);
     Optional<Agent> findByEmail(String email);
     Optional<Agent> findById(String agentId); // Added findById for consistency
     List<Agent> findAll();
+    // Live index of the agents that are currently FREE, kept up to date by save()
+    FreeAgentIndex getFreeAgentIndex();
+
+    // A consistent, unchanging view of every agent. The default copies every agent; implementations that can
+    //should keep a snapshot up to date as they save.
+    default AgentSnapshot snapshot() {
+        return AgentSnapshot.copyOf(findAll());
+    }
 }
@@ -0,0 +1,45 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Agent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Point-in-time view of an agent repository (see AgentRepository.snapshot()). The agents in it are copies taken
+ * when they were saved (see Agent.copy() and PublishedView): their status and current issue
+ * don't change afterwards. Writers never wait for a snapshot, and reading one never waits for writers.
+ */
+public final class AgentSnapshot {
+    private final PersistentHashMap<String, Agent> agents; // Agent ID -> agent as it was saved
+
+    AgentSnapshot(PersistentHashMap<String, Agent> agents) {
+        this.agents = agents;
+    }
+
+    // A snapshot of copies of the given agents, for repositories that don't keep one up to date
+    static AgentSnapshot copyOf(Iterable<Agent> agents) {
+        PersistentHashMap<String, Agent> map = PersistentHashMap.empty();
+        for (Agent agent : agents) {
+            map = map.plus(agent.getAgentId(), agent.copy());
+        }
+        return new AgentSnapshot(map);
+    }
+
+    public int size() {
+        return agents.size();
+    }
+
+    public Optional<Agent> findById(String agentId) {
+        return Optional.ofNullable(agents.get(agentId));
+    }
+
+    public List<Agent> findAll() {
+        return agents.values();
+    }
+
+    public void forEach(Consumer<Agent> action) {
+        agents.forEach((agentId, agent) -> action.accept(agent));
+    }
+}
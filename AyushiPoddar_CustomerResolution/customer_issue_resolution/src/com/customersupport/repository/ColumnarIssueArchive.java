@@ -0,0 +1,523 @@
+package com.customersupport.repository;
+
+import com.customersupport.enums.IssuePriority;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Issue;
+import com.customersupport.storage.MappedFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Off-heap, column-per-file store for finished (RESOLVED/CLOSED) issues.
+ *
+ * Every column is its own memory-mapped file with one fixed-width value per row: enums as ordinal bytes,
+ * timestamps as epoch millis, customer emails and agent IDs as int codes into small on-heap dictionaries, and the
+ * free-text fields as offsets into a shared mapped string heap. The only per-row heap cost is one int in the
+ * open-addressing ID table, so years of history don't weigh on the GC. Scans read just the columns they filter on
+ * and only materialize Issue objects for matching rows.
+ *
+ * Each file is mapped with its own sizes, from its value width: a byte column starts at 64 KB and grows in 1 MB
+ * chunks, a long column at 512 KB and in 8 MB chunks, so a small archive doesn't reserve a 64 MB chunk per file.
+ *
+ * The archive survives a restart: opening the same directory again picks up every row. A 32-byte meta file holds
+ * the row count, the end of the string heap and the sizes of the two dictionaries (whose entries are in the string
+ * heap too). It is not mapped: it is kept in fields and written with one positional write at the end of a put()
+ * that changed it, after the data it covers. The ID table and the on-heap dictionaries are rebuilt from the files
+ * when the archive is opened. close() forces the mapped pages to disk and then the meta file; without it, a crash of
+ * the process loses nothing, but a crash of the machine may lose the latest changes.
+ */
+public class ColumnarIssueArchive implements Closeable {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final IssueStatus[] ISSUE_STATUSES = IssueStatus.values();
+    private static final IssuePriority[] ISSUE_PRIORITIES = IssuePriority.values();
+    private static final long NULL_STRING = -1;
+    private static final int NO_CODE = -1;
+
+    private static final int ARCHIVE_MAGIC = 0x43534152; // "CSAR"
+    private static final int FORMAT_VERSION = 1;
+    // Meta file layout
+    private static final int META_MAGIC = 0;
+    private static final int META_VERSION = 4;
+    private static final int META_ROWS = 8;
+    private static final int META_EMAILS = 12;
+    private static final int META_AGENTS = 16;
+    private static final int META_STRINGS_END = 24;
+    private static final int META_BYTES = 32;
+
+    // Rows mapped when a column is created, and rows per chunk after its first chunk is full
+    private static final long INITIAL_ROWS = 1L << 16;
+    private static final long ROWS_PER_CHUNK = 1L << 20;
+    private static final long STRINGS_INITIAL_SIZE = 1L << 20;
+    private static final long STRINGS_CHUNK_SIZE = 1L << 26;
+    private static final long DICTIONARY_INITIAL_SIZE = 1L << 12;
+    private static final long DICTIONARY_CHUNK_SIZE = 1L << 16;
+
+    // Columns, one value per row
+    private final MappedFile idColumn;          // long: string heap offset
+    private final MappedFile transactionColumn; // long: string heap offset
+    private final MappedFile typeColumn;        // byte: IssueType ordinal
+    private final MappedFile subjectColumn;     // long: string heap offset
+    private final MappedFile descriptionColumn; // long: string heap offset
+    private final MappedFile emailColumn;       // int: email dictionary code
+    private final MappedFile priorityColumn;    // byte: IssuePriority ordinal
+    private final MappedFile statusColumn;      // byte: IssueStatus ordinal
+    private final MappedFile resolutionColumn;  // long: string heap offset or NULL_STRING
+    private final MappedFile agentColumn;       // int: agent dictionary code or NO_CODE
+    private final MappedFile createdColumn;     // long: epoch millis (UTC)
+    private final MappedFile updatedColumn;     // long: epoch millis (UTC)
+    private final MappedFile duplicateColumn;   // long: string heap offset or NULL_STRING
+    private final MappedFile strings;
+    private final MappedFile emailDictionary;   // long: string heap offset of each email code
+    private final MappedFile agentDictionary;   // long: string heap offset of each agent code
+    private final FileChannel meta;
+    private final ByteBuffer metaBuffer = ByteBuffer.allocate(META_BYTES);
+    private boolean metaChanged;
+    private final List<MappedFile> columns = new ArrayList<>();
+    private final List<Integer> columnWidths = new ArrayList<>();
+    private final List<MappedFile> files = new ArrayList<>();
+
+    // Dictionaries (distinct customers and agents are far fewer than issues)
+    private final Map<String, Integer> emailCodes = new HashMap<>();
+    private final List<String> emails = new ArrayList<>();
+    private final Map<String, int[]> emailCodesByLowerCase = new HashMap<>(); // For case-insensitive filters
+    private final Map<String, Integer> agentCodes = new HashMap<>();
+    private final List<String> agentIds = new ArrayList<>();
+
+    // Open-addressing ID -> row table, each slot holds row + 1 (0 means empty)
+    private int[] rowTable = new int[1 << 10];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int rowCount;
+    private long stringsEnd;
+
+    // Opens the archive in the directory with the issues it already holds, or creates an empty one
+    public ColumnarIssueArchive(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        idColumn = openColumn(directory, "id.col", 8);
+        transactionColumn = openColumn(directory, "transaction.col", 8);
+        typeColumn = openColumn(directory, "type.col", 1);
+        subjectColumn = openColumn(directory, "subject.col", 8);
+        descriptionColumn = openColumn(directory, "description.col", 8);
+        emailColumn = openColumn(directory, "email.col", 4);
+        priorityColumn = openColumn(directory, "priority.col", 1);
+        statusColumn = openColumn(directory, "status.col", 1);
+        resolutionColumn = openColumn(directory, "resolution.col", 8);
+        agentColumn = openColumn(directory, "agent.col", 4);
+        createdColumn = openColumn(directory, "created.col", 8);
+        updatedColumn = openColumn(directory, "updated.col", 8);
+        duplicateColumn = openColumn(directory, "duplicate.col", 8);
+        strings = open(directory, "strings.heap", STRINGS_INITIAL_SIZE, STRINGS_CHUNK_SIZE);
+        emailDictionary = open(directory, "email.dict", DICTIONARY_INITIAL_SIZE, DICTIONARY_CHUNK_SIZE);
+        agentDictionary = open(directory, "agent.dict", DICTIONARY_INITIAL_SIZE, DICTIONARY_CHUNK_SIZE);
+        meta = FileChannel.open(directory.resolve("archive.meta"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load(directory);
+    }
+
+    // Rebuilds the on-heap parts from what an earlier run left in the files, or marks the files as a new archive
+    private void load(Path directory) throws IOException {
+        if (meta.size() == 0) {
+            writeMeta();
+            return;
+        }
+        while (metaBuffer.hasRemaining()) {
+            if (meta.read(metaBuffer, metaBuffer.position()) < 0) {
+                break; // Shorter than a meta file
+            }
+        }
+        if (metaBuffer.hasRemaining() || metaBuffer.getInt(META_MAGIC) != ARCHIVE_MAGIC) {
+            throw new IOException(directory + " does not hold an issue archive.");
+        }
+        int version = metaBuffer.getInt(META_VERSION);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Issue archive in " + directory + " has format version " + version
+                    + ", this build reads version " + FORMAT_VERSION + ".");
+        }
+        stringsEnd = metaBuffer.getLong(META_STRINGS_END);
+        int emailCount = metaBuffer.getInt(META_EMAILS);
+        for (int code = 0; code < emailCount; code++) {
+            addEmail(strings.getString(emailDictionary.getLong(8L * code)), code);
+        }
+        int agentCount = metaBuffer.getInt(META_AGENTS);
+        for (int code = 0; code < agentCount; code++) {
+            addAgent(strings.getString(agentDictionary.getLong(8L * code)), code);
+        }
+        int rows = metaBuffer.getInt(META_ROWS);
+        for (int row = 0; row < rows; row++) {
+            rowCount++;
+            insertRow(utf8(strings.getString(idColumn.getLong(8L * row))), row);
+        }
+    }
+
+    // Adds the issue, or updates the mutable columns (status, resolution, agent, updatedAt) if it is already here
+    public void put(Issue issue) {
+        lock.writeLock().lock();
+        try {
+            byte[] id = utf8(issue.getId());
+            int row = findRow(id);
+            if (row < 0) {
+                row = appendRow(issue, id);
+            }
+            statusColumn.putByte(row, (byte) issue.getStatus().ordinal());
+            if (!sameString(resolutionColumn.getLong(8L * row), issue.getResolution())) {
+                resolutionColumn.putLong(8L * row, putNullableString(issue.getResolution())); // The old value stays behind in the heap
+            }
+            agentColumn.putInt(4L * row, issue.getAssignedAgentId() == null ? NO_CODE : agentCode(issue.getAssignedAgentId()));
+            updatedColumn.putLong(8L * row, toMillis(issue.getUpdatedAt()));
+            if (metaChanged) {
+                writeMeta(); // A new row, string or code counts once everything it needs is written
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update the issue archive.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Issue get(String issueId) {
+        return get(issueId, Integer.MAX_VALUE);
+    }
+
+    // Like get(), but only among the first rows rows (the ones a snapshot covers)
+    Issue get(String issueId, int rows) {
+        lock.readLock().lock();
+        try {
+            int row = findRow(utf8(issueId));
+            return row < 0 || row >= rows ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The issue in the given row, rows being numbered in the order the issues were archived
+    Issue getRow(int row) {
+        lock.readLock().lock();
+        try {
+            return materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Feeds every archived issue matching the query to the sink. Only the columns used by the query are read
+     * for non-matching rows.
+     */
+    public void scan(IssueQuery query, Consumer<Issue> sink) {
+        scan(query, Integer.MAX_VALUE, sink);
+    }
+
+    // Like scan(), but only over the first rows rows (the ones a snapshot covers)
+    void scan(IssueQuery query, int rows, Consumer<Issue> sink) {
+        lock.readLock().lock();
+        try {
+            int end = Math.min(rows, rowCount);
+            if (query.getIssueId() != null) {
+                int row = findRow(utf8(query.getIssueId()));
+                if (row < 0) {
+                    row = findRow(utf8(query.getIssueId().toUpperCase(Locale.ROOT)));
+                }
+                if (row >= 0 && row < end) {
+                    Issue issue = materialize(row);
+                    if (query.matches(issue)) {
+                        sink.accept(issue);
+                    }
+                }
+                return;
+            }
+
+            int[] wantedEmails = null;
+            if (query.getCustomerEmail() != null) {
+                wantedEmails = emailCodesByLowerCase.get(query.getCustomerEmail().toLowerCase(Locale.ROOT));
+                if (wantedEmails == null) {
+                    return; // Nobody with this email was ever archived
+                }
+            }
+            int wantedType = query.getType() == null ? -1 : query.getType().ordinal();
+            int wantedStatus = query.getStatus() == null ? -1 : query.getStatus().ordinal();
+
+            for (int row = 0; row < end; row++) {
+                if (wantedType >= 0 && typeColumn.getByte(row) != wantedType) {
+                    continue;
+                }
+                if (wantedStatus >= 0 && statusColumn.getByte(row) != wantedStatus) {
+                    continue;
+                }
+                if (wantedEmails != null && !contains(wantedEmails, emailColumn.getInt(4L * row))) {
+                    continue;
+                }
+                sink.accept(materialize(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Feeds the fields the service rebuilds its search index and agents' statistics from to the visitor, one row
+     * after the other, straight from their columns: no Issue is built, and the other columns aren't read.
+     */
+    public void visit(FinishedIssueVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                int agent = agentColumn.getInt(4L * row);
+                visitor.visit(
+                        strings.getString(idColumn.getLong(8L * row)),
+                        ISSUE_TYPES[typeColumn.getByte(row)],
+                        getNullableString(subjectColumn.getLong(8L * row)),
+                        getNullableString(descriptionColumn.getLong(8L * row)),
+                        agent == NO_CODE ? null : agentIds.get(agent),
+                        fromMillis(createdColumn.getLong(8L * row)),
+                        // As Issue.getUpdatedAtMillis() of the materialized issue, which counts in the local time zone
+                        fromMillis(updatedColumn.getLong(8L * row)).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Rows ---
+
+    // Assumes the write lock is held
+    private int appendRow(Issue issue, byte[] id) {
+        int row = rowCount;
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).ensureCapacity((long) columnWidths.get(i) * (row + 1));
+        }
+        idColumn.putLong(8L * row, putString(id));
+        transactionColumn.putLong(8L * row, putNullableString(issue.getTransactionId()));
+        typeColumn.putByte(row, (byte) issue.getType().ordinal());
+        subjectColumn.putLong(8L * row, putNullableString(issue.getSubject()));
+        descriptionColumn.putLong(8L * row, putNullableString(issue.getDescription()));
+        emailColumn.putInt(4L * row, emailCode(issue.getCustomerEmail()));
+        priorityColumn.putByte(row, (byte) issue.getPriority().ordinal());
+        createdColumn.putLong(8L * row, toMillis(issue.getCreatedAt()));
+        resolutionColumn.putLong(8L * row, NULL_STRING);
+        duplicateColumn.putLong(8L * row, putNullableString(issue.getDuplicateOfId()));
+        rowCount++;
+        insertRow(id, row);
+        metaChanged = true;
+        return row;
+    }
+
+    private Issue materialize(int row) {
+        int agent = agentColumn.getInt(4L * row);
+        Issue issue = Issue.restore(
+                strings.getString(idColumn.getLong(8L * row)),
+                getNullableString(transactionColumn.getLong(8L * row)),
+                ISSUE_TYPES[typeColumn.getByte(row)],
+                getNullableString(subjectColumn.getLong(8L * row)),
+                getNullableString(descriptionColumn.getLong(8L * row)),
+                emails.get(emailColumn.getInt(4L * row)),
+                ISSUE_PRIORITIES[priorityColumn.getByte(row)],
+                ISSUE_STATUSES[statusColumn.getByte(row)],
+                getNullableString(resolutionColumn.getLong(8L * row)),
+                agent == NO_CODE ? null : agentIds.get(agent),
+                fromMillis(createdColumn.getLong(8L * row)),
+                fromMillis(updatedColumn.getLong(8L * row)));
+        issue.setDuplicateOfId(getNullableString(duplicateColumn.getLong(8L * row)));
+        return issue;
+    }
+
+    // --- ID table ---
+
+    private int findRow(byte[] id) {
+        int mask = rowTable.length - 1;
+        for (int slot = hash(id) & mask; rowTable[slot] != 0; slot = (slot + 1) & mask) {
+            int row = rowTable[slot] - 1;
+            if (strings.stringEquals(idColumn.getLong(8L * row), id)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void insertRow(byte[] id, int row) {
+        if (rowCount * 2 > rowTable.length) {
+            // Keep the table at most half full; re-insert every row using its stored ID
+            int[] old = rowTable;
+            rowTable = new int[old.length * 2];
+            for (int entry : old) {
+                if (entry != 0) {
+                    place(storedIdHash(entry - 1), entry);
+                }
+            }
+        }
+        place(hash(id), row + 1);
+    }
+
+    private void place(int hash, int entry) {
+        int mask = rowTable.length - 1;
+        int slot = hash & mask;
+        while (rowTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        rowTable[slot] = entry;
+    }
+
+    private int storedIdHash(int row) {
+        return hash(utf8(strings.getString(idColumn.getLong(8L * row))));
+    }
+
+    private static int hash(byte[] id) {
+        int h = Arrays.hashCode(id);
+        return h ^ (h >>> 16);
+    }
+
+    // --- Strings and dictionaries ---
+
+    private long putNullableString(String value) {
+        return value == null ? NULL_STRING : putString(utf8(value));
+    }
+
+    private long putString(byte[] utf8) {
+        long offset = strings.putString(stringsEnd, utf8);
+        stringsEnd = offset + 4 + utf8.length;
+        metaChanged = true;
+        return offset;
+    }
+
+    private boolean sameString(long offset, String value) {
+        if (offset == NULL_STRING || value == null) {
+            return offset == NULL_STRING && value == null;
+        }
+        return strings.stringEquals(offset, utf8(value));
+    }
+
+    private String getNullableString(long offset) {
+        return offset == NULL_STRING ? null : strings.getString(offset);
+    }
+
+    private int emailCode(String email) {
+        Integer code = emailCodes.get(email);
+        if (code == null) {
+            code = emails.size();
+            emailDictionary.ensureCapacity(8L * (code + 1));
+            emailDictionary.putLong(8L * code, putString(utf8(email)));
+            addEmail(email, code);
+            metaChanged = true;
+        }
+        return code;
+    }
+
+    private void addEmail(String email, int code) {
+        emails.add(email);
+        emailCodes.put(email, code);
+        int[] sameIgnoringCase = emailCodesByLowerCase.get(email.toLowerCase(Locale.ROOT));
+        int[] updated = sameIgnoringCase == null ? new int[]{code} : Arrays.copyOf(sameIgnoringCase, sameIgnoringCase.length + 1);
+        updated[updated.length - 1] = code;
+        emailCodesByLowerCase.put(email.toLowerCase(Locale.ROOT), updated);
+    }
+
+    private int agentCode(String agentId) {
+        Integer code = agentCodes.get(agentId);
+        if (code == null) {
+            code = agentIds.size();
+            agentDictionary.ensureCapacity(8L * (code + 1));
+            agentDictionary.putLong(8L * code, putString(utf8(agentId)));
+            addAgent(agentId, code);
+            metaChanged = true;
+        }
+        return code;
+    }
+
+    private void addAgent(String agentId, int code) {
+        agentIds.add(agentId);
+        agentCodes.put(agentId, code);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000), Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    // Writes the whole meta in one positional write
+    private void writeMeta() throws IOException {
+        metaBuffer.clear();
+        metaBuffer.putInt(META_MAGIC, ARCHIVE_MAGIC)
+                .putInt(META_VERSION, FORMAT_VERSION)
+                .putInt(META_ROWS, rowCount)
+                .putInt(META_EMAILS, emails.size())
+                .putInt(META_AGENTS, agentIds.size())
+                .putLong(META_STRINGS_END, stringsEnd);
+        while (metaBuffer.hasRemaining()) {
+            meta.write(metaBuffer, metaBuffer.position());
+        }
+        metaChanged = false;
+    }
+
+    private MappedFile open(Path directory, String name, long initialSize, long chunkSize) throws IOException {
+        MappedFile file = new MappedFile(directory.resolve(name), initialSize, chunkSize);
+        files.add(file);
+        return file;
+    }
+
+    private MappedFile openColumn(Path directory, String name, int width) throws IOException {
+        MappedFile column = open(directory, name, width * INITIAL_ROWS, width * ROWS_PER_CHUNK);
+        columns.add(column);
+        columnWidths.add(width);
+        return column;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedFile file : files) {
+                file.force();
+            }
+            meta.force(true); // Last, after the data it describes
+            for (MappedFile file : files) {
+                file.close();
+            }
+            meta.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Agent;
+
+import java.util.List;
+import java.util.Optional;
+
+// Agent repository whose saves are written to the DurableStore's event log; reads are served from memory
+public class DurableAgentRepository implements AgentRepository {
+    private final DurableStore store;
+    private final InMemoryAgentRepository delegate;
+
+    DurableAgentRepository(DurableStore store, InMemoryAgentRepository delegate) {
+        this.store = store;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Agent> save(Agent agent) {
+        Optional<Agent> saved = delegate.save(agent);
+        store.logAgent(agent);
+        return saved;
+    }
+
+    @Override
+    public Agent saveIfAbsent(Agent agent) {
+        Agent saved = delegate.saveIfAbsent(agent);
+        if (saved == agent) { // Only a new agent is logged
+            store.logAgent(agent);
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<Agent> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public Optional<Agent> findById(String agentId) {
+        return delegate.findById(agentId);
+    }
+
+    @Override
+    public List<Agent> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public FreeAgentIndex getFreeAgentIndex() {
+        return delegate.getFreeAgentIndex();
+    }
+
+    @Override
+    public AgentSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+}
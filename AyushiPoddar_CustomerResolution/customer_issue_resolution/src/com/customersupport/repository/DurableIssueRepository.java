@@ -0,0 +1,50 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Issue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+// Issue repository whose saves are written to the DurableStore's event log; reads are served from memory
+public class DurableIssueRepository implements IssueRepository {
+    private final DurableStore store;
+    private final InMemoryIssueRepository delegate;
+
+    DurableIssueRepository(DurableStore store, InMemoryIssueRepository delegate) {
+        this.store = store;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Issue save(Issue issue) {
+        delegate.save(issue);
+        store.logIssue(issue);
+        return issue;
+    }
+
+    @Override
+    public Optional<Issue> findById(String issueId) {
+        return delegate.findById(issueId);
+    }
+
+    @Override
+    public List<Issue> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Issue> findByQuery(IssueQuery query) {
+        return delegate.findByQuery(query);
+    }
+
+    @Override
+    public Iterator<Issue> scan(IssueQuery query, IssueOrder order, IssueCursor after) {
+        return delegate.scan(query, order, after);
+    }
+
+    @Override
+    public IssueSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+}
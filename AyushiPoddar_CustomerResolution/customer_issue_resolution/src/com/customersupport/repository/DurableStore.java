@@ -0,0 +1,275 @@
+package com.customersupport.repository;
+
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import com.customersupport.storage.BinaryReader;
+import com.customersupport.storage.BinaryWriter;
+import com.customersupport.storage.EntityCodec;
+import com.customersupport.storage.EventLog;
+import com.customersupport.storage.FileHeader;
+import com.customersupport.storage.FsyncPolicy;
+import com.customersupport.storage.RecordFraming;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Durable home for issues and agents: the state lives in the in-memory repositories, and every save() is
+ * appended to a write-ahead EventLog before it returns.
+ *
+ * Every snapshotEveryRecords records the log is rotated and a compact snapshot of all issues and agents is written
+ * in the background (snapshot-N.dat covers every log segment below N). Snapshots start with a FileHeader
+ * (SNAPSHOT_MAGIC and the EntityCodec format version) just like the log segments. On open, the newest snapshot is loaded and
+ * the remaining log segments are replayed on top of it. The waiting queues are rebuilt from the WAITING issues by
+ * IssueService itself, so they need no records of their own.
+ */
+public class DurableStore implements Closeable {
+    public static final int SNAPSHOT_MAGIC = 0x43535350; // "CSSP"
+    private static final Logger LOG = Logger.get(DurableStore.class);
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.dat");
+    private static final ThreadLocal<BinaryWriter> WRITER = ThreadLocal.withInitial(() -> new BinaryWriter(512));
+
+    private final Path directory;
+    private final int snapshotEveryRecords;
+    private final InMemoryIssueRepository issues = new InMemoryIssueRepository();
+    private final InMemoryAgentRepository agents = new InMemoryAgentRepository();
+    private final DurableIssueRepository issueRepository = new DurableIssueRepository(this, issues);
+    private final DurableAgentRepository agentRepository = new DurableAgentRepository(this, agents);
+
+    // How much of each agent's work history is already in the log, so that only new entries get written
+    private final Map<String, Integer> persistedHistorySize = new ConcurrentHashMap<>();
+
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final ReentrantLock snapshotLock = new ReentrantLock(); // One snapshot at a time
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "durable-store-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private EventLog log;
+
+    private DurableStore(Path directory, int snapshotEveryRecords) {
+        this.directory = directory;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+    }
+
+    /**
+     * Opens the store in the given directory, recovering whatever state it holds.
+     * snapshotEveryRecords <= 0 turns automatic snapshots off (snapshot() can still be called).
+     */
+    public static DurableStore open(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                                    int snapshotEveryRecords) throws IOException {
+        Files.createDirectories(directory);
+        DurableStore store = new DurableStore(directory, snapshotEveryRecords);
+        long snapshotGeneration = store.loadLatestSnapshot();
+        store.log = EventLog.open(directory, fsyncPolicy, fsyncIntervalMillis, snapshotGeneration, store::apply);
+        return store;
+    }
+
+    public IssueRepository getIssueRepository() {
+        return issueRepository;
+    }
+
+    public AgentRepository getAgentRepository() {
+        return agentRepository;
+    }
+
+    // --- Write path, called by the durable repositories after the in-memory save ---
+
+    // Saves of one issue are already serialized by IssueService's per-type lock, so records are logged in state order
+    void logIssue(Issue issue) {
+        BinaryWriter out = WRITER.get();
+        out.reset();
+        EntityCodec.writeIssue(out, issue);
+        long lsn = log.append(out.array(), out.size());
+        afterAppend(lsn);
+    }
+
+    // An agent can be saved from several threads (freed by one, claimed by another), so the record is encoded and
+    // appended under the agent's own lock: records reach the log in the order their state was read. Status changes
+    // themselves are lock-free, but every change is followed by a save that reads the state again, so the last
+    // record in the log always holds the latest state.
+    // That is a ReentrantLock, so a virtual thread that has to wait for the log here doesn't pin its carrier.
+    void logAgent(Agent agent) {
+        BinaryWriter out = WRITER.get();
+        out.reset();
+        long lsn;
+        ReentrantLock agentLock = agent.getLock();
+        agentLock.lock();
+        try {
+            int historyOffset = persistedHistorySize.getOrDefault(agent.getAgentId(), 0);
+            int historySize = agent.getWorkHistorySize();
+            EntityCodec.writeAgent(out, agent, historyOffset, agent.getWorkHistory(historyOffset, historySize - historyOffset));
+            lsn = log.append(out.array(), out.size());
+            persistedHistorySize.put(agent.getAgentId(), historySize);
+        } finally {
+            agentLock.unlock();
+        }
+        afterAppend(lsn);
+    }
+
+    private void afterAppend(long lsn) {
+        log.awaitDurable(lsn);
+        if (snapshotEveryRecords > 0 && recordsSinceSnapshot.incrementAndGet() >= snapshotEveryRecords
+                && snapshotRunning.compareAndSet(false, true)) {
+            recordsSinceSnapshot.set(0);
+            snapshotter.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Snapshot failed, the log keeps growing until the next attempt.", e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        }
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Rotates the log and writes every issue and agent into snapshot-N.dat, where N is the new log segment.
+     * Records logged while the snapshot is written land in segment N and are replayed on top of it; since every
+     * record is a full upsert (agent history entries carry their position) that replay is harmless.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long generation = log.rotate();
+        Path temporary = directory.resolve("snapshot-" + generation + ".tmp");
+        BinaryWriter out = new BinaryWriter(4096);
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             BufferedOutputStream buffered = new BufferedOutputStream(file, 1 << 16)) {
+            FileHeader.write(buffered, SNAPSHOT_MAGIC, EntityCodec.FORMAT_VERSION);
+            for (Issue issue : issues.findAll()) {
+                out.reset();
+                EntityCodec.writeIssue(out, issue);
+                RecordFraming.write(buffered, out.array(), out.size());
+            }
+            for (Agent agent : agents.findAll()) {
+                out.reset();
+                agent.getLock().lock();
+                try {
+                    EntityCodec.writeAgent(out, agent, 0, agent.getWorkHistory());
+                } finally {
+                    agent.getLock().unlock();
+                }
+                RecordFraming.write(buffered, out.array(), out.size());
+            }
+            out.reset();
+            out.putByte(EntityCodec.END_OF_SNAPSHOT);
+            RecordFraming.write(buffered, out.array(), out.size());
+            buffered.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, directory.resolve("snapshot-" + generation + ".dat"), StandardCopyOption.ATOMIC_MOVE);
+
+        // Everything older is now covered by the new snapshot
+        log.deleteSegmentsBefore(generation);
+        for (long older : listSnapshotGenerations()) {
+            if (older < generation) {
+                Files.deleteIfExists(directory.resolve("snapshot-" + older + ".dat"));
+            }
+        }
+    }
+
+    // Loads the newest complete snapshot and returns the log segment to continue replaying from
+    private long loadLatestSnapshot() throws IOException {
+        List<Long> generations = listSnapshotGenerations();
+        if (generations.isEmpty()) {
+            return 1;
+        }
+        long generation = generations.get(generations.size() - 1);
+        Path path = directory.resolve("snapshot-" + generation + ".dat");
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            FileHeader.read(mapped, SNAPSHOT_MAGIC, EntityCodec.FORMAT_VERSION, path);
+            AtomicBoolean complete = new AtomicBoolean();
+            RecordFraming.read(mapped, body -> {
+                if (body.get(0) == EntityCodec.END_OF_SNAPSHOT) {
+                    complete.set(true);
+                } else {
+                    apply(body);
+                }
+            });
+            if (!complete.get()) {
+                throw new IOException("Snapshot " + path + " is incomplete or corrupt.");
+            }
+        }
+        return generation;
+    }
+
+    // Applies one snapshot or log record to the in-memory state
+    private void apply(ByteBuffer body) {
+        BinaryReader in = new BinaryReader(body);
+        int recordType = in.getByte();
+        if (recordType == EntityCodec.ISSUE) {
+            Issue restored = EntityCodec.readIssue(in);
+            issues.save(restored);
+        } else if (recordType == EntityCodec.AGENT) {
+            EntityCodec.AgentRecord record = EntityCodec.readAgent(in);
+            Agent agent = record.applyTo(agents.findById(record.getAgentId()).orElse(null));
+            agents.save(agent);
+            persistedHistorySize.put(agent.getAgentId(), agent.getWorkHistorySize());
+        } else {
+            throw new UncheckedIOException(new IOException("Unknown record type " + recordType + " in " + directory + "."));
+        }
+    }
+
+    private List<Long> listSnapshotGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SNAPSHOT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES); // Let a running snapshot finish before the log goes away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+}
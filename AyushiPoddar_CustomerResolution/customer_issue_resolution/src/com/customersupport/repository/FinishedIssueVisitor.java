@@ -0,0 +1,13 @@
+package com.customersupport.repository;
+
+import com.customersupport.enums.IssueType;
+
+import java.time.LocalDateTime;
+
+// Receives the fields of a finished issue that the service rebuilds its in-memory state from after a restart
+// (see IssueRepository.forEachFinished()). assignedAgentId is null if no agent worked on the issue.
+@FunctionalInterface
+public interface FinishedIssueVisitor {
+    void visit(String issueId, IssueType type, String subject, String description, String assignedAgentId,
+               LocalDateTime createdAt, long updatedAtMillis);
+}
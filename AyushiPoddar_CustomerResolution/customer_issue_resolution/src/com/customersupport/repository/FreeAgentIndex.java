@@ -0,0 +1,147 @@
+package com.customersupport.repository;
+
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Live index of agents with a free slot, kept per IssueType and ordered by load.
+ *
+ * For each IssueType there is a concurrent skip list of entries (load, sequence, agent), one entry per agent who
+ * has that expertise and at least one free slot. The first entry is the least-loaded qualified agent, found in
+ * O(log n) without a lock; among agents with the same load, the one refreshed longest ago comes first. Every
+ * refresh (that is, every save of the agent: each assignment and each release) gives the agent a new entry behind
+ * the others of its load, so equal agents take turns, even when an assignment and a release between two refreshes
+ * leave the load where it was.
+ *
+ * The entries are only a hint: the agent's own state is the source of truth and a slot is claimed with
+ * Agent.tryAssignIssue(). Every agent has one current entry (an AtomicReference that refresh() swaps); entries that
+ * were replaced but are still in a list are dropped by the first lookup that meets them. An agent with a free slot
+ * never stays invisible, because refresh() loops until the current entry matches the agent's load.
+ */
+public class FreeAgentIndex {
+    private static final IssueType[] ISSUE_TYPES = IssueType.values(); // values() clones the array on every call
+    private static final Comparator<Entry> LEAST_LOADED_FIRST = Comparator.comparingInt((Entry entry) -> entry.load)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final Map<String, Slot> slotByAgentId = new ConcurrentHashMap<>();
+    private final List<Slot> slots = new CopyOnWriteArrayList<>(); // In the order in which agents were indexed; adding one is rare
+    private final List<ConcurrentSkipListSet<Entry>> entriesByType = new ArrayList<>(ISSUE_TYPES.length);
+    private final AtomicLong sequence = new AtomicLong();
+
+    public FreeAgentIndex() {
+        for (int t = 0; t < ISSUE_TYPES.length; t++) {
+            entriesByType.add(new ConcurrentSkipListSet<>(LEAST_LOADED_FIRST));
+        }
+    }
+
+    /**
+     * Brings the index in line with the agent's current load, and moves the agent behind the others of that load.
+     * Must be called after every change of the agent's active issues; the repositories do this on save().
+     */
+    public void refresh(Agent agent) {
+        Slot slot = slotByAgentId.computeIfAbsent(agent.getAgentId(), id -> newSlot(agent));
+        slot.agent = agent; // Same agent ID saved again with a new object: the new object takes over
+        boolean requeued = false;
+        while (true) {
+            Entry current = slot.entry.get();
+            int load = agent.getLoad();
+            boolean hasFreeSlot = load < agent.getCapacity();
+            if (hasFreeSlot ? requeued && current != null && current.load == load : current == null) {
+                return; // Whoever installed the current entry also puts it into the lists
+            }
+            Entry next = hasFreeSlot ? new Entry(slot, load, sequence.incrementAndGet()) : null;
+            if (slot.entry.compareAndSet(current, next)) {
+                forEachType(agent, entries -> {
+                    if (current != null) {
+                        entries.remove(current);
+                    }
+                    if (next != null) {
+                        entries.add(next);
+                    }
+                });
+                requeued = true;
+                // The load may have changed again meanwhile; the loop checks the entry once more
+            }
+        }
+    }
+
+    // The least-loaded agent with a free slot who can handle the type, or null if there is none
+    public Agent leastLoaded(IssueType type) {
+        return leastLoaded(type, agent -> true);
+    }
+
+    // The least-loaded agent with a free slot who can handle the type and is accepted, or null
+    public Agent leastLoaded(IssueType type, Predicate<Agent> accepted) {
+        ConcurrentSkipListSet<Entry> entries = entriesByType.get(type.ordinal());
+        for (Entry entry : entries) {
+            if (entry.slot.entry.get() != entry) {
+                entries.remove(entry); // Replaced by a newer entry of the same agent
+            } else if (accepted.test(entry.slot.agent)) {
+                return entry.slot.agent;
+            }
+        }
+        return null;
+    }
+
+    // Agents with a free slot right now, in the order in which they were indexed, each listed once per free slot
+    public List<Agent> freeSlots() {
+        List<Agent> result = new ArrayList<>();
+        for (Slot slot : slots) {
+            Entry entry = slot.entry.get();
+            if (entry != null) {
+                for (int free = slot.agent.getCapacity() - entry.load; free > 0; free--) {
+                    result.add(slot.agent);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Slot newSlot(Agent agent) {
+        Slot slot = new Slot(agent);
+        slots.add(slot);
+        return slot;
+    }
+
+    // Applies the action to the lists of the agent's expertise types, straight from the mask bits
+    private void forEachType(Agent agent, Consumer<ConcurrentSkipListSet<Entry>> action) {
+        for (int types = agent.getExpertiseMask(); types != 0; types &= types - 1) {
+            action.accept(entriesByType.get(Integer.numberOfTrailingZeros(types)));
+        }
+    }
+
+    // One indexed agent and their current entry (null while every slot is taken)
+    private static final class Slot {
+        volatile Agent agent;
+        final AtomicReference<Entry> entry = new AtomicReference<>();
+
+        Slot(Agent agent) {
+            this.agent = agent;
+        }
+    }
+
+    // Never equal to another entry: the sequence number is unique
+    private static final class Entry {
+        final Slot slot;
+        final int load;
+        final long sequence;
+
+        Entry(Slot slot, int load, long sequence) {
+            this.slot = slot;
+            this.load = load;
+            this.sequence = sequence;
+        }
+    }
+}
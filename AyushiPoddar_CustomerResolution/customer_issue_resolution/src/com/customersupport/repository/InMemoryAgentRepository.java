@@ -8,6 +8,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class InMemoryAgentRepository implements AgentRepository {
     private final Map<String, Agent> agentMapByEmail = new ConcurrentHashMap<>(); // Map by email
     private final Map<String, Agent> agentMapById = new ConcurrentHashMap<>();   // Map by ID
+    private final FreeAgentIndex freeAgentIndex = new FreeAgentIndex();         // Agents with a free slot per IssueType
+    // Copy-on-write view for snapshot(), by agent ID; every save publishes a copy of the saved agent (see PublishedView)
+    private final PublishedView<Agent> published = new PublishedView<>(Agent::getAgentId, Agent::copy);
 
     @Override
     public Optional<Agent> save(Agent agent) {
@@ -19,14 +22,35 @@ public class InMemoryAgentRepository implements AgentRepository {
             // Or overwrite if it's an update operation. For now, assume adding new or updating existing.
             agentMapByEmail.put(agent.getEmail(), agent); // Overwrite if it's an update
             agentMapById.put(agent.getAgentId(), agent);
+            freeAgentIndex.refresh(agent);
+            publish(agent);
             return Optional.of(agent);
         } else {
             agentMapByEmail.put(agent.getEmail(), agent);
             agentMapById.put(agent.getAgentId(), agent);
+            freeAgentIndex.refresh(agent);
+            publish(agent);
             return Optional.of(agent);
         }
     }
 
+    @Override
+    public Agent saveIfAbsent(Agent agent) {
+        // The email map decides who wins; only the winner is added to the other indexes
+        Agent existing = agentMapByEmail.putIfAbsent(agent.getEmail(), agent);
+        if (existing != null) {
+            return existing;
+        }
+        agentMapById.put(agent.getAgentId(), agent);
+        freeAgentIndex.refresh(agent);
+        publish(agent);
+        return agent;
+    }
+
+    private void publish(Agent agent) {
+        published.publish(agent);
+    }
+
     @Override
     public Optional<Agent> findByEmail(String email) {
         return Optional.ofNullable(agentMapByEmail.get(email));
@@ -41,4 +65,14 @@ public class InMemoryAgentRepository implements AgentRepository {
     public List<Agent> findAll() {
         return new ArrayList<>(agentMapByEmail.values());
     }
+
+    @Override
+    public FreeAgentIndex getFreeAgentIndex() {
+        return freeAgentIndex;
+    }
+
+    @Override
+    public AgentSnapshot snapshot() {
+        return new AgentSnapshot(published.current());
+    }
 }
\ No newline at end of file
@@ -1,19 +1,56 @@
 package com.customersupport.repository;
 
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
 import com.customersupport.model.Issue;
+import com.customersupport.model.IssueStatusListener;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
-public class InMemoryIssueRepository implements IssueRepository {
+public class InMemoryIssueRepository implements IssueRepository, IssueStatusListener {
     private final Map<String, Issue> issueMap = new ConcurrentHashMap<>();
 
+    // Secondary indexes, each holding issue IDs.
+    // Email and type never change after creation; status is kept current through Issue.setStatus() (see onStatusChanged).
+    private final Map<String, Set<String>> emailIndex = new ConcurrentHashMap<>(); // lower-cased email -> IDs
+    private final Map<IssueType, Set<String>> typeIndex = newEnumIndex(IssueType.class);
+    private final Map<IssueStatus, Set<String>> statusIndex = newEnumIndex(IssueStatus.class);
+
+    // Ordered indexes for scan(), one per IssueOrder, keyed by the issue's sort key. Sort keys never change, so
+    //only saving a new issue and deleting one touch them, and status changes cost what they did before.
+    private final Map<IssueOrder, ConcurrentSkipListMap<IssueCursor, Issue>> orderIndexes = newOrderIndexes();
+
+    // Copy-on-write view for snapshot(): every save publishes a copy of the saved issue (see PublishedView)
+    private final PublishedView<Issue> published = new PublishedView<>(Issue::getId, Issue::copy);
+
     @Override
     public Issue save(Issue issue) {
-        issueMap.put(issue.getId(), issue);
+        Issue previous = issueMap.put(issue.getId(), issue);
+        if (previous != issue) {
+            if (previous != null) {
+                // A different object was stored under this ID before, drop its index entries first
+                previous.setStatusListener(null);
+                unindex(previous);
+            }
+            issue.setStatusListener(this);
+            index(issue);
+        }
+        published.publish(issue);
         return issue;
     }
 
+    // Removes the issue and its index entries, used when an issue moves to another storage tier
+    public void delete(String issueId) {
+        Issue removed = issueMap.remove(issueId);
+        if (removed != null) {
+            removed.setStatusListener(null);
+            unindex(removed);
+            published.remove(issueId);
+        }
+    }
+
     @Override
     public Optional<Issue> findById(String issueId) {
         return Optional.ofNullable(issueMap.get(issueId));
@@ -23,4 +60,129 @@ public class InMemoryIssueRepository implements IssueRepository {
     public List<Issue> findAll() {
         return new ArrayList<>(issueMap.values());
     }
+
+    // One volatile read; the copies were taken when the issues were saved
+    @Override
+    public IssueSnapshot snapshot() {
+        return new IssueSnapshot(published.current());
+    }
+
+    /**
+     * Issues with an ID or email criterion are few, so they come from findByQuery() and are sorted.
+     * Anything else walks the ordered index from the cursor, checking the criteria on the way and only as far as the
+     * reader iterates. Type and status criteria are not narrowed down by their indexes here: a page of a rare status
+     * can mean walking many issues, but never holding more than a page.
+     * The walk is weakly consistent, like the concurrent map: issues saved while it runs may or may not show up.
+     */
+    @Override
+    public Iterator<Issue> scan(IssueQuery query, IssueOrder order, IssueCursor after) {
+        if (query.getIssueId() != null || query.getCustomerEmail() != null) {
+            return IssueRepository.super.scan(query, order, after);
+        }
+        ConcurrentSkipListMap<IssueCursor, Issue> index = orderIndexes.get(order);
+        Collection<Issue> fromCursor = (after == null ? index : index.tailMap(after, false)).values();
+        return query.isEmpty() ? fromCursor.iterator() : fromCursor.stream().filter(query::matches).iterator();
+    }
+
+    /**
+     * Small query planner: an issueId is a direct lookup, otherwise we walk the smallest of the
+     * email/type/status index entries that the query uses and check the remaining criteria on each issue.
+     * The cost follows the size of the most selective index entry, not the size of the store.
+     */
+    @Override
+    public List<Issue> findByQuery(IssueQuery query) {
+        List<Issue> result = new ArrayList<>();
+        if (query.isEmpty()) {
+            result.addAll(issueMap.values());
+            return result;
+        }
+
+        if (query.getIssueId() != null) {
+            Issue issue = issueMap.get(query.getIssueId());
+            if (issue == null) {
+                issue = issueMap.get(query.getIssueId().toUpperCase(Locale.ROOT)); // IDs are matched case-insensitively
+            }
+            if (issue != null && query.matches(issue)) {
+                result.add(issue);
+            }
+            return result;
+        }
+
+        // Picking the most selective index for the criteria that are present
+        Set<String> candidates = null;
+        if (query.getCustomerEmail() != null) {
+            candidates = emailIndex.getOrDefault(emailKey(query.getCustomerEmail()), Collections.emptySet());
+        }
+        if (query.getType() != null) {
+            candidates = smaller(candidates, typeIndex.get(query.getType()));
+        }
+        if (query.getStatus() != null) {
+            candidates = smaller(candidates, statusIndex.get(query.getStatus()));
+        }
+
+        // Intersecting with the other criteria by checking them on the issue itself,
+        // which also filters out anything that changed status while we were iterating
+        for (String issueId : candidates) {
+            Issue issue = issueMap.get(issueId);
+            if (issue != null && query.matches(issue)) {
+                result.add(issue);
+            }
+        }
+        return result;
+    }
+
+    // Called by Issue.setStatus() for every issue saved in this repository
+    @Override
+    public void onStatusChanged(Issue issue, IssueStatus oldStatus, IssueStatus newStatus) {
+        if (oldStatus != null) {
+            statusIndex.get(oldStatus).remove(issue.getId());
+        }
+        statusIndex.get(newStatus).add(issue.getId());
+    }
+
+    private void index(Issue issue) {
+        emailIndex.computeIfAbsent(emailKey(issue.getCustomerEmail()), key -> ConcurrentHashMap.newKeySet()).add(issue.getId());
+        typeIndex.get(issue.getType()).add(issue.getId());
+        statusIndex.get(issue.getStatus()).add(issue.getId());
+        for (IssueOrder order : IssueOrder.values()) {
+            orderIndexes.get(order).put(IssueCursor.of(issue, order), issue);
+        }
+    }
+
+    private void unindex(Issue issue) {
+        Set<String> byEmail = emailIndex.get(emailKey(issue.getCustomerEmail()));
+        if (byEmail != null) {
+            byEmail.remove(issue.getId());
+        }
+        typeIndex.get(issue.getType()).remove(issue.getId());
+        statusIndex.get(issue.getStatus()).remove(issue.getId());
+        for (IssueOrder order : IssueOrder.values()) {
+            orderIndexes.get(order).remove(IssueCursor.of(issue, order), issue);
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> smaller(Set<String> current, Set<String> other) {
+        return current == null || other.size() < current.size() ? other : current;
+    }
+
+    private static Map<IssueOrder, ConcurrentSkipListMap<IssueCursor, Issue>> newOrderIndexes() {
+        Map<IssueOrder, ConcurrentSkipListMap<IssueCursor, Issue>> indexes = new EnumMap<>(IssueOrder.class);
+        for (IssueOrder order : IssueOrder.values()) {
+            indexes.put(order, new ConcurrentSkipListMap<>());
+        }
+        return indexes;
+    }
+
+    // The EnumMap itself is filled once and never modified afterwards, only the sets inside it are
+    private static <E extends Enum<E>> Map<E, Set<String>> newEnumIndex(Class<E> enumType) {
+        Map<E, Set<String>> index = new EnumMap<>(enumType);
+        for (E value : enumType.getEnumConstants()) {
+            index.put(value, ConcurrentHashMap.newKeySet());
+        }
+        return index;
+    }
 }
@@ -0,0 +1,92 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Issue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * A position in one IssueOrder: the sort key of the last issue a reader has seen. A scan that resumes from a cursor
+ * returns the issues strictly after it, so issues created or removed in between don't shift the pages.
+ * Sort keys never change (ID and creation time are final), which is why they also serve as keys of the repository's
+ * ordered indexes.
+ * <p>
+ * Handed out to clients as an opaque URL-safe token (toToken() / parse()).
+ */
+public final class IssueCursor implements Comparable<IssueCursor> {
+    private final IssueOrder order;
+    private final String issueId;
+    private final LocalDateTime createdAt; // Only used (and only set) for CREATED_AT
+
+    private IssueCursor(IssueOrder order, String issueId, LocalDateTime createdAt) {
+        this.order = order;
+        this.issueId = issueId;
+        this.createdAt = order == IssueOrder.CREATED_AT ? createdAt : null;
+    }
+
+    // The position of the given issue
+    public static IssueCursor of(Issue issue, IssueOrder order) {
+        return new IssueCursor(order, issue.getId(), issue.getCreatedAt());
+    }
+
+    public static IssueCursor of(IssueOrder order, String issueId, LocalDateTime createdAt) {
+        if (issueId == null || (order == IssueOrder.CREATED_AT && createdAt == null)) {
+            throw new IllegalArgumentException("A cursor needs an issue ID, and a creation time for " + IssueOrder.CREATED_AT + ".");
+        }
+        return new IssueCursor(order, issueId, createdAt);
+    }
+
+    public IssueOrder getOrder() { return order; }
+
+    // "ID|<id>" or "CREATED_AT|<id>|<created at>", base64url encoded so clients don't try to build their own
+    public String toToken() {
+        String text = order == IssueOrder.ID ? order + "|" + issueId : order + "|" + issueId + "|" + createdAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Throws IllegalArgumentException for anything that toToken() didn't produce
+    public static IssueCursor parse(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+            IssueOrder order = IssueOrder.valueOf(parts[0]);
+            if (order == IssueOrder.ID && parts.length == 2) {
+                return of(order, parts[1], null);
+            }
+            if (order == IssueOrder.CREATED_AT && parts.length == 3) {
+                return of(order, parts[1], LocalDateTime.parse(parts[2]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor '" + token + "'.");
+    }
+
+    // Only meaningful between cursors of the same order
+    @Override
+    public int compareTo(IssueCursor other) {
+        if (order == IssueOrder.CREATED_AT) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            if (byTime != 0) {
+                return byTime;
+            }
+        }
+        return issueId.compareTo(other.issueId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IssueCursor)) {
+            return false;
+        }
+        IssueCursor other = (IssueCursor) o;
+        return order == other.order && issueId.equals(other.issueId) && Objects.equals(createdAt, other.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(order, issueId, createdAt);
+    }
+}
@@ -0,0 +1,7 @@
+package com.customersupport.repository;
+
+// Order in which IssueRepository.scan() returns issues; both are stable, so paging with a cursor never skips or repeats
+public enum IssueOrder {
+    ID,         // By issue ID, which is creation order (IDs are time-ordered, see IdGenerator)
+    CREATED_AT  // By creation timestamp, ties broken by issue ID
+}
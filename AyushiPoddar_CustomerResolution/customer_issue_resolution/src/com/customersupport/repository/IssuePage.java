@@ -0,0 +1,19 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Issue;
+
+import java.util.List;
+
+// One page of a cursor-paged issue query; nextCursor is null on the last page
+public class IssuePage {
+    private final List<Issue> issues;
+    private final String nextCursor;
+
+    public IssuePage(List<Issue> issues, String nextCursor) {
+        this.issues = issues;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Issue> getIssues() { return issues; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,41 @@
+package com.customersupport.repository;
+
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Issue;
+
+/**
+ * Already-parsed filter for IssueRepository.findByQuery().
+ * Every criterion is optional (null means "any"); all given criteria have to match.
+ */
+public class IssueQuery {
+    private final String customerEmail; // Matched case-insensitively
+    private final IssueType type;
+    private final String issueId;       // Matched case-insensitively
+    private final IssueStatus status;
+
+    public IssueQuery(String customerEmail, IssueType type, String issueId, IssueStatus status) {
+        this.customerEmail = customerEmail;
+        this.type = type;
+        this.issueId = issueId;
+        this.status = status;
+    }
+
+    // --- Getters ---
+    public String getCustomerEmail() { return customerEmail; }
+    public IssueType getType() { return type; }
+    public String getIssueId() { return issueId; }
+    public IssueStatus getStatus() { return status; }
+
+    public boolean isEmpty() {
+        return customerEmail == null && type == null && issueId == null && status == null;
+    }
+
+    // Checks a single issue against all the criteria
+    public boolean matches(Issue issue) {
+        return (customerEmail == null || issue.getCustomerEmail().equalsIgnoreCase(customerEmail))
+                && (type == null || issue.getType() == type)
+                && (issueId == null || issue.getId().equalsIgnoreCase(issueId))
+                && (status == null || issue.getStatus() == status);
+    }
+}
@@ -1,7 +1,11 @@
 package com.customersupport.repository;
 
 import com.customersupport.model.Issue;
+import com.customersupport.model.IssueStateMachine;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,4 +13,60 @@ public interface IssueRepository {
     Issue save(Issue issue);
     Optional<Issue> findById(String issueId);
     List<Issue> findAll();
+
+    // The issues that are not finished (OPEN, WAITING, IN_PROGRESS). The default filters findAll(); implementations that
+    // keep finished issues apart should override this so that those aren't loaded.
+    default List<Issue> findUnfinished() {
+        List<Issue> result = new ArrayList<>();
+        for (Issue issue : findAll()) {
+            if (!IssueStateMachine.isFinished(issue.getStatus())) {
+                result.add(issue);
+            }
+        }
+        return result;
+    }
+
+    // Feeds the fields of every finished issue (RESOLVED, CLOSED) to the visitor. The default goes through findAll();
+    // implementations that keep finished issues off the heap should override this to read the fields without
+    // building Issue objects.
+    default void forEachFinished(FinishedIssueVisitor visitor) {
+        for (Issue issue : findAll()) {
+            if (IssueStateMachine.isFinished(issue.getStatus())) {
+                visitor.visit(issue.getId(), issue.getType(), issue.getSubject(), issue.getDescription(),
+                        issue.getAssignedAgentId(), issue.getCreatedAt(), issue.getUpdatedAtMillis());
+            }
+        }
+    }
+
+    // Returns the issues matching every criterion of the query.
+    // Implementations with secondary indexes should override this; the default is a full scan.
+    default List<Issue> findByQuery(IssueQuery query) {
+        List<Issue> result = new ArrayList<>();
+        for (Issue issue : findAll()) {
+            if (query.matches(issue)) {
+                result.add(issue);
+            }
+        }
+        return result;
+    }
+
+    // The issues matching the query in the given order, starting right after the cursor (from the first one if it
+    // is null). Implementations with ordered indexes should override this to produce the issues lazily, so that a
+    // reader who stops after a page pays for that page only; the default sorts the whole result of findByQuery().
+    default Iterator<Issue> scan(IssueQuery query, IssueOrder order, IssueCursor after) {
+        List<Issue> result = new ArrayList<>();
+        for (Issue issue : findByQuery(query)) {
+            if (after == null || IssueCursor.of(issue, order).compareTo(after) > 0) {
+                result.add(issue);
+            }
+        }
+        result.sort(Comparator.comparing(issue -> IssueCursor.of(issue, order)));
+        return result.iterator();
+    }
+
+    // A consistent, unchanging view of every issue, for readers that want all of them (dashboards).
+    // The default copies every issue; implementations that can should keep a snapshot up to date as they save.
+    default IssueSnapshot snapshot() {
+        return IssueSnapshot.copyOf(findAll());
+    }
 }
@@ -0,0 +1,112 @@
+package com.customersupport.repository;
+
+import com.customersupport.model.Issue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Point-in-time view of an issue repository (see IssueRepository.snapshot()). The issues in it are copies taken
+ * when they were saved (see PublishedView), so they don't change afterwards and must not
+ * be modified; writers never wait for a snapshot, and reading one never waits for writers.
+ *
+ * A snapshot of a TieredIssueRepository also covers the rows the archive had when it was taken. Those are read
+ * from the archive when the snapshot is read, one fresh Issue per read, so that a snapshot never holds the archive
+ * on the heap. Archived issues are finished and only ever move on to CLOSED, which such a read may already show.
+ */
+public final class IssueSnapshot {
+    private final PersistentHashMap<String, Issue> issues; // ID -> issue as it was saved
+    private final ColumnarIssueArchive archive;            // null if every issue is in the map
+    private final int archivedRows;
+
+    IssueSnapshot(PersistentHashMap<String, Issue> issues) {
+        this(issues, null, 0);
+    }
+
+    private IssueSnapshot(PersistentHashMap<String, Issue> issues, ColumnarIssueArchive archive, int archivedRows) {
+        this.issues = issues;
+        this.archive = archive;
+        this.archivedRows = archivedRows;
+    }
+
+    // This snapshot plus the first archivedRows rows of the archive, which must not hold any of this snapshot's issues
+    IssueSnapshot withArchive(ColumnarIssueArchive archive, int archivedRows) {
+        return new IssueSnapshot(issues, archive, archivedRows);
+    }
+
+    // A snapshot of copies of the given issues, for repositories that don't keep one up to date
+    static IssueSnapshot copyOf(Iterable<Issue> issues) {
+        PersistentHashMap<String, Issue> map = PersistentHashMap.empty();
+        for (Issue issue : issues) {
+            map = map.plus(issue.getId(), issue.copy());
+        }
+        return new IssueSnapshot(map);
+    }
+
+    public int size() {
+        return issues.size() + archivedRows;
+    }
+
+    public Optional<Issue> findById(String issueId) {
+        Issue issue = issues.get(issueId);
+        return issue != null || archive == null ? Optional.ofNullable(issue) : Optional.ofNullable(archive.get(issueId, archivedRows));
+    }
+
+    // The archived issues come after the others, and are only read from the archive as the list is read
+    public List<Issue> findAll() {
+        List<Issue> inMap = issues.values();
+        if (archive == null) {
+            return inMap;
+        }
+        return new ArchivedIssueList(inMap, archive, archivedRows);
+    }
+
+    // A scan: snapshots carry no secondary indexes
+    public List<Issue> findByQuery(IssueQuery query) {
+        List<Issue> result = new ArrayList<>();
+        issues.forEach((issueId, issue) -> {
+            if (query.matches(issue)) {
+                result.add(issue);
+            }
+        });
+        if (archive != null) {
+            archive.scan(query, archivedRows, result::add);
+        }
+        return result;
+    }
+
+    public void forEach(Consumer<Issue> action) {
+        issues.forEach((issueId, issue) -> action.accept(issue));
+        for (int row = 0; row < archivedRows; row++) {
+            action.accept(archive.getRow(row)); // Row by row, so that a slow action doesn't hold up the archive's writers
+        }
+    }
+
+    // Read-only list of the issues in the map followed by the archived rows, each materialized when it is read
+    private static final class ArchivedIssueList extends AbstractList<Issue> implements RandomAccess {
+        private final List<Issue> inMap;
+        private final ColumnarIssueArchive archive;
+        private final int archivedRows;
+
+        ArchivedIssueList(List<Issue> inMap, ColumnarIssueArchive archive, int archivedRows) {
+            this.inMap = inMap;
+            this.archive = archive;
+            this.archivedRows = archivedRows;
+        }
+
+        @Override
+        public Issue get(int index) {
+            return index < inMap.size() ? inMap.get(index) : archive.getRow(Objects.checkIndex(index - inMap.size(), archivedRows));
+        }
+
+        @Override
+        public int size() {
+            return inMap.size() + archivedRows;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.customersupport.repository;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * The copy-on-write view behind snapshot() of the in-memory repositories, published on the write path. Every save
+ * copies the saved object into a new version of the trie, which shares all other nodes with the previous version,
+ * and swaps it in with one volatile write. Reading the view is a plain volatile read: readers never lock, never
+ * copy, and always see a version that holds every object as of its latest completed save.
+ *
+ * Writers take the publish lock only around the path copy, so a save never retries its copy, and when two saves of
+ * the same object race, the one that publishes last copies it last and the version holds its latest state.
+ */
+final class PublishedView<V> {
+    private final Function<V, String> keyOf;
+    private final UnaryOperator<V> copier;
+
+    private final ReentrantLock publishLock = new ReentrantLock(); // Writers only
+    private volatile PersistentHashMap<String, V> published = PersistentHashMap.empty();
+
+    PublishedView(Function<V, String> keyOf, UnaryOperator<V> copier) {
+        this.keyOf = keyOf;
+        this.copier = copier;
+    }
+
+    void publish(V value) {
+        publishLock.lock();
+        try {
+            published = published.plus(keyOf.apply(value), copier.apply(value));
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    void remove(String key) {
+        publishLock.lock();
+        try {
+            published = published.minus(key);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    PersistentHashMap<String, V> current() {
+        return published;
+    }
+}
@@ -0,0 +1,121 @@
+package com.customersupport.repository;
+
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.model.Issue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Two-tier issue repository: active issues (OPEN, WAITING, IN_PROGRESS) stay as indexed heap objects, while
+ * RESOLVED and CLOSED issues are moved to the off-heap ColumnarIssueArchive as soon as they are saved in that state
+ * (which IssueService.resolveIssue() does). Callers don't see the difference, except that an archived issue comes
+ * back as a fresh Issue object on every lookup.
+ *
+ * The archive stays in archiveDirectory across restarts, so a repository opened on the same directory again starts
+ * with every finished issue of the earlier runs; the active tier starts empty.
+ */
+public class TieredIssueRepository implements IssueRepository, Closeable {
+    private final InMemoryIssueRepository active = new InMemoryIssueRepository();
+    private final ColumnarIssueArchive archive;
+
+    // Held while an issue is written to the archive and leaves the active tier, and while snapshot() reads the two
+    //tiers, so that a snapshot sees every issue in exactly one of them. Saves of active issues don't take it.
+    private final ReentrantLock moveLock = new ReentrantLock();
+
+    public TieredIssueRepository(Path archiveDirectory) throws IOException {
+        this.archive = new ColumnarIssueArchive(archiveDirectory);
+    }
+
+    @Override
+    public Issue save(Issue issue) {
+        if (isFinished(issue.getStatus())) {
+            // Written to the archive before it leaves the active tier, so lookups always find it somewhere
+            moveLock.lock();
+            try {
+                archive.put(issue);
+                active.delete(issue.getId());
+            } finally {
+                moveLock.unlock();
+            }
+        } else {
+            active.save(issue);
+        }
+        return issue;
+    }
+
+    @Override
+    public Optional<Issue> findById(String issueId) {
+        Optional<Issue> issue = active.findById(issueId);
+        return issue.isPresent() ? issue : Optional.ofNullable(archive.get(issueId));
+    }
+
+    @Override
+    public List<Issue> findAll() {
+        return findByQuery(new IssueQuery(null, null, null, null));
+    }
+
+    @Override
+    public List<Issue> findByQuery(IssueQuery query) {
+        List<Issue> result = active.findByQuery(query);
+        if (query.getStatus() != null && !isFinished(query.getStatus())) {
+            return result; // Only active issues can match
+        }
+        // An issue is briefly in both tiers while it is being moved, so don't report it twice
+        Set<String> seen = new HashSet<>();
+        for (Issue issue : result) {
+            seen.add(issue.getId());
+        }
+        archive.scan(query, issue -> {
+            if (!seen.contains(issue.getId())) {
+                result.add(issue);
+            }
+        });
+        return result;
+    }
+
+    // Only the active tier: the archive holds finished issues only
+    @Override
+    public List<Issue> findUnfinished() {
+        return active.findUnfinished();
+    }
+
+    // Straight from the archive's columns, without materializing the archived issues
+    @Override
+    public void forEachFinished(FinishedIssueVisitor visitor) {
+        archive.visit(visitor);
+    }
+
+    // scan() is the default (sorting findByQuery()): the archive is only scanned front to back, in no useful order.
+
+    // The active tier's snapshot plus the rows the archive has now, which are read from the archive only when the
+    //snapshot is read (see IssueSnapshot). The archive isn't copied onto the heap.
+    @Override
+    public IssueSnapshot snapshot() {
+        moveLock.lock();
+        try {
+            return active.snapshot().withArchive(archive, archive.size());
+        } finally {
+            moveLock.unlock();
+        }
+    }
+
+    public int archivedCount() {
+        return archive.size();
+    }
+
+    private static boolean isFinished(IssueStatus status) {
+        return status == IssueStatus.RESOLVED || status == IssueStatus.CLOSED;
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.customersupport.scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task scheduled on a TimingWheel. Cancelling is O(1) and can be done from any thread; the wheel's thread unlinks
+ * the timeout from its slot on the next tick.
+ */
+public final class Timeout {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final TimingWheel wheel;
+    private final long deadlineMillis;
+    private final Runnable task;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    // Only touched by the wheel's thread: position in the wheel, as a doubly linked list per slot
+    final long deadlineTick;
+    TimingWheel.Slot slot;
+    Timeout previous;
+    Timeout next;
+
+    Timeout(TimingWheel wheel, long deadlineMillis, long deadlineTick, Runnable task) {
+        this.wheel = wheel;
+        this.deadlineMillis = deadlineMillis;
+        this.deadlineTick = deadlineTick;
+        this.task = task;
+    }
+
+    public long getDeadlineMillis() { return deadlineMillis; }
+    public boolean isCancelled() { return state.get() == CANCELLED; }
+    public boolean isExpired() { return state.get() == EXPIRED; }
+    boolean isPending() { return state.get() == PENDING; }
+
+    /**
+     * Makes sure the task won't run. Returns false if it already ran (or is running), or was cancelled before.
+     */
+    public boolean cancel() {
+        if (!state.compareAndSet(PENDING, CANCELLED)) {
+            return false;
+        }
+        wheel.cancelled(this);
+        return true;
+    }
+
+    // Called by the wheel's thread; loses against a concurrent cancel()
+    boolean expire() {
+        return state.compareAndSet(PENDING, EXPIRED);
+    }
+
+    Runnable getTask() { return task; }
+}
@@ -0,0 +1,251 @@
+package com.customersupport.scheduler;
+
+import com.customersupport.instrumentation.Logger;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel for large numbers of one-shot timers (one or more per issue).
+ *
+ * Time is cut into ticks of tickMillis. Level 0 has one slot per tick for the next slotsPerLevel ticks, level 1 one
+ * slot per slotsPerLevel ticks, and so on; a timer goes into the coarsest level that still tells its slot apart from
+ * the current one. Whenever a level wraps around, the next slot of the level above is emptied into the finer levels
+ * (cascading), so every timer is moved at most once per level. With the defaults (64 slots, 4 levels) the wheel spans
+ * 64^4 ticks; later deadlines wait in the last slot of the top level and are placed again when it comes around.
+ *
+ * schedule() and Timeout.cancel() are O(1) and lock-free: they only append to a queue and flip a state flag. The
+ * wheel itself belongs to a single daemon thread, which places new timers, unlinks cancelled ones and runs expired
+ * tasks once per tick. Tasks therefore run on that thread, within about a tick after their deadline (never before);
+ * they should hand off anything slow. A task that throws is logged and doesn't affect the other timers.
+ */
+public final class TimingWheel implements Closeable {
+    private static final Logger LOG = Logger.get(TimingWheel.class);
+    private static final int DEFAULT_SLOTS_PER_LEVEL = 64;
+    private static final int DEFAULT_LEVELS = 4;
+
+    private final long tickMillis;
+    private final int slotBits;
+    private final long slotMask;
+    private final int levels;
+    private final long horizonTicks; // Deadlines further out than this are placed as if they were this far out
+    private final long startMillis;
+    private final Slot[][] wheel; // [level][slot]
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    // Only touched by the worker thread
+    private long currentTick;
+
+    public TimingWheel(long tickMillis) {
+        this(tickMillis, DEFAULT_SLOTS_PER_LEVEL, DEFAULT_LEVELS);
+    }
+
+    // slotsPerLevel must be a power of two; the wheel spans slotsPerLevel^levels ticks
+    public TimingWheel(long tickMillis, int slotsPerLevel, int levels) {
+        if (tickMillis < 1 || slotsPerLevel < 2 || Integer.bitCount(slotsPerLevel) != 1 || levels < 1) {
+            throw new IllegalArgumentException("Needs tickMillis >= 1, a power of two >= 2 slots per level and at least one level.");
+        }
+        this.tickMillis = tickMillis;
+        this.slotBits = Integer.numberOfTrailingZeros(slotsPerLevel);
+        if ((long) slotBits * levels > 62) {
+            throw new IllegalArgumentException("A wheel of " + slotsPerLevel + "^" + levels + " ticks is too large.");
+        }
+        this.slotMask = slotsPerLevel - 1;
+        this.levels = levels;
+        this.horizonTicks = 1L << (slotBits * levels);
+        this.wheel = new Slot[levels][slotsPerLevel];
+        for (Slot[] level : wheel) {
+            for (int s = 0; s < level.length; s++) {
+                level[s] = new Slot();
+            }
+        }
+        this.startMillis = System.currentTimeMillis();
+        this.worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Runs the task once the wall clock (System.currentTimeMillis()) reaches deadlineMillis, or at the next tick if
+     * that has passed already.
+     */
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("The timing wheel is closed.");
+        }
+        // Rounded up, so a timer never fires before its deadline
+        long deadlineTick = Math.max(0, Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis));
+        Timeout timeout = new Timeout(this, deadlineMillis, deadlineTick, task);
+        pending.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    // Timers that have neither run nor been cancelled
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    // Called by Timeout.cancel() after it won the state change
+    void cancelled(Timeout timeout) {
+        pending.decrementAndGet();
+        cancelledTimeouts.add(timeout);
+    }
+
+    // --- Worker thread ---
+
+    private void run() {
+        while (!closed) {
+            long now = System.currentTimeMillis();
+            placeNewTimeouts();
+            unlinkCancelledTimeouts();
+            long targetTick = Math.floorDiv(now - startMillis, tickMillis);
+            while (currentTick < targetTick && !closed) {
+                currentTick++;
+                advance();
+            }
+            long nextTickMillis = startMillis + (currentTick + 1) * tickMillis;
+            long waitMillis = nextTickMillis - System.currentTimeMillis();
+            if (waitMillis > 0 && !closed) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMillis));
+            }
+        }
+    }
+
+    private void placeNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (!timeout.isPending()) {
+                continue; // Cancelled before it got here
+            }
+            if (timeout.deadlineTick <= currentTick) {
+                expire(timeout); // The slot of the current tick has been processed already
+            } else {
+                place(timeout);
+            }
+        }
+    }
+
+    private void unlinkCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+            }
+        }
+    }
+
+    // Moves the wheel to currentTick: cascades the levels that wrapped around (coarsest first), then runs the due slot
+    private void advance() {
+        for (int level = levels - 1; level >= 1; level--) {
+            int shift = slotBits * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                Timeout timeout = wheel[level][(int) ((currentTick >>> shift) & slotMask)].detach();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    if (timeout.isPending()) {
+                        place(timeout); // Never earlier than currentTick, so it lands in this tick's slot at the latest
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        Timeout timeout = wheel[0][(int) (currentTick & slotMask)].detach();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.deadlineTick <= currentTick) {
+                expire(timeout);
+            } else if (timeout.isPending()) {
+                place(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    // Expects deadlineTick >= currentTick
+    private void place(Timeout timeout) {
+        long delta = Math.min(timeout.deadlineTick - currentTick, horizonTicks - 1);
+        int level = delta == 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / slotBits;
+        long slot = ((currentTick + delta) >>> (slotBits * level)) & slotMask;
+        wheel[level][(int) slot].add(timeout);
+    }
+
+    private void expire(Timeout timeout) {
+        if (!timeout.expire()) {
+            return; // Lost against cancel()
+        }
+        pending.decrementAndGet();
+        try {
+            timeout.getTask().run();
+        } catch (RuntimeException e) {
+            LOG.error("Timer task failed.", e);
+        }
+    }
+
+    // Stops the worker; timers that haven't fired yet never will
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The timers of one slot, as a doubly linked list through the Timeouts themselves (no allocation per timer)
+    static final class Slot {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.slot = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        // Empties the slot and returns its timers, still linked through next
+        Timeout detach() {
+            Timeout first = head;
+            head = null;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.slot = null;
+                timeout.previous = null;
+            }
+            return first;
+        }
+    }
+}
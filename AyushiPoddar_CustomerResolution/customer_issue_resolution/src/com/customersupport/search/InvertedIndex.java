@@ -0,0 +1,295 @@
+package com.customersupport.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over the subject and description of issues, ranked with BM25.
+ * <p>
+ * Every added document gets the next document number. Per term, the postings are a byte array of
+ * (document number delta, term frequency) pairs as varints, in document order, so a term costs about two bytes per
+ * document that contains it. Subject terms count twice: a word in the subject says more about the issue than the
+ * same word somewhere in the description.
+ * <p>
+ * Adding is serialized by a lock; searching takes no lock. Writers fill a postings array (or a larger copy of it)
+ * before they publish its new length, and documents become visible all at once, when the document count is published
+ * after their postings. A search reads the count first and ignores postings beyond it.
+ * <p>
+ * Documents are never removed: subject and description don't change, and issues are not deleted.
+ */
+public class InvertedIndex {
+    // The usual BM25 parameters: term frequency saturation and document length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SUBJECT_WEIGHT = 2;
+    // Lowest score first; among equal scores the newest document, so that older ones win ties
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::getScore)
+            .thenComparing(Comparator.comparingInt(Hit::getDocument).reversed());
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<String, Postings> postingsByTerm = new ConcurrentHashMap<>();
+
+    // Document number -> key and (weighted) length in terms. Grown by copying, like the postings.
+    private volatile String[] keys = new String[1024];
+    private volatile int[] lengths = new int[1024];
+    private volatile long totalLength;
+    private volatile int documentCount;
+
+    public void add(String key, String subject, String description) {
+        // Term frequencies are counted before the lock is taken
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(subject, SUBJECT_WEIGHT, frequencies) + count(description, 1, frequencies);
+
+        writeLock.lock();
+        try {
+            int document = documentCount;
+            if (document == keys.length) {
+                String[] grownKeys = Arrays.copyOf(keys, document * 2);
+                int[] grownLengths = Arrays.copyOf(lengths, document * 2);
+                keys = grownKeys;
+                lengths = grownLengths;
+            }
+            keys[document] = key;
+            lengths[document] = length;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postingsByTerm.computeIfAbsent(entry.getKey(), term -> new Postings()).append(document, entry.getValue());
+            }
+            totalLength += length;
+            documentCount = document + 1; // Publishes the document with all its postings
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return documentCount;
+    }
+
+    /**
+     * The best matches for the text, best first, at most limit of them. A document matches if it contains any of
+     * the terms; more (and rarer) terms rank higher. Only documents whose key the filter accepts are returned; the
+     * filter is asked only about documents that would make it into the result, so it may be costly.
+     * <p>
+     * The postings of the query terms are walked side by side in document order (document at a time), so memory
+     * is one cursor per term plus the result, whatever the number of matches. Once the result is full, terms whose
+     * best possible contribution can't lift a document above the current worst hit no longer propose documents
+     * (MaxScore): a query like "payment failed upi" then only visits the documents with "upi" in them, and looks
+     * "payment" and "failed" up for those.
+     */
+    public List<Hit> search(String text, int limit, Predicate<String> filter) {
+        int count = documentCount; // Read first: nothing beyond it is looked at
+        List<Hit> hits = new ArrayList<>();
+        if (count == 0 || limit <= 0) {
+            return hits;
+        }
+        String[] documentKeys = keys;
+        int[] documentLengths = lengths;
+        double averageLength = Math.max(1.0, (double) totalLength / count);
+
+        List<TermCursor> found = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(TextTokenizer.tokenize(text))) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings != null) {
+                int length = postings.length; // Read before the rest, see Postings
+                TermCursor cursor = new TermCursor(postings.bytes, length, idf(postings.documentFrequency, count),
+                        postings.maxFrequency);
+                if (cursor.next()) {
+                    found.add(cursor);
+                }
+            }
+        }
+        // Weakest term first; upTo[i] is the most that terms 0..i together can add to a score
+        TermCursor[] cursors = found.toArray(new TermCursor[0]);
+        Arrays.sort(cursors, Comparator.comparingDouble(TermCursor::getMaxScore));
+        double[] upTo = new double[cursors.length];
+        for (int i = 0; i < cursors.length; i++) {
+            upTo[i] = cursors[i].getMaxScore() + (i == 0 ? 0 : upTo[i - 1]);
+        }
+
+        double[] parts = new double[cursors.length]; // Per term, its part of the current document's score
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        int essential = 0; // Cursors before this one can't make a document good enough on their own
+        while (true) {
+            // A document must beat the worst hit (later documents lose ties), so anything up to it is pruned
+            double threshold = best.size() < limit ? -1 : best.peek().getScore();
+            while (essential < cursors.length && upTo[essential] <= threshold) {
+                essential++;
+            }
+            int document = Integer.MAX_VALUE;
+            for (int i = essential; i < cursors.length; i++) {
+                document = Math.min(document, cursors[i].document);
+            }
+            if (document >= count) {
+                break; // No more candidates, or only ones added after the search started
+            }
+            double lengthNorm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+            double partial = 0;
+            for (int i = essential; i < cursors.length; i++) {
+                TermCursor cursor = cursors[i];
+                parts[i] = 0;
+                if (cursor.document == document) {
+                    parts[i] = cursor.score(lengthNorm);
+                    partial += parts[i];
+                    cursor.next();
+                }
+            }
+            boolean pruned = false;
+            for (int i = essential - 1; i >= 0; i--) {
+                if (partial + upTo[i] <= threshold) {
+                    pruned = true;
+                    break;
+                }
+                TermCursor cursor = cursors[i];
+                parts[i] = cursor.skipTo(document) ? cursor.score(lengthNorm) : 0;
+                partial += parts[i];
+            }
+            // Summed in one fixed order, so a score doesn't depend on which terms were essential at the time
+            double score = 0;
+            for (int i = 0; i < cursors.length && !pruned; i++) {
+                score += parts[i];
+            }
+            if (!pruned && score > threshold && filter.test(documentKeys[document])) {
+                best.add(new Hit(documentKeys[document], document, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        hits.addAll(best);
+        hits.sort(WORST_FIRST.reversed());
+        return hits;
+    }
+
+    private static double idf(int documentFrequency, int documentCount) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static int count(String text, int weight, Map<String, Integer> frequencies) {
+        List<String> terms = TextTokenizer.tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    // One search result; the document number orders equal scores
+    public static final class Hit {
+        private final String key;
+        private final int document;
+        private final double score;
+
+        Hit(String key, int document, double score) {
+            this.key = key;
+            this.document = document;
+            this.score = score;
+        }
+
+        public String getKey() { return key; }
+        public double getScore() { return score; }
+        int getDocument() { return document; }
+    }
+
+    // Append-only postings of one term. The writer writes into the array (growing it by copying first) and updates
+    //the statistics, and only then publishes the new length; a reader reads the length first, so the array it reads
+    //next (the same or a larger copy) holds at least that many valid bytes, and the statistics cover them.
+    private static final class Postings {
+        volatile byte[] bytes = new byte[8];
+        volatile int length;
+        volatile int documentFrequency;
+        volatile int maxFrequency;
+        private int lastDocument = -1; // Only used by the writer
+
+        void append(int document, int frequency) {
+            byte[] target = bytes;
+            if (target.length - length < 10) { // Two varints of up to 5 bytes
+                target = Arrays.copyOf(target, Math.max(16, target.length + (target.length >> 1)));
+                bytes = target;
+            }
+            int position = writeVarint(target, length, document - lastDocument);
+            position = writeVarint(target, position, frequency);
+            lastDocument = document;
+            documentFrequency++;
+            maxFrequency = Math.max(maxFrequency, frequency);
+            length = position;
+        }
+
+        private static int writeVarint(byte[] target, int position, int value) {
+            while ((value & ~0x7F) != 0) {
+                target[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[position++] = (byte) value;
+            return position;
+        }
+    }
+
+    // Reads one term's postings in document order; document is Integer.MAX_VALUE once they are exhausted
+    private static final class TermCursor {
+        private final byte[] bytes;
+        private final int length;
+        private final double idf;
+        private final double maxScore;
+        private int position;
+        int document = -1;
+        private int frequency;
+
+        TermCursor(byte[] bytes, int length, double idf, int maxFrequency) {
+            this.bytes = bytes;
+            this.length = length;
+            this.idf = idf;
+            // score() with the highest frequency and the shortest possible document (length norm K1 * (1 - B))
+            this.maxScore = score(idf, maxFrequency, K1 * (1 - B));
+        }
+
+        double getMaxScore() { return maxScore; }
+
+        // This term's part of the BM25 score of the current document
+        double score(double lengthNorm) {
+            return score(idf, frequency, lengthNorm);
+        }
+
+        private static double score(double idf, int frequency, double lengthNorm) {
+            return idf * frequency * (K1 + 1) / (frequency + lengthNorm);
+        }
+
+        boolean next() {
+            if (position >= length) {
+                document = Integer.MAX_VALUE;
+                return false;
+            }
+            document += readVarint();
+            frequency = readVarint();
+            return true;
+        }
+
+        // Moves to the first document at or after target; true if that is target itself
+        boolean skipTo(int target) {
+            while (document < target && next()) {
+                // Just decoding
+            }
+            return document == target;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -4,36 +4,66 @@ import com.customersupport.enums.AgentStatus;
 import com.customersupport.enums.IssueType;
 import com.customersupport.exceptions.AgentNotFoundException;
 import com.customersupport.exceptions.InvalidFilterException; // Using new exception for invalid input
+import com.customersupport.instrumentation.Logger;
 import com.customersupport.model.Agent;
 import com.customersupport.repository.AgentRepository;
+import com.customersupport.repository.AgentSnapshot;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class AgentService {
+    private static final Logger LOG = Logger.get(AgentService.class);
+
     private final AgentRepository agentRepo;
+    private final IdGenerator agentIds;
 
     public AgentService(AgentRepository agentRepo) {
+        this(agentRepo, new IdGenerator("A", 0));
+    }
+
+    public AgentService(AgentRepository agentRepo, IdGenerator agentIds) {
         this.agentRepo = agentRepo;
+        this.agentIds = agentIds;
+        // Agents recovered from a durable store keep their IDs; new ones have to sort after them
+        for (Agent agent : agentRepo.findAll()) {
+            agentIds.advancePast(agent.getAgentId());
+        }
     }
 
     public Agent addAgent(String email, String name, List<IssueType> expertiseTypes) {
+        return addAgent(email, name, expertiseTypes, Agent.DEFAULT_CAPACITY);
+    }
+
+    // capacity is the number of issues the agent works on at the same time (slots), at least 1
+    public Agent addAgent(String email, String name, List<IssueType> expertiseTypes, int capacity) {
         // Input Validations
         if (email == null || email.isEmpty() || name == null || name.isEmpty() || expertiseTypes == null || expertiseTypes.isEmpty()) {
             throw new IllegalArgumentException("Agent email, name, and expertise cannot be empty.");
         }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Agent capacity must be at least 1, got " + capacity + ".");
+        }
 
         // Check if agent already exists (important for unique emails)
-        if (agentRepo.findByEmail(email).isPresent()) {
-            System.out.println("Agent with email '" + email + "' already exists. Returning existing agent.");
-            return agentRepo.findByEmail(email).get(); // Return existing agent
+        Optional<Agent> existing = agentRepo.findByEmail(email);
+        if (existing.isPresent()) {
+            LOG.info("Agent with email '{}' already exists. Returning existing agent.", email);
+            return existing.get(); // Return existing agent
         }
 
-        String agentId = "A" + (agentRepo.findAll().size() + 1); // Simple sequential ID based on current count
+        String agentId = agentIds.next(); // Time-ordered, so IDs sort in the order in which agents were added
 
-        Agent agent = new Agent(agentId, email, name, expertiseTypes);
-        return agentRepo.save(agent).orElseThrow(() -> new RuntimeException("Failed to save new agent.")); // Should always be present
+        // Two concurrent adds with the same email can both get past the check above; saveIfAbsent() lets only one
+        //of them in, and the other gets the agent that won
+        Agent agent = new Agent(agentId, email, name, expertiseTypes, capacity);
+        Agent saved = agentRepo.saveIfAbsent(agent);
+        if (saved != agent) {
+            LOG.info("Agent with email '{}' already exists. Returning existing agent.", email);
+        }
+        return saved;
     }
 
     public Agent getAgentByEmail(String email) { // Renamed for clarity
@@ -46,7 +76,12 @@ public class AgentService {
                 .orElseThrow(() -> new AgentNotFoundException("Agent with ID '" + agentId + "' not found."));
     }
 
+    // Copies from the repository's latest snapshot, so the statuses are all as of one moment
     public List<Agent> getAllAgents() {
-        return agentRepo.findAll();
+        return agentRepo.snapshot().findAll();
+    }
+
+    public AgentSnapshot getAgentsSnapshot() {
+        return agentRepo.snapshot();
     }
 }
@@ -0,0 +1,54 @@
+package com.customersupport.service;
+
+import com.customersupport.model.Issue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The open issues of an IssueService by transaction ID and customer email (case-insensitive), and the issues that
+ * were linked to each of them as duplicates. A lookup is one ConcurrentHashMap probe, so the common case (no open
+ * issue for the transaction) costs the same as a hit and takes no lock.
+ *
+ * An issue is the primary of its key from claim() until release(), which IssueService calls under the lock of the
+ * primary's type when it is resolved. Duplicates are linked under that same lock, after checking isPrimary(), so
+ * once a primary is released its list of duplicates doesn't grow any more.
+ */
+final class DuplicateIndex {
+    // Key -> the open issue that new issues with this key are linked to
+    private final Map<String, Issue> primaries = new ConcurrentHashMap<>();
+    // Primary issue ID -> IDs of the issues linked to it, in the order in which they were linked
+    private final Map<String, List<String>> duplicates = new ConcurrentHashMap<>();
+
+    // Makes the issue the primary of its key, unless there already is one: that one is returned
+    Issue claim(Issue issue) {
+        return primaries.putIfAbsent(key(issue), issue);
+    }
+
+    boolean isPrimary(Issue issue) {
+        return primaries.get(key(issue)) == issue;
+    }
+
+    // The issue is finished; the next issue with its key is a new primary
+    void release(Issue primary) {
+        primaries.remove(key(primary), primary);
+    }
+
+    void link(String primaryId, String duplicateId) {
+        duplicates.computeIfAbsent(primaryId, id -> Collections.synchronizedList(new ArrayList<>())).add(duplicateId);
+    }
+
+    // Forgets and returns the duplicates of a released primary
+    List<String> removeDuplicates(String primaryId) {
+        List<String> linked = duplicates.remove(primaryId);
+        return linked == null ? Collections.emptyList() : linked;
+    }
+
+    private static String key(Issue issue) {
+        return issue.getTransactionId() + '\u0000' + issue.getCustomerEmail().toLowerCase(Locale.ROOT);
+    }
+}
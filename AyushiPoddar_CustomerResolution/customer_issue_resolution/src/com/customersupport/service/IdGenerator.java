@@ -0,0 +1,125 @@
+package com.customersupport.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered IDs such as "I01J9Y3ZK8W000" without locking and without looking at the repository.
+ * <p>
+ * Every ID is a 64-bit number (snowflake layout): 41 bits of milliseconds since 2024-01-01 UTC, 10 bits of node ID
+ * (so separate nodes never hand out the same ID) and a 12-bit sequence within the millisecond. It is written as a
+ * prefix plus 13 Crockford base32 characters; the width is fixed, so string order is the same as numeric order,
+ * which is creation order. IDs from one generator always increase, even if the clock goes back or more than 4096
+ * IDs are asked for in one millisecond (the generator then runs a little ahead of the clock).
+ */
+public class IdGenerator {
+    static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int ENCODED_LENGTH = 13; // ceil(64 / 5)
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray(); // Crockford, no I L O U
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final String prefix;
+    private final long nodeBits;
+
+    // The last (timestamp << SEQUENCE_BITS | sequence) handed out; the node bits are added on top when encoding
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public IdGenerator(String prefix, int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ", got " + nodeId + ".");
+        }
+        this.prefix = prefix;
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    // The node ID this generator puts into its IDs
+    public int getNodeId() {
+        return (int) (nodeBits >>> SEQUENCE_BITS);
+    }
+
+    public String next() {
+        return prefix + encode(nextValue());
+    }
+
+    public long nextValue() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long previous;
+        long tick;
+        do {
+            previous = lastTick.get();
+            // A new millisecond starts the sequence at 0; otherwise (same millisecond, or the clock went back) count on.
+            // A full sequence carries over into the next millisecond.
+            tick = now > previous ? now : previous + 1;
+        } while (!lastTick.compareAndSet(previous, tick));
+        return toValue(tick);
+    }
+
+    /**
+     * Makes sure every ID generated from now on sorts after the given one, e.g. after recovering IDs from storage
+     * that may have been generated with a clock ahead of this one. IDs in another format are ignored.
+     */
+    public void advancePast(String id) {
+        long value = decode(id);
+        if (value < 0) {
+            return;
+        }
+        // The ID may come from another node with a higher node ID, so only the next millisecond is sure to sort after it
+        long tick = (value >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | SEQUENCE_MASK;
+        lastTick.accumulateAndGet(tick, Math::max);
+    }
+
+    // The moment (epoch millis) at which the ID was generated, or -1 if it isn't an ID of this generator's format
+    public long timestampOf(String id) {
+        long value = decode(id);
+        return value < 0 ? -1 : (value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    // The node that generated the ID, or -1 if it isn't an ID of this generator's format (any node, same prefix)
+    public int nodeIdOf(String id) {
+        long value = decode(id);
+        return value < 0 ? -1 : (int) (value >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    private long toValue(long tick) {
+        long timestamp = tick >>> SEQUENCE_BITS;
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeBits | (tick & SEQUENCE_MASK);
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // The numeric value of an ID with this generator's prefix, or -1 if the ID has a different format
+    private long decode(String id) {
+        if (id == null || id.length() != prefix.length() + ENCODED_LENGTH || !id.startsWith(prefix)) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            int digit = digitOf(id.charAt(i));
+            // The first character only carries the top bit of the 64, and that is never set
+            if (digit < 0 || (i == prefix.length() && digit != 0)) {
+                return -1;
+            }
+            value = value << 5 | digit;
+        }
+        return value;
+    }
+
+    private static int digitOf(char c) {
+        for (int digit = 0; digit < ALPHABET.length; digit++) {
+            if (ALPHABET[digit] == c) {
+                return digit;
+            }
+        }
+        return -1;
+    }
+}
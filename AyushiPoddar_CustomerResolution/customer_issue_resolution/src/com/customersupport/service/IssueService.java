@@ -1,44 +1,254 @@
 package com.customersupport.service;
 
-import com.customersupport.enums.AgentStatus;
+import com.customersupport.enums.IssuePriority;
 import com.customersupport.enums.IssueStatus;
 import com.customersupport.enums.IssueType;
+import com.customersupport.enums.StaleIssueAction;
+import com.customersupport.events.IssueEvent;
+import com.customersupport.events.IssueEventPublisher;
+import com.customersupport.events.IssueEventType;
+import com.customersupport.events.LoggingIssueEventListener;
 import com.customersupport.exceptions.*; // Import all custom exceptions
+import com.customersupport.instrumentation.Logger;
 import com.customersupport.model.Agent;
+import com.customersupport.model.AgentWorkStats;
 import com.customersupport.model.Issue;
+import com.customersupport.model.IssueRequest;
+import com.customersupport.model.IssueStateMachine;
 import com.customersupport.repository.AgentRepository;
+import com.customersupport.repository.FreeAgentIndex;
+import com.customersupport.repository.IssueCursor;
+import com.customersupport.repository.IssueOrder;
+import com.customersupport.repository.IssuePage;
+import com.customersupport.repository.IssueQuery;
 import com.customersupport.repository.IssueRepository;
+import com.customersupport.repository.IssueSnapshot;
+import com.customersupport.Strategy.BipartiteBatchMatcher;
 import com.customersupport.Strategy.IssueAssignmentStrategy; // Import assignment strategy
+import com.customersupport.Strategy.WaitingIssueQueues;
+import com.customersupport.scheduler.TimingWheel;
+import com.customersupport.search.InvertedIndex;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue; // For thread-safe queues
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class IssueService {
+    private static final Logger LOG = Logger.get(IssueService.class);
+    public static final int MAX_PAGE_SIZE = 1000; // For getIssuesPage()
+    public static final int MAX_SEARCH_RESULTS = 100; // Best matches returned by a getIssues() text search
+
     private final IssueRepository issueRepo;
     private final AgentRepository agentRepo;
     private final IssueAssignmentStrategy assignmentStrategy;
+    private final BipartiteBatchMatcher batchMatcher = new BipartiteBatchMatcher(); // Used by assignPending()
+
+    // Lifecycle events go here (see IssueEventType). Events of an issue are published under the lock of its type,
+    // right after the transition, so a publisher that keeps per-issue order sees them in the order they happened.
+    private final IssueEventPublisher events;
+
+    // A waiting queue for each of the Issue Types that the system provides, ordered by SLA deadline
+    private final WaitingIssueQueues waitingIssues;
+
+    // Striped locking: one lock per IssueType.
+    // Every status change of an issue (assign, waitlist, update, resolve) happens under the lock of the issue's type,
+    // and the waiting queue of a type is only touched under that same lock. Issues of different types therefore
+    // move in parallel, while agents' slots (agents can span several types) are claimed atomically via Agent.tryAssignIssue().
+    // Reads (getIssues, viewAgentsWorkHistory) take no lock at all.
+    private final Map<IssueType, ReentrantLock> typeLocks;
 
-    // Centralized map to store a waiting Queue for each of the Issue Types that the system provides
-    private final Map<IssueType, Queue<String>> waitingIssues; // IssueType -> Queue of issueIds
+    // Time-ordered issue IDs, so that creating an issue doesn't need a lock or a look at the repository
+    private final IdGenerator issueIds;
 
-    // No explicit lock object is needed when using 'synchronized' methods directly.
+    // SLA, stale and auto-close timers, null until startTimers() is called
+    private volatile IssueTimers timers;
 
+    // Full-text index over subject and description, for the "text" filter of getIssues(). Both fields are final,
+    //so every issue is added once, when it is created (or when the service starts over an existing repository).
+    private final InvertedIndex textIndex = new InvertedIndex();
+
+    // Open issues by transaction ID and customer email: a new issue for the same transaction and customer is linked
+    //to the open one instead of taking an agent of its own, and is resolved together with it
+    private final DuplicateIndex duplicates = new DuplicateIndex();
+
+    // Issues of this node that are being handled by an agent lent by another node (see assignLentAgent()).
+    // Such an agent isn't in our repository; the other node frees them when the issue is resolved.
+    private final Set<String> issuesWithLentAgent = ConcurrentHashMap.newKeySet();
+
+    // Lifecycle messages are printed on the calling thread, as before the event pipeline existed
     public IssueService(IssueRepository issueRepo, AgentRepository agentRepo, IssueAssignmentStrategy assignmentStrategy) {
+        this(issueRepo, agentRepo, assignmentStrategy, IssueEventPublisher.direct(new LoggingIssueEventListener()));
+    }
+
+    // Lifecycle events go to the given publisher, typically an IssueEventBus that runs the follow-on work off the request path
+    public IssueService(IssueRepository issueRepo, AgentRepository agentRepo, IssueAssignmentStrategy assignmentStrategy,
+                        IssueEventPublisher events) {
+        this(issueRepo, agentRepo, assignmentStrategy, events, new IdGenerator("I", 0));
+    }
+
+    // Several services writing to one store need generators with different node IDs
+    public IssueService(IssueRepository issueRepo, AgentRepository agentRepo, IssueAssignmentStrategy assignmentStrategy,
+                        IssueEventPublisher events, IdGenerator issueIds) {
         this.issueRepo = issueRepo;
         this.agentRepo = agentRepo;
         this.assignmentStrategy = assignmentStrategy;
-        this.waitingIssues = new ConcurrentHashMap<>(); // Thread-safe map for queues
+        this.events = events;
+        this.issueIds = issueIds;
+        this.waitingIssues = new WaitingIssueQueues(); // Thread-safe queues
+        this.typeLocks = new EnumMap<>(IssueType.class);
+        for (IssueType type : IssueType.values()) {
+            typeLocks.put(type, new ReentrantLock());
+        }
+        restoreFromRepository();
+    }
+
+    // When the repository already holds issues (a durable store that was recovered after a restart),
+    // make sure new IDs sort after the existing ones (in case the clock was ahead before the restart), rebuild the
+    // agents' statistics and the duplicate links of unfinished issues, and put the WAITING issues back into their queues (where they are ordered by SLA deadline, with ties in the order in which
+    // they were waitlisted). Finished issues are only read field by field (see IssueRepository.forEachFinished()), so
+    // a repository that keeps them off the heap doesn't have to load them.
+    private void restoreFromRepository() {
+        List<Issue> waiting = new ArrayList<>();
+        for (Issue issue : issueRepo.findUnfinished()) {
+            issueIds.advancePast(issue.getId());
+            textIndex.add(issue.getId(), issue.getSubject(), issue.getDescription());
+            if (issue.getDuplicateOfId() != null) {
+                duplicates.link(issue.getDuplicateOfId(), issue.getId());
+            } else {
+                duplicates.claim(issue);
+                if (issue.getStatus() == IssueStatus.WAITING) {
+                    waiting.add(issue);
+                }
+            }
+        }
+        issueRepo.forEachFinished((issueId, type, subject, description, assignedAgentId, createdAt, updatedAtMillis) -> {
+            issueIds.advancePast(issueId);
+            textIndex.add(issueId, subject, description);
+            // The statistics aren't persisted; they are rebuilt from the resolved issues, closed ones included (for
+            //those updatedAt is the moment of closing, so their handling time runs until then)
+            if (assignedAgentId != null) {
+                agentRepo.findById(assignedAgentId)
+                        .ifPresent(agent -> agent.getWorkStats().recordResolution(type, handlingMillis(createdAt, updatedAtMillis)));
+            }
+        });
+
+        waiting.sort(Comparator.comparing(Issue::getUpdatedAt).thenComparing(Issue::getCreatedAt));
+        for (Issue issue : waiting) {
+            waitingIssues.add(issue);
+        }
+    }
+
+    /**
+     * Starts the per-issue timers: SLA breaches of issues that are not picked up in time, stale IN_PROGRESS issues
+     * (escalated or reassigned) and auto-closing of RESOLVED issues, as configured by the settings. The issues that
+     * are already in the repository get their timers right away, the deadlines counting from their last change.
+     * The wheel runs the timers; it can be shared with other services.
+     */
+    public void startTimers(TimingWheel wheel, IssueTimerSettings settings) {
+        List<ReentrantLock> locks = lockTypes(type -> true);
+        try {
+            if (timers != null) {
+                throw new IllegalStateException("Timers are already running.");
+            }
+            IssueTimers started = new IssueTimers(wheel, settings, this);
+            for (Issue issue : issueRepo.findUnfinished()) {
+                started.track(issue);
+            }
+            // Of the finished issues only the RESOLVED ones get a timer, and only when they are closed automatically
+            if (settings.getAutoCloseAfter() != null) {
+                for (Issue issue : issueRepo.findByQuery(new IssueQuery(null, null, null, IssueStatus.RESOLVED))) {
+                    started.track(issue);
+                }
+            }
+            timers = started;
+        } finally {
+            unlock(locks);
+        }
     }
 
     // 1. createIssue(transactionId, issueType, subject, description, email)
-    public synchronized Issue createIssue(String transactionId, String issueTypeStr, String subject, String description, String customerEmail) {
-        // The 'synchronized' keyword on the method signature ensures that
-        // only one thread can execute this method at a time for this instance.
-        // The lock is acquired on 'this' (which is the current instance calling this function, the IssueService instance) when entering,
-        // and released when exiting (normally or via exception).
-        // No 'try-finally' block for lock release is needed with 'synchronized' methods.
+    public Issue createIssue(String transactionId, String issueTypeStr, String subject, String description, String customerEmail) {
+        return createIssue(transactionId, issueTypeStr, subject, description, customerEmail, null);
+    }
+
+    // createIssue with a priority (LOW, MEDIUM, HIGH, CRITICAL), which decides how soon the issue has to be picked up.
+    // A missing priority means MEDIUM.
+    public Issue createIssue(String transactionId, String issueTypeStr, String subject, String description, String customerEmail,
+                             String priorityStr) {
+        // No lock is needed here: the ID comes from an atomic sequence and the repository is a concurrent map.
+        // A freshly created issue is OPEN and not visible to any waiting queue yet.
+        Issue issue = newIssue(transactionId, issueTypeStr, subject, description, customerEmail, priorityStr);
+        //A customer filing again about a transaction that is still being handled gets an issue linked to that one
+        if (!linkToOpenIssue(issue)) {
+            store(issue);
+        }
+        return issue;
+    }
+
+    // Bulk version of createIssue(), for ingesting a burst of issues in one call.
+    // Every request is validated before anything is saved, so either the whole batch is created or none of it.
+    // The issues are OPEN afterwards; assignPending() then matches them to agents in one pass.
+    public List<Issue> createIssues(List<IssueRequest> requests) {
+        List<Issue> issues = new ArrayList<>(requests.size());
+        for (IssueRequest request : requests) {
+            issues.add(newIssue(request.getTransactionId(), request.getIssueType(), request.getSubject(),
+                    request.getDescription(), request.getCustomerEmail(), request.getPriority()));
+        }
+        for (Issue issue : issues) {
+            if (!linkToOpenIssue(issue)) {
+                store(issue);
+            }
+        }
+        LOG.info(">>> {} issues created.", issues.size());
+        return issues;
+    }
+
+    // Saves a new issue and makes it visible
+    private void store(Issue issue) {
+        //Published before the issue becomes visible, so it always comes before any other event of this issue
+        publish(IssueEventType.ISSUE_CREATED, issue);
+        //saving the issue in our in-memory
+        issueRepo.save(issue);
+        //Searchable from here on; the index only needs the (final) text fields
+        textIndex.add(issue.getId(), issue.getSubject(), issue.getDescription());
+    }
+
+    // If an unfinished issue of the same transaction and customer exists, stores the new issue as its duplicate and
+    //returns true; otherwise the new issue becomes the one that later issues are linked to, and the caller stores it.
+    //The duplicate stays OPEN, never goes to a waiting queue or an agent, and is resolved along with the issue it is
+    //linked to (see resolveIssue()). Only a hit takes a lock, the lock of the linked issue's type.
+    private boolean linkToOpenIssue(Issue issue) {
+        while (true) {
+            Issue primary = duplicates.claim(issue);
+            if (primary == null) {
+                return false;
+            }
+            ReentrantLock lock = typeLocks.get(primary.getType());
+            lock.lock();
+            try {
+                //Resolving the primary releases it under this lock; if that happened, try again (as the new primary)
+                if (duplicates.isPrimary(primary)) {
+                    issue.setDuplicateOfId(primary.getId());
+                    store(issue);
+                    duplicates.link(primary.getId(), issue.getId());
+                    LOG.info("Issue {} is about the same transaction as open issue {}; linked to it.", issue.getId(), primary.getId());
+                    publish(IssueEventType.ISSUE_COALESCED, issue);
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Validates the input and builds a new OPEN issue with a fresh ID, without saving it
+    private Issue newIssue(String transactionId, String issueTypeStr, String subject, String description, String customerEmail,
+                           String priorityStr) {
 
         // Input Validations
         if (transactionId == null || transactionId.isBlank() || issueTypeStr == null || issueTypeStr.isBlank() ||
@@ -52,70 +262,221 @@ public class IssueService {
             //Converting the string issueType from input to the specific enum string 
             issueType = IssueType.valueOf(issueTypeStr.toUpperCase().replace(" ", "_"));
         } catch (IllegalArgumentException e) {
-            System.out.println("Warning: Unknown issue type '" + issueTypeStr + "'. Setting to OTHER.");
+            LOG.warn("Unknown issue type '{}'. Setting to OTHER.", issueTypeStr);
             issueType = IssueType.OTHER; // Fallback to OTHER type
         }
 
+        IssuePriority priority = IssuePriority.MEDIUM;
+        if (priorityStr != null && !priorityStr.isBlank()) {
+            try {
+                priority = IssuePriority.valueOf(priorityStr.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unknown issue priority '{}'. Setting to MEDIUM.", priorityStr);
+            }
+        }
+
         //Generating a new issueId
-        String issueId = "I" + (issueRepo.findAll().size() + 1); // Simple sequential ID (in real world, UUID)
+        String issueId = issueIds.next(); // Time-ordered, so IDs sort in creation order
         //Creating a new issue
-        Issue issue = new Issue(issueId, transactionId, issueType, subject, description, customerEmail);
-        //saving the issue in our in-memory
-        issueRepo.save(issue);
-
-        System.out.println(">>> Issue " + issue.getId() + " created against transaction \"" + issue.getTransactionId() + "\"");
-
-        // Attempt to assign the issue immediately using the strategy
-        // This call happens within the synchronized context.
-        //assignIssueInternal(issueId);
-
-        return issue;
+        return new Issue(issueId, transactionId, issueType, subject, description, customerEmail, priority);
     }
 
     // 2. assignIssue(issueId) - Public method for manual assignment or system retry
-    public synchronized Agent assignIssue(String issueId) {
-        // This method is also synchronized.
-        return assignIssueInternal(issueId); // Delegate to the internal method
-    }
-
-    // Internal helper for assignment logic. Assumes the 'synchronized' lock is already held by the caller.
-    private Agent assignIssueInternal(String issueId) {
+    public Agent assignIssue(String issueId) {
         Issue issue = issueRepo.findById(issueId)
                 .orElseThrow(() -> new IssueNotFoundException("Issue with ID '" + issueId + "' not found for assignment."));
 
-        // filtering out issues that are not in OPEN or WAITING status and allowing all other status issues to be assigned to an agent
-        if (issue.getStatus() != IssueStatus.OPEN && issue.getStatus() != IssueStatus.WAITING) {
-            System.out.println("Issue " + issueId + " is already " + issue.getStatus() + ". Cannot re-assign.");
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            return assignIssueInternal(issue); // Delegate to the internal method
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Internal helper for assignment logic. Assumes the lock of the issue's type is already held by the caller.
+    private Agent assignIssueInternal(Issue issue) {
+        String issueId = issue.getId();
+
+        // filtering out issues that can't move to IN_PROGRESS (already assigned, or finished)
+        if (!IssueStateMachine.isLegal(issue.getStatus(), IssueStatus.IN_PROGRESS)) {
+            LOG.info("Issue {} is already {}. Cannot re-assign.", issueId, issue.getStatus());
             return issue.getAssignedAgentId() != null ? agentRepo.findById(issue.getAssignedAgentId()).orElse(null) : null;
         }
 
-        //Making a map that holds an Agent Object as value against the agentId as key
-        Map<String, Agent> allAgentsMap = agentRepo.findAll().stream().collect(Collectors.toMap(Agent::getAgentId, a -> a));
-        Optional<Agent> assignedAgentOpt = assignmentStrategy.findAndAssignAgent(issue, allAgentsMap, waitingIssues);
+        //A duplicate is handled through the issue it is linked to, whose agent (if any) is returned
+        if (issue.getDuplicateOfId() != null) {
+            LOG.info("Issue {} is linked to issue {}, which gets the agent.", issueId, issue.getDuplicateOfId());
+            Issue primary = lookupIssue(issue.getDuplicateOfId());
+            String agentId = primary == null ? null : primary.getAssignedAgentId();
+            return agentId != null ? agentRepo.findById(agentId).orElse(null) : null;
+        }
+
+        boolean wasWaiting = issue.getStatus() == IssueStatus.WAITING;
+
+        //The strategy picks from the repository's live index of free agents, no need to look at every agent
+        Optional<Agent> assignedAgentOpt = assignmentStrategy.findAndAssignAgent(issue, agentRepo.getFreeAgentIndex(), waitingIssues);
 
         //If the findAndAssignAgent method doesn't return an agent, signifies no suitable agent is either available or no agent is free
-        //Hence printing the concerned message
         if (assignedAgentOpt.isEmpty()) {
-            System.out.println("Issue " + issueId + " could not be assigned immediately. It's now in WAITING state.");
             issueRepo.save(issue); // Persist status change in the in-memory
+            if (!wasWaiting) {
+                publish(IssueEventType.ISSUE_WAITING, issue);
+            }
             return null;
         } else {
             issueRepo.save(issue);
             Agent assignedAgent = assignedAgentOpt.get();
             agentRepo.save(assignedAgent);
+            publish(IssueEventType.ISSUE_ASSIGNED, issue);
             return assignedAgent;
         }
     }
 
+    /**
+     * Assigns every OPEN or WAITING issue that can be assigned right now, in one pass.
+     * The pending issues and the free agents are matched as a whole (see BipartiteBatchMatcher), most urgent issues
+     * first, instead of one assignIssue() call per issue. Issues that can't get an agent end up WAITING, just like
+     * with assignIssue(). Returns the issues that got an agent.
+     *
+     * Holds the locks of all issue types while matching, so it is meant for bulk ingestion rather than for every request.
+     */
+    public List<Issue> assignPending() {
+        List<ReentrantLock> locks = lockTypes(type -> true);
+        try {
+            //Collecting the pending issues, most urgent (earliest SLA deadline) first
+            List<Issue> pending = new ArrayList<>(issueRepo.findByQuery(new IssueQuery(null, null, null, IssueStatus.OPEN)));
+            pending.addAll(issueRepo.findByQuery(new IssueQuery(null, null, null, IssueStatus.WAITING)));
+            pending.removeIf(issue -> issue.getDuplicateOfId() != null); // Handled through the issues they are linked to
+            pending.sort(Comparator.comparing(Issue::getSlaDeadline).thenComparing(Issue::getCreatedAt));
+
+            //An agent with several free slots can be matched to several issues
+            Map<Issue, Agent> matches = batchMatcher.match(pending, agentRepo.getFreeAgentIndex().freeSlots());
+
+            List<Issue> assigned = new ArrayList<>(matches.size());
+            for (Map.Entry<Issue, Agent> match : matches.entrySet()) {
+                Issue issue = match.getKey();
+                Agent agent = match.getValue();
+                //Every type lock is held, so nobody else can claim the agent; this only fails if the agent was
+                //changed outside of this service
+                if (agent.tryAssignIssue(issue.getId())) {
+                    issue.assignAgent(agent.getAgentId()); // A WAITING issue's queue entry is dropped later as stale
+                    issueRepo.save(issue);
+                    agentRepo.save(agent);
+                    publish(IssueEventType.ISSUE_ASSIGNED, issue);
+                    assigned.add(issue);
+                }
+            }
+
+            //Whatever is still OPEN goes to the waiting queue of its type
+            for (Issue issue : pending) {
+                if (issue.getStatus() == IssueStatus.OPEN) {
+                    waitingIssues.add(issue);
+                    issue.setStatus(IssueStatus.WAITING);
+                    issueRepo.save(issue);
+                    publish(IssueEventType.ISSUE_WAITING, issue);
+                }
+            }
+
+            LOG.info(">>> Batch assignment: {} of {} pending issues assigned.", assigned.size(), pending.size());
+            return assigned;
+        } finally {
+            unlock(locks);
+        }
+    }
 
     // 3. getIssues(filter)
-    public synchronized List<Issue> getIssues(Map<String, String> filter) {
-        // This method is also synchronized to ensure a consistent snapshot of issues
-        // while other threads might be creating/updating/resolving them.
+    public List<Issue> getIssues(Map<String, String> filter) {
+        // No lock is taken here: the repository is a concurrent map and the issue fields are volatile,
+        // so a (possibly long) filter query never blocks assignments or resolutions.
 
-        List<Issue> filteredIssues = new ArrayList<>();
+        // Without a filter (the dashboards' poll) the answer comes from the repository's latest snapshot: every issue
+        //as of one moment, instead of a walk over the live map while issues keep changing underneath
         if (filter == null || filter.isEmpty()) {
-            return new ArrayList<>(issueRepo.findAll());
+            return issueRepo.snapshot().findAll();
+        }
+        //A "text" filter turns the query into a ranked search: the best matches first, narrowed down by the other criteria
+        String text = filter.get("text");
+        if (text != null && !text.isBlank()) {
+            return searchIssues(text, toQuery(filter), MAX_SEARCH_RESULTS);
+        }
+        return issueRepo.findByQuery(toQuery(filter));
+    }
+
+    // The issues whose subject or description best match the text (BM25 over the inverted index), best first.
+    //The other criteria are checked only for issues that would make it into the result.
+    private List<Issue> searchIssues(String text, IssueQuery query, int limit) {
+        Map<String, Issue> accepted = new HashMap<>();
+        List<InvertedIndex.Hit> hits = textIndex.search(text, limit, issueId -> {
+            Issue issue = lookupIssue(issueId);
+            if (issue == null || !query.matches(issue)) {
+                return false;
+            }
+            accepted.put(issueId, issue);
+            return true;
+        });
+        List<Issue> result = new ArrayList<>(hits.size());
+        for (InvertedIndex.Hit hit : hits) {
+            result.add(accepted.get(hit.getKey()));
+        }
+        return result;
+    }
+
+    // 3b. getIssuesPage(filter, order, cursor, pageSize)
+    //Same filter as getIssues, a page at a time: up to pageSize issues in the given order, starting after the cursor
+    //(the nextCursor of the previous page, or null for the first page). The repository walks its ordered index from
+    //the cursor and stops after the page, so a page costs the same at the start and at the end of a large result.
+    public IssuePage getIssuesPage(Map<String, String> filter, IssueOrder order, String cursor, int pageSize) {
+        rejectTextFilter(filter);
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidFilterException("Page size must be between 1 and " + MAX_PAGE_SIZE + ", got " + pageSize + ".");
+        }
+        Iterator<Issue> issues = issueRepo.scan(toQuery(filter), order, parseCursor(cursor, order));
+        List<Issue> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && issues.hasNext()) {
+            page.add(issues.next());
+        }
+        // Only an issue beyond the page proves there is another page
+        String nextCursor = issues.hasNext() ? IssueCursor.of(page.get(page.size() - 1), order).toToken() : null;
+        return new IssuePage(page, nextCursor);
+    }
+
+    // Every issue matching the filter, in the given order, fetched from the repository as the stream is consumed
+    public Stream<Issue> streamIssues(Map<String, String> filter, IssueOrder order) {
+        rejectTextFilter(filter);
+        Iterator<Issue> issues = issueRepo.scan(toQuery(filter), order, null);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(issues, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Search results come in order of relevance, which a cursor can't resume; rather an error than silently ignoring it
+    private static void rejectTextFilter(Map<String, String> filter) {
+        String text = filter == null ? null : filter.get("text");
+        if (text != null && !text.isBlank()) {
+            throw new InvalidFilterException("A text search is ranked by relevance and can't be paged; use getIssues().");
+        }
+    }
+
+    private static IssueCursor parseCursor(String cursor, IssueOrder order) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        IssueCursor parsed;
+        try {
+            parsed = IssueCursor.parse(cursor.trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterException(e.getMessage());
+        }
+        if (parsed.getOrder() != order) {
+            throw new InvalidFilterException("The cursor belongs to " + parsed.getOrder() + " order, not " + order + ".");
+        }
+        return parsed;
+    }
+
+    // Parses the filter of getIssues(); a null or empty filter matches every issue
+    private static IssueQuery toQuery(Map<String, String> filter) {
+        if (filter == null) {
+            return new IssueQuery(null, null, null, null);
         }
 
         //Fetching all the filter values against whom issues are to be filtered out
@@ -124,73 +485,78 @@ public class IssueService {
         String issueIdFilter = filter.get("issueId");
         String issueStatusFilter = filter.get("status");
 
-        //Using the stream api to iterate through each of the existing ISSUES from issueRepo and filtering out based on the filters given in input
-        return issueRepo.findAll().stream()
-                .filter(issue -> {
-                    boolean matches = true;
-                    //CHECKING FOR THE email FILTER
-                    if (customerEmailFilter != null && !customerEmailFilter.isBlank()) {
-                        matches &= issue.getCustomerEmail().equalsIgnoreCase(customerEmailFilter);
-                    }
-                    //CHECKING FOR THE issueType FILTER
-                    if (issueTypeFilter != null && !issueTypeFilter.isBlank()) {
-                        try {
-                            //Converting the string issueType from input to the specific enum string 
-                            IssueType expectedType = IssueType.valueOf(issueTypeFilter.toUpperCase().replace(" ", "_"));
-                            matches &= issue.getType() == expectedType;
-                        } catch (IllegalArgumentException e) {
-                            throw new InvalidFilterException("Invalid issue type provided in filter: " + issueTypeFilter);
-                        }
-                    }
+        //CHECKING FOR THE issueType FILTER
+        //The enums are parsed once here, instead of once for every issue
+        IssueType expectedType = null;
+        if (issueTypeFilter != null && !issueTypeFilter.isBlank()) {
+            try {
+                //Converting the string issueType from input to the specific enum string
+                expectedType = IssueType.valueOf(issueTypeFilter.toUpperCase().replace(" ", "_"));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFilterException("Invalid issue type provided in filter: " + issueTypeFilter);
+            }
+        }
 
-                    //CHECKING FOR THE issueId FILTER
-                    if (issueIdFilter != null && !issueIdFilter.isBlank()) {
-                        matches &= issue.getId().equalsIgnoreCase(issueIdFilter);
-                    }
+        //CHECKING FOR THE issueStatus FILTER
+        IssueStatus expectedStatus = null;
+        if (issueStatusFilter != null && !issueStatusFilter.isBlank()) {
+            try {
+                //Converting the string issueStatus from input to the specific enum string
+                expectedStatus = IssueStatus.valueOf(issueStatusFilter.toUpperCase().replace(" ", "_"));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFilterException("Invalid issue status provided in filter: " + issueStatusFilter);
+            }
+        }
 
-                    //CHECKING FOR THE issueStatus FILTER
-                    if (issueStatusFilter != null && !issueStatusFilter.isBlank()) {
-                        try {
-                            //Converting the string issueStatus from input to the specific enum string 
-                            IssueStatus expectedStatus = IssueStatus.valueOf(issueStatusFilter.toUpperCase().replace(" ", "_"));
-                            matches &= issue.getStatus() == expectedStatus;
-                        } catch (IllegalArgumentException e) {
-                            throw new InvalidFilterException("Invalid issue status provided in filter: " + issueStatusFilter);
-                        }
-                    }
-                    return matches;
-                })
-                .collect(Collectors.toList());
+        //The repository picks the most selective of its indexes (email, type, status or a direct issueId lookup)
+        //and checks the other criteria on the candidates
+        return new IssueQuery(
+                blankToNull(customerEmailFilter),
+                expectedType,
+                blankToNull(issueIdFilter),
+                expectedStatus);
+    }
+
+    // Every issue as of one moment, never changing afterwards (see IssueRepository.snapshot())
+    public IssueSnapshot getIssuesSnapshot() {
+        return issueRepo.snapshot();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 
     // 4. updateIssue(issueId, status, resolution)
     //Used to update the given issue's status and give the final resolution
-    public synchronized void updateIssue(String issueId, IssueStatus status, String resolution) {
-        // This method is also synchronized.
-
+    public void updateIssue(String issueId, IssueStatus status, String resolution) {
         //Fetching the issue from issueRepo based on the issueId from input
         Issue issue = issueRepo.findById(issueId)
                 .orElseThrow(() -> new IssueNotFoundException("Issue with ID '" + issueId + "' not found for update."));
 
-       
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            updateIssueInternal(issue, status, resolution);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Assumes the lock of the issue's type is already held by the caller.
+    private void updateIssueInternal(Issue issue, IssueStatus status, String resolution) {
         //Throwing error if this method is being used to RESOLVE or CANCEL an issue
         if (status == IssueStatus.RESOLVED || status == IssueStatus.CLOSED) {
             throw new InvalidIssueStatusTransitionException("Use resolveIssue() for final resolution. Cannot directly update to RESOLVED/CLOSED via updateIssue().");
         }
 
         //Throwing error if the issue is already in  RESOLVE or CLOSED status
-        //Because we cant allow changes in an issue after it is in RESOLVED or CLOSED status
-        if (issue.getStatus() == IssueStatus.RESOLVED || issue.getStatus() == IssueStatus.CLOSED) {
+        //Because we cant allow changes in an issue after it is in RESOLVED or CLOSED status (not even its resolution)
+        if (IssueStateMachine.isFinished(issue.getStatus())) {
             throw new InvalidIssueStatusTransitionException("Cannot update an issue that is already " + issue.getStatus() + ".");
         }
 
-        //Checking if issue is not already in the status which the user wants it to move into
-        if (status != null && issue.getStatus() != status) {
-
-            //Throwing error if the issue is IN_PROGRESS, but there is no assignedAgentId
-            if (status == IssueStatus.IN_PROGRESS && issue.getAssignedAgentId() == null) {
-                throw new InvalidIssueStatusTransitionException("Issue cannot be IN_PROGRESS without being assigned to an agent.");
-            }
+        //Checked against IssueStateMachine, e.g. an issue is only IN_PROGRESS with an agent
+        if (status != null) {
             issue.setStatus(status);
         }
 
@@ -201,71 +567,432 @@ public class IssueService {
 
         //Persisting the change in our im-memory repo
         issueRepo.save(issue);
-        System.out.println(">>> Issue " + issueId + " status updated to " + issue.getStatus() + " and/or resolution updated.");
+        publish(IssueEventType.ISSUE_UPDATED, issue);
     }
 
     // 5. for resolving the issue
-    public synchronized void resolveIssue(String issueId, String resolution) {
-        // This method is also synchronized.
-
+    public void resolveIssue(String issueId, String resolution) {
         //Fetching the issue from issueRepo based on the issueId from input
         Issue issue = issueRepo.findById(issueId)
                 .orElseThrow(() -> new IssueNotFoundException("Issue with ID '" + issueId + "' not found for resolution."));
 
-         //Throwing error if the issue is already in  RESOLVE or CANCEL status
-        if (issue.getStatus() == IssueStatus.RESOLVED || issue.getStatus() == IssueStatus.CLOSED) {
-            System.out.println("Issue " + issueId + " is already " + issue.getStatus() + ".");
-            return;
-        }
-         //Throwing error if the issue is not in IN_PROGRESS status
-        if (issue.getStatus() != IssueStatus.IN_PROGRESS) {
-            throw new InvalidIssueStatusTransitionException("Issue " + issueId + " must be IN_PROGRESS to be RESOLVED. Current status: " + issue.getStatus());
-        }
+        //The status transition happens under the issue type's lock, the agent hand-off afterwards doesn't need it
+        String assignedAgentId;
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            //Throwing error if the issue is already in  RESOLVE or CANCEL status
+            if (IssueStateMachine.isFinished(issue.getStatus())) {
+                LOG.info("Issue {} is already {}.", issueId, issue.getStatus());
+                return;
+            }
+            //Throwing error if the issue can't be RESOLVED: it must be IN_PROGRESS, unless it is a linked duplicate
+            IssueStateMachine.check(issue, IssueStatus.RESOLVED);
+
+            //Throwing error if no resolution is given to the issue
+            if (resolution == null || resolution.isBlank()) {
+                throw new IllegalArgumentException("Resolution details must be provided to resolve an issue.");
+            }
 
-        //Throwing error if no resolution is given to the issue
-        if (resolution == null || resolution.isBlank()) {
-            throw new IllegalArgumentException("Resolution details must be provided to resolve an issue.");
+            issue.setStatus(IssueStatus.RESOLVED);
+            issue.setResolution(resolution);
+            issueRepo.save(issue);
+            publish(IssueEventType.ISSUE_RESOLVED, issue);
+            //From here on nothing gets linked to this issue any more; a new issue of the transaction starts over
+            duplicates.release(issue);
+
+            //Fetching the agentId to whom the issue was assigned
+            assignedAgentId = issue.getAssignedAgentId();
+        } finally {
+            lock.unlock();
         }
 
-        issue.setStatus(IssueStatus.RESOLVED);
-        issue.setResolution(resolution);
-        issueRepo.save(issue);
-        System.out.println(">>> Issue " + issueId + " marked RESOLVED.");
+        resolveDuplicates(issue, resolution);
 
-        //Fetching the agentId to whom the issue was assigned
-        String assignedAgentId = issue.getAssignedAgentId();
-        if (assignedAgentId != null) {
+        if (assignedAgentId != null && issuesWithLentAgent.remove(issueId)) {
+            LOG.info("Issue {} was handled by agent {} of another node, who goes back there.", issueId, assignedAgentId);
+        } else if (assignedAgentId != null) {
             Agent agent = agentRepo.findById(assignedAgentId)
                     .orElseThrow(() -> new AgentNotFoundException("Agent with ID '" + assignedAgentId + "' not found for resolved issue " + issueId));
 
-            //Adding this resolved issue to the agent's workhistory
+            //Adding this resolved issue to the agent's workhistory, and to the agent's running statistics
             agent.addToWorkHistory(issueId);
+            agent.getWorkStats().recordResolution(issue.getType(), handlingMillis(issue));
 
-            //making the agent available now
-            agent.markFree();
+            //freeing the issue's slot of the agent now
+            //This has to happen before we look at the waiting queues: an issue that is waitlisted concurrently
+            //will either see this agent's free slot, or will already be in the queue when we look at it below
+            agent.releaseIssue(issueId);
             agentRepo.save(agent);
+            //Keyed by the resolved issue, so it follows that issue's ISSUE_RESOLVED event
+            events.publish(new IssueEvent(IssueEventType.AGENT_FREED, issueId, issue.getType(), IssueStatus.RESOLVED, agent.getAgentId()));
 
-            Map<String, Issue> allIssuesMap = issueRepo.findAll().stream().collect(Collectors.toMap(Issue::getId, i -> i));
-
-            //As this agent is now free, trying to get this agent assigned to other available issue that falls in his/her expertise
-            assignmentStrategy.assignWaitingIssueToAgent(agent, allIssuesMap, waitingIssues);
+            //As this agent has a free slot now, trying to get this agent assigned to other available issue that falls in his/her expertise
+            assignWaitingIssue(agent);
         } else {
-            System.out.println("Issue " + issueId + " was resolved without being assigned to an agent.");
+            LOG.info("Issue {} was resolved without being assigned to an agent.", issueId);
+        }
+    }
+
+    // The issues linked to a resolved issue get its resolution, each under the lock of its own type
+    private void resolveDuplicates(Issue primary, String resolution) {
+        for (String duplicateId : duplicates.removeDuplicates(primary.getId())) {
+            Issue duplicate = lookupIssue(duplicateId);
+            if (duplicate == null) {
+                continue;
+            }
+            ReentrantLock lock = typeLocks.get(duplicate.getType());
+            lock.lock();
+            try {
+                if (IssueStateMachine.isLegal(duplicate.getStatus(), IssueStatus.RESOLVED)) {
+                    duplicate.setStatus(IssueStatus.RESOLVED);
+                    duplicate.setResolution(resolution);
+                    issueRepo.save(duplicate);
+                    publish(IssueEventType.ISSUE_RESOLVED, duplicate);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Moves a RESOLVED issue to CLOSED, after which it can't change any more. Normally done by the auto-close timer.
+    public void closeIssue(String issueId) {
+        Issue issue = issueRepo.findById(issueId)
+                .orElseThrow(() -> new IssueNotFoundException("Issue with ID '" + issueId + "' not found for closing."));
+
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            closeIssueInternal(issue);
+        } finally {
+            lock.unlock();
         }
     }
 
+    // Assumes the lock of the issue's type is already held by the caller.
+    private void closeIssueInternal(Issue issue) {
+        if (issue.getStatus() == IssueStatus.CLOSED) {
+            LOG.info("Issue {} is already CLOSED.", issue.getId());
+            return;
+        }
+        issue.setStatus(IssueStatus.CLOSED); // Only from RESOLVED
+        issueRepo.save(issue);
+        publish(IssueEventType.ISSUE_CLOSED, issue);
+    }
+
+    // --- Timers (see startTimers()); these run on the timing wheel's thread ---
+
+    void timerExpired(IssueTimers.IssueTimer timer) {
+        Issue issue = issueRepo.findById(timer.issueId).orElse(null);
+        if (issue == null) {
+            return;
+        }
+        switch (timer.kind) {
+            case SLA_DEADLINE:
+                slaDeadlinePassed(issue, timer);
+                break;
+            case STALE:
+                staleLimitPassed(issue, timer);
+                break;
+            case AUTO_CLOSE:
+                ReentrantLock lock = typeLocks.get(issue.getType());
+                lock.lock();
+                try {
+                    //The issue may have been closed by hand in the meantime
+                    if (timers.isCurrent(timer) && issue.getStatus() == IssueStatus.RESOLVED) {
+                        closeIssueInternal(issue);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                break;
+        }
+    }
+
+    private void slaDeadlinePassed(Issue issue, IssueTimers.IssueTimer timer) {
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            if (timers.isCurrent(timer) && (issue.getStatus() == IssueStatus.OPEN || issue.getStatus() == IssueStatus.WAITING)) {
+                timers.markFired(timer);
+                events.publish(new IssueEvent(IssueEventType.SLA_BREACHED, issue.getId(), issue.getType(), issue.getStatus(), null));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The issue has been IN_PROGRESS without any change for the stale limit: hand it to another free agent
+    //(REASSIGN), or report it and check again after another stale limit
+    private void staleLimitPassed(Issue issue, IssueTimers.IssueTimer timer) {
+        IssueTimerSettings settings = timers.getSettings();
+        String agentId = issue.getAssignedAgentId();
+        Agent agent = agentId == null || settings.getStaleAction() != StaleIssueAction.REASSIGN ? null
+                : agentRepo.findById(agentId).orElse(null);
+        //The issue's type, plus all of the agent's types so the agent can pick up waiting work when they are let go
+        List<ReentrantLock> locks = lockTypes(type -> type == issue.getType() || (agent != null && agent.canHandle(type)));
+        try {
+            //Any change in the meantime (resolved, updated, reassigned) replaced the timer
+            if (!timers.isCurrent(timer) || issue.getStatus() != IssueStatus.IN_PROGRESS) {
+                return;
+            }
+            if (agent != null && reassign(issue, agent)) {
+                return;
+            }
+            events.publish(new IssueEvent(IssueEventType.ISSUE_ESCALATED, issue.getId(), issue.getType(), issue.getStatus(), agentId));
+            timers.rearm(timer, settings.getStaleAfter());
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    // Moves an IN_PROGRESS issue from its agent to another agent with a free slot, if there is one. The previous agent's
+    //slot is free again and picks up waiting work. The caller holds the locks of the issue's type and of all the agent's types.
+    private boolean reassign(Issue issue, Agent previousAgent) {
+        //The previous agent still works on the issue, so they can't be picked again
+        Agent newAgent = claimFreeAgent(issue.getType(), issue.getId());
+        if (newAgent == null) {
+            return false;
+        }
+
+        issue.assignAgent(newAgent.getAgentId());
+        issueRepo.save(issue);
+        agentRepo.save(newAgent);
+        publish(IssueEventType.ISSUE_ASSIGNED, issue);
+        LOG.info("Stale issue {} moved from agent {} to agent {}.", issue.getId(), previousAgent.getAgentId(), newAgent.getAgentId());
+
+        previousAgent.releaseIssue(issue.getId());
+        agentRepo.save(previousAgent);
+        events.publish(new IssueEvent(IssueEventType.AGENT_FREED, issue.getId(), issue.getType(), issue.getStatus(), previousAgent.getAgentId()));
+        assignWaitingIssue(previousAgent); // The locks are reentrant, and already held
+        return true;
+    }
+
+    // Claims a slot of the least-loaded agent of the type for the issue, or returns null. Agents whose last slot was
+    //claimed by someone else in the meantime drop out of the index on refresh(), so this ends. The caller holds the
+    //lock of the type.
+    private Agent claimFreeAgent(IssueType type, String issueId) {
+        FreeAgentIndex freeAgents = agentRepo.getFreeAgentIndex();
+        Agent candidate;
+        while ((candidate = freeAgents.leastLoaded(type, agent -> !agent.isWorkingOn(issueId))) != null) {
+            boolean claimed = candidate.tryAssignIssue(issueId);
+            freeAgents.refresh(candidate);
+            if (claimed) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // --- Lending agents between nodes of a sharded deployment (see cluster.ShardRouter) ---
+
+    /**
+     * Claims a slot of an agent of this node for an issue of another node, whose ID is given; the agent shows that
+     * issue among their active issues here until returnLentAgent(). Throws NoAgentAvailableException if no agent of
+     * the type has a free slot.
+     */
+    public Agent lendAgent(IssueType type, String foreignIssueId) {
+        Agent agent;
+        ReentrantLock lock = typeLocks.get(type);
+        lock.lock();
+        try {
+            agent = claimFreeAgent(type, foreignIssueId);
+            if (agent == null) {
+                throw new NoAgentAvailableException("No free agent for " + type + " to lend.");
+            }
+            agentRepo.save(agent);
+        } finally {
+            lock.unlock();
+        }
+        LOG.info("Agent {} lent to another node for issue {}.", agent.getAgentId(), foreignIssueId);
+        return agent;
+    }
+
+    /**
+     * Assigns an OPEN or WAITING issue of this node to an agent that another node lent for it (see lendAgent()).
+     * Throws IllegalStateException if the issue got an agent in the meantime; the lender then gets the agent back.
+     */
+    public Issue assignLentAgent(String issueId, String agentId) {
+        Issue issue = issueRepo.findById(issueId)
+                .orElseThrow(() -> new IssueNotFoundException("Issue with ID '" + issueId + "' not found for assignment."));
+
+        ReentrantLock lock = typeLocks.get(issue.getType());
+        lock.lock();
+        try {
+            if (issue.getStatus() != IssueStatus.OPEN && issue.getStatus() != IssueStatus.WAITING) {
+                throw new IllegalStateException("Issue " + issueId + " is already " + issue.getStatus() + ".");
+            }
+            issuesWithLentAgent.add(issueId);
+            issue.assignAgent(agentId); // A WAITING issue's queue entry is dropped later as stale
+            issueRepo.save(issue);
+            publish(IssueEventType.ISSUE_ASSIGNED, issue);
+            return issue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A lent agent comes back without having worked on the issue (it got an agent elsewhere in the meantime)
+    public Agent returnUnusedAgent(String agentId, String foreignIssueId) {
+        Agent agent = lentAgent(agentId, foreignIssueId);
+        agent.releaseIssue(foreignIssueId);
+        agentRepo.save(agent);
+        LOG.info("Agent {} is back, issue {} didn't need them.", agentId, foreignIssueId);
+        assignWaitingIssue(agent);
+        return agent;
+    }
+
+    /**
+     * A lent agent comes back after resolving the other node's issue (of the given type, after handlingMillis from
+     * creation): the issue goes into their history and statistics, and they pick up waiting work here.
+     */
+    public Agent returnLentAgent(String agentId, String foreignIssueId, IssueType type, long handlingMillis) {
+        Agent agent = lentAgent(agentId, foreignIssueId);
+        agent.addToWorkHistory(foreignIssueId);
+        agent.getWorkStats().recordResolution(type, handlingMillis);
+        agent.releaseIssue(foreignIssueId);
+        agentRepo.save(agent);
+        events.publish(new IssueEvent(IssueEventType.AGENT_FREED, foreignIssueId, type, IssueStatus.RESOLVED, agentId));
+        assignWaitingIssue(agent);
+        return agent;
+    }
+
+    /**
+     * The agents of this node that are lent out, by agent ID, each with the issues of other nodes they work on (an
+     * agent with several slots may be lent for more than one). The loans are recorded here, in the agents' slots, so
+     * the shard router can find and settle the ones it lost track of.
+     */
+    public Map<String, List<String>> viewLentAgents() {
+        Map<String, List<String>> lent = new TreeMap<>();
+        for (Agent agent : agentRepo.findAll()) {
+            for (String issueId : agent.getActiveIssueIds()) {
+                int node = issueIds.nodeIdOf(issueId);
+                if (node >= 0 && node != issueIds.getNodeId()) {
+                    lent.computeIfAbsent(agent.getAgentId(), id -> new ArrayList<>()).add(issueId);
+                }
+            }
+        }
+        return lent;
+    }
+
+    private Agent lentAgent(String agentId, String foreignIssueId) {
+        Agent agent = findAgent(agentId);
+        if (!agent.isWorkingOn(foreignIssueId)) {
+            throw new IllegalStateException("Agent " + agentId + " is not lent out for issue " + foreignIssueId + ".");
+        }
+        return agent;
+    }
+
+    // Hands waiting issues to an agent with a newly freed slot, until their slots are full or nothing is waiting.
+    // Locks for all the agent's expertise types are taken in enum order, so two agents being freed at the same time
+    // can never deadlock each other. Every other code path holds a single type lock, or all of them (assignPending).
+    private void assignWaitingIssue(Agent agent) {
+        List<ReentrantLock> locks = lockTypes(agent::canHandle);
+        try {
+            //The strategy only needs the one or two issues at the head of the queues, so it gets a point lookup
+            while (agent.hasFreeSlot()) {
+                Optional<Issue> assigned = assignmentStrategy.assignWaitingIssueToAgent(agent, this::lookupIssue, waitingIssues);
+                if (assigned.isEmpty()) {
+                    break;
+                }
+                Issue assignedIssue = assigned.get();
+                issueRepo.save(assignedIssue);
+                agentRepo.save(agent);
+                publish(IssueEventType.ISSUE_ASSIGNED, assignedIssue);
+            }
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    // Locks the selected types in enum order (the only order in which more than one type lock is ever taken)
+    private List<ReentrantLock> lockTypes(Predicate<IssueType> selected) {
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (IssueType type : IssueType.values()) {
+            if (selected.test(type)) {
+                ReentrantLock lock = typeLocks.get(type);
+                lock.lock();
+                locks.add(lock);
+            }
+        }
+        return locks;
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    // Number of entries in the waiting queue of the type (may include a few stale ones), read without locking
+    public int getWaitingQueueDepth(IssueType type) {
+        return waitingIssues.size(type);
+    }
+
+    // Publishes a transition of the issue, and moves its timer along with it
+    private void publish(IssueEventType eventType, Issue issue) {
+        events.publish(new IssueEvent(eventType, issue.getId(), issue.getType(), issue.getStatus(), issue.getAssignedAgentId()));
+        IssueTimers issueTimers = timers;
+        if (issueTimers != null) {
+            issueTimers.track(issue);
+        }
+    }
+
+    private Issue lookupIssue(String issueId) {
+        return issueRepo.findById(issueId).orElse(null);
+    }
+
     // 6. viewAgentsWorkHistory()
-    public synchronized Map<String, List<String>> viewAgentsWorkHistory() {
-        // This method is also synchronized for a consistent read.
+    // Copies every agent's complete history; for long histories, page through them with the overloads below
+    public Map<String, List<String>> viewAgentsWorkHistory() {
+        return viewAgentsWorkHistory(0, Integer.MAX_VALUE);
+    }
+
+    // One page (the entries from offset, at most limit of them) of every agent's history
+    public Map<String, List<String>> viewAgentsWorkHistory(int offset, int limit) {
+        // No service-wide lock: each agent's page is copied under that agent's own lock.
 
         //this is to make a map that contains a list of issues that the agent has worked upon as value against the agent's name as key
         Map<String, List<String>> history = new HashMap<>();
-        System.out.println("\n--- Agent Work History ---");
 
         //Iterating across each of the agents present inside the agentRepo, to create workhistory for all agents
         for (Agent agent : agentRepo.findAll()) {
-            history.put(agent.getName() + " (" + agent.getEmail() + ")", agent.getWorkHistory());
+            history.put(agent.getName() + " (" + agent.getEmail() + ")", agent.getWorkHistory(offset, limit));
         }
         return history;
     }
+
+    // One page of one agent's history, oldest first
+    public List<String> viewAgentWorkHistory(String agentId, int offset, int limit) {
+        return findAgent(agentId).getWorkHistory(offset, limit);
+    }
+
+    // Resolved count and handling times of every agent, by agent ID (so in the order in which agents were added).
+    // Every agent's numbers are consistent in themselves; they are read without any service lock.
+    public Map<String, AgentWorkStats.Snapshot> viewAgentsWorkStats() {
+        Map<String, AgentWorkStats.Snapshot> stats = new TreeMap<>();
+        for (Agent agent : agentRepo.findAll()) {
+            stats.put(agent.getAgentId(), agent.getWorkStats().snapshot());
+        }
+        return stats;
+    }
+
+    public AgentWorkStats.Snapshot viewAgentWorkStats(String agentId) {
+        return findAgent(agentId).getWorkStats().snapshot();
+    }
+
+    private Agent findAgent(String agentId) {
+        return agentRepo.findById(agentId)
+                .orElseThrow(() -> new AgentNotFoundException("Agent with ID '" + agentId + "' not found."));
+    }
+
+    // Time from creation to resolution; updatedAt is the moment the issue was RESOLVED (or CLOSED, after a restart)
+    private static long handlingMillis(Issue issue) {
+        return handlingMillis(issue.getCreatedAt(), issue.getUpdatedAtMillis());
+    }
+
+    private static long handlingMillis(LocalDateTime createdAt, long updatedAtMillis) {
+        return updatedAtMillis - createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
@@ -0,0 +1,36 @@
+package com.customersupport.service;
+
+import com.customersupport.enums.StaleIssueAction;
+
+import java.time.Duration;
+
+/**
+ * Which per-issue timers IssueService runs once timers are started, and after how long they fire.
+ * A null duration switches that timer off.
+ */
+public class IssueTimerSettings {
+    // Resolved issues close after a day, issues without progress for 8 hours are escalated, SLA breaches are reported
+    public static final IssueTimerSettings DEFAULTS =
+            new IssueTimerSettings(Duration.ofHours(24), Duration.ofHours(8), StaleIssueAction.ESCALATE, true);
+
+    private final Duration autoCloseAfter; // RESOLVED -> CLOSED this long after the resolution
+    private final Duration staleAfter;     // IN_PROGRESS this long without any change counts as stale
+    private final StaleIssueAction staleAction;
+    private final boolean reportSlaBreaches; // SLA_BREACHED when an issue is still OPEN/WAITING at its SLA deadline
+
+    public IssueTimerSettings(Duration autoCloseAfter, Duration staleAfter, StaleIssueAction staleAction,
+                              boolean reportSlaBreaches) {
+        if (staleAfter != null && staleAction == null) {
+            throw new IllegalArgumentException("A stale timer needs a StaleIssueAction.");
+        }
+        this.autoCloseAfter = autoCloseAfter;
+        this.staleAfter = staleAfter;
+        this.staleAction = staleAction;
+        this.reportSlaBreaches = reportSlaBreaches;
+    }
+
+    public Duration getAutoCloseAfter() { return autoCloseAfter; }
+    public Duration getStaleAfter() { return staleAfter; }
+    public StaleIssueAction getStaleAction() { return staleAction; }
+    public boolean isReportSlaBreaches() { return reportSlaBreaches; }
+}
@@ -0,0 +1,131 @@
+package com.customersupport.service;
+
+import com.customersupport.model.Issue;
+import com.customersupport.scheduler.Timeout;
+import com.customersupport.scheduler.TimingWheel;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The per-issue timers of an IssueService. An issue has at most one timer at a time, which depends on its status:
+ * OPEN/WAITING wait for the SLA deadline, IN_PROGRESS for the stale limit, RESOLVED for the auto-close grace period.
+ * Every transition replaces the timer in O(1) (a map entry plus a TimingWheel slot), nothing ever scans the issues.
+ *
+ * track() and the handlers in IssueService run under the lock of the issue's type (or, on creation, before the issue
+ * is visible at all), so the timer of one issue is never changed by two threads at once.
+ */
+final class IssueTimers {
+    enum Kind { SLA_DEADLINE, STALE, AUTO_CLOSE }
+
+    private final TimingWheel wheel;
+    private final IssueTimerSettings settings;
+    private final IssueService service;
+    private final Map<String, IssueTimer> timers = new ConcurrentHashMap<>();
+
+    IssueTimers(TimingWheel wheel, IssueTimerSettings settings, IssueService service) {
+        this.wheel = wheel;
+        this.settings = settings;
+        this.service = service;
+    }
+
+    IssueTimerSettings getSettings() { return settings; }
+
+    // Brings the issue's timer in line with its status; called after every transition
+    void track(Issue issue) {
+        switch (issue.getStatus()) {
+            case OPEN:
+            case WAITING: {
+                if (issue.getDuplicateOfId() != null) {
+                    disarm(issue.getId()); // Its SLA is the one of the issue it is linked to
+                    break;
+                }
+                IssueTimer current = timers.get(issue.getId());
+                if (current != null && current.kind == Kind.SLA_DEADLINE) {
+                    break; // Same deadline as before (and reported only once if it passed already)
+                }
+                if (settings.isReportSlaBreaches()) {
+                    arm(issue.getId(), Kind.SLA_DEADLINE, toEpochMillis(issue.getSlaDeadline()));
+                } else {
+                    disarm(issue.getId());
+                }
+                break;
+            }
+            case IN_PROGRESS:
+                // Any change (assignment, update) restarts the clock
+                armAfter(issue, Kind.STALE, settings.getStaleAfter());
+                break;
+            case RESOLVED:
+                armAfter(issue, Kind.AUTO_CLOSE, settings.getAutoCloseAfter());
+                break;
+            default:
+                disarm(issue.getId());
+                break;
+        }
+    }
+
+    // Whether the timer is still the issue's current one (it may have been replaced while it was firing)
+    boolean isCurrent(IssueTimer timer) {
+        return timers.get(timer.issueId) == timer;
+    }
+
+    // The fired SLA timer stays in place as a marker, so the breach of a waiting issue is reported only once
+    void markFired(IssueTimer timer) {
+        timer.timeout = null;
+    }
+
+    // Fires the same kind of timer again after the given time, e.g. to escalate a stale issue once more
+    void rearm(IssueTimer timer, Duration after) {
+        arm(timer.issueId, timer.kind, System.currentTimeMillis() + after.toMillis());
+    }
+
+    private void armAfter(Issue issue, Kind kind, Duration after) {
+        if (after == null) {
+            disarm(issue.getId());
+            return;
+        }
+        // Counted from the last change, which is also right for issues restored after a restart
+        arm(issue.getId(), kind, issue.getUpdatedAtMillis() + after.toMillis());
+    }
+
+    private void arm(String issueId, Kind kind, long deadlineMillis) {
+        IssueTimer timer = new IssueTimer(issueId, kind);
+        cancel(timers.put(issueId, timer));
+        timer.timeout = wheel.schedule(deadlineMillis, timer);
+    }
+
+    private void disarm(String issueId) {
+        cancel(timers.remove(issueId));
+    }
+
+    private static void cancel(IssueTimer timer) {
+        Timeout timeout = timer == null ? null : timer.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // One issue's timer; runs on the wheel's thread and hands over to IssueService, which checks it is still current
+    final class IssueTimer implements Runnable {
+        final String issueId;
+        final Kind kind;
+        volatile Timeout timeout; // Null once an SLA timer has fired
+
+        IssueTimer(String issueId, Kind kind) {
+            this.issueId = issueId;
+            this.kind = kind;
+        }
+
+        @Override
+        public void run() {
+            service.timerExpired(this);
+        }
+    }
+}
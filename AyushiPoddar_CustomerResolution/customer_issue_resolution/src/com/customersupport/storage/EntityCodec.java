@@ -0,0 +1,169 @@
+package com.customersupport.storage;
+
+import com.customersupport.enums.IssuePriority;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of issues and agents for the event log and snapshots.
+ * Every record starts with a one-byte record type; enums are stored by ordinal and timestamps as UTC epoch
+ * seconds + nanos.
+ *
+ * Every log segment and snapshot carries FORMAT_VERSION in its FileHeader, and files of any other version are
+ * refused before a record is decoded. A change to a record's layout needs a new version, and readers for the old one.
+ */
+public final class EntityCodec {
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int END_OF_SNAPSHOT = 0;
+    public static final int ISSUE = 1;
+    public static final int AGENT = 2;
+
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final IssueStatus[] ISSUE_STATUSES = IssueStatus.values();
+    private static final IssuePriority[] ISSUE_PRIORITIES = IssuePriority.values();
+
+    private EntityCodec() {
+    }
+
+    // --- Issues: always the full state, so replaying a record is an idempotent upsert ---
+
+    public static void writeIssue(BinaryWriter out, Issue issue) {
+        out.putByte(ISSUE);
+        out.putString(issue.getId());
+        out.putString(issue.getTransactionId());
+        out.putByte(issue.getType().ordinal());
+        out.putString(issue.getSubject());
+        out.putString(issue.getDescription());
+        out.putString(issue.getCustomerEmail());
+        out.putByte(issue.getPriority().ordinal());
+        out.putByte(issue.getStatus().ordinal());
+        out.putString(issue.getResolution());
+        out.putString(issue.getAssignedAgentId());
+        putTime(out, issue.getCreatedAt());
+        putTime(out, issue.getUpdatedAt());
+        out.putString(issue.getDuplicateOfId());
+    }
+
+    // Assumes the record type byte has already been read
+    public static Issue readIssue(BinaryReader in) {
+        String id = in.getString();
+        String transactionId = in.getString();
+        IssueType type = ISSUE_TYPES[in.getByte()];
+        String subject = in.getString();
+        String description = in.getString();
+        String customerEmail = in.getString();
+        IssuePriority priority = ISSUE_PRIORITIES[in.getByte()];
+        IssueStatus status = ISSUE_STATUSES[in.getByte()];
+        String resolution = in.getString();
+        String assignedAgentId = in.getString();
+        LocalDateTime createdAt = getTime(in);
+        LocalDateTime updatedAt = getTime(in);
+        Issue issue = Issue.restore(id, transactionId, type, subject, description, customerEmail,
+                priority, status, resolution, assignedAgentId, createdAt, updatedAt);
+        issue.setDuplicateOfId(in.getString());
+        return issue;
+    }
+
+    // --- Agents: full state except the work history, of which only the entries from historyOffset on are written ---
+
+    public static void writeAgent(BinaryWriter out, Agent agent, int historyOffset, List<String> historyEntries) {
+        out.putByte(AGENT);
+        out.putString(agent.getAgentId());
+        out.putString(agent.getEmail());
+        out.putString(agent.getName());
+        out.putInt(agent.getExpertiseMask());
+        out.putInt(agent.getCapacity());
+        List<String> activeIssueIds = agent.getActiveIssueIds();
+        out.putInt(activeIssueIds.size());
+        for (String issueId : activeIssueIds) {
+            out.putString(issueId);
+        }
+        out.putInt(historyOffset);
+        out.putInt(historyEntries.size());
+        for (String issueId : historyEntries) {
+            out.putString(issueId);
+        }
+    }
+
+    // Assumes the record type byte has already been read
+    public static AgentRecord readAgent(BinaryReader in) {
+        String agentId = in.getString();
+        String email = in.getString();
+        String name = in.getString();
+        int expertiseMask = in.getInt();
+        List<IssueType> expertiseTypes = new ArrayList<>();
+        for (IssueType type : ISSUE_TYPES) {
+            if ((expertiseMask & Agent.bitOf(type)) != 0) {
+                expertiseTypes.add(type);
+            }
+        }
+        int capacity = in.getInt();
+        int activeCount = in.getInt();
+        List<String> activeIssueIds = new ArrayList<>(activeCount);
+        for (int i = 0; i < activeCount; i++) {
+            activeIssueIds.add(in.getString());
+        }
+        int historyOffset = in.getInt();
+        int historyCount = in.getInt();
+        List<String> historyEntries = new ArrayList<>();
+        for (int i = 0; i < historyCount; i++) {
+            historyEntries.add(in.getString());
+        }
+        return new AgentRecord(agentId, email, name, expertiseTypes, capacity, activeIssueIds, historyOffset, historyEntries);
+    }
+
+    // Decoded agent record, applied by the repository on top of whatever it already has for that agent
+    public static class AgentRecord {
+        private final String agentId;
+        private final String email;
+        private final String name;
+        private final List<IssueType> expertiseTypes;
+        private final int capacity;
+        private final List<String> activeIssueIds;
+        private final int historyOffset;
+        private final List<String> historyEntries;
+
+        AgentRecord(String agentId, String email, String name, List<IssueType> expertiseTypes,
+                    int capacity, List<String> activeIssueIds, int historyOffset, List<String> historyEntries) {
+            this.agentId = agentId;
+            this.email = email;
+            this.name = name;
+            this.expertiseTypes = expertiseTypes;
+            this.capacity = capacity;
+            this.activeIssueIds = activeIssueIds;
+            this.historyOffset = historyOffset;
+            this.historyEntries = historyEntries;
+        }
+
+        public String getAgentId() { return agentId; }
+
+        // Creates the agent if this is the first record for it, or brings the existing one up to date
+        public Agent applyTo(Agent existing) {
+            if (existing == null) {
+                return Agent.restore(agentId, email, name, expertiseTypes, capacity, activeIssueIds, historyEntries);
+            }
+            existing.restoreActiveIssues(activeIssueIds);
+            existing.restoreWorkHistory(historyOffset, historyEntries);
+            return existing;
+        }
+    }
+
+    private static void putTime(BinaryWriter out, LocalDateTime time) {
+        out.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(time.getNano());
+    }
+
+    private static LocalDateTime getTime(BinaryReader in) {
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
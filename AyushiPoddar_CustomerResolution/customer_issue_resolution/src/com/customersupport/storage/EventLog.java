@@ -0,0 +1,337 @@
+package com.customersupport.storage;
+
+import com.customersupport.instrumentation.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log, split into numbered segment files (wal-1.log, wal-2.log, ...).
+ *
+ * Every segment starts with a FileHeader (LOG_MAGIC, EntityCodec.FORMAT_VERSION), followed by the records, each
+ * framed as [int bodyLength][int crc32c(body)][body]. Appends only copy the frame into an in-memory
+ * buffer and hand back a log sequence number (LSN); whoever then needs the data on disk calls awaitDurable(lsn).
+ * The first caller to get the flush lock writes out everything appended so far with one write + one fsync, and
+ * every caller whose LSN was covered by that batch returns without touching the disk (group commit).
+ *
+ * On open, segments are replayed in order. A torn or corrupt record at the end of the last segment (a crash in the
+ * middle of a write) is cut off; corruption anywhere else is reported as an error, and so is a segment without a
+ * valid header.
+ */
+public class EventLog implements Closeable {
+    public static final int LOG_MAGIC = 0x4353574C; // "CSWL"
+    private static final Logger LOG = Logger.get(EventLog.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final int INITIAL_BUFFER = 1 << 20;
+    private static final int MAX_PENDING_BYTES = 8 << 20; // Above this, INTERVAL/NEVER appenders flush inline
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService flusher; // Only for INTERVAL and NEVER
+
+    // Guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer pending = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+    private long appendedLsn;
+
+    // Guarded by flushLock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ByteBuffer flushing = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+    private FileChannel channel;
+    private long generation;
+
+    private volatile long writtenLsn; // Everything up to here has been handed to the OS
+    private volatile long forcedLsn;  // Everything up to here has been fsynced
+    private volatile boolean closed;
+
+    private EventLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            boolean force = fsyncPolicy == FsyncPolicy.INTERVAL;
+            flusher.scheduleWithFixedDelay(() -> flushQuietly(force), fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens (or creates) the log in the given directory. Records of every segment with a number >= fromGeneration
+     * are fed to the replayer in order before the method returns; older segments are left alone.
+     */
+    public static EventLog open(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                                long fromGeneration, Consumer<ByteBuffer> replayer) throws IOException {
+        Files.createDirectories(directory);
+        EventLog log = new EventLog(directory, fsyncPolicy, fsyncIntervalMillis);
+
+        List<Long> generations = new ArrayList<>();
+        for (long generation : listGenerations(directory)) {
+            if (generation >= fromGeneration) {
+                generations.add(generation);
+            }
+        }
+        for (int i = 0; i < generations.size(); i++) {
+            boolean last = i == generations.size() - 1;
+            replaySegment(log.segmentPath(generations.get(i)), last, replayer);
+        }
+
+        log.generation = generations.isEmpty() ? Math.max(fromGeneration, 1) : generations.get(generations.size() - 1);
+        log.channel = openForAppend(log.segmentPath(log.generation));
+        return log;
+    }
+
+    /**
+     * Buffers one record and returns its LSN. The record is not durable until awaitDurable(lsn) returns
+     * (or, for INTERVAL/NEVER, until the background flusher has run).
+     */
+    public long append(byte[] body, int length) {
+        long lsn;
+        boolean flushNow;
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event log is closed.");
+            }
+            crc.reset();
+            crc.update(body, 0, length);
+            ensurePendingCapacity(RecordFraming.HEADER_BYTES + length);
+            pending.putInt(length);
+            pending.putInt((int) crc.getValue());
+            pending.put(body, 0, length);
+            lsn = ++appendedLsn;
+            flushNow = fsyncPolicy != FsyncPolicy.ALWAYS && pending.position() > MAX_PENDING_BYTES;
+        } finally {
+            appendLock.unlock();
+        }
+        if (flushNow) {
+            flush(lsn, false); // Keeps the buffer bounded between two background flushes
+        }
+        return lsn;
+    }
+
+    // Blocks until the record with this LSN is as durable as the fsync policy promises
+    public void awaitDurable(long lsn) {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            flush(lsn, true);
+        }
+    }
+
+    /**
+     * Flushes, forces and closes the current segment and continues in a new one.
+     * Returns the number of the new segment: all records appended before the call are in older segments.
+     */
+    public long rotate() throws IOException {
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                writeOut(swapPending(), true);
+                writtenLsn = appendedLsn;
+                forcedLsn = appendedLsn;
+                channel.close();
+                generation++;
+                channel = openForAppend(segmentPath(generation));
+                return generation;
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Deletes every segment older than the given one; they are covered by a snapshot
+    public void deleteSegmentsBefore(long generation) throws IOException {
+        for (long existing : listGenerations(directory)) {
+            if (existing < generation) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            // Not shutdownNow(): interrupting a flush in the middle of a write would close the channel under it
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                writeOut(swapPending(), true);
+                channel.close();
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // --- Flushing ---
+
+    private void flush(long lsn, boolean force) {
+        if ((force ? forcedLsn : writtenLsn) >= lsn) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if ((force ? forcedLsn : writtenLsn) >= lsn) {
+                return; // Another thread's batch already covered this record
+            }
+            long batchLsn;
+            ByteBuffer batch;
+            appendLock.lock();
+            try {
+                batchLsn = appendedLsn;
+                batch = swapPending();
+            } finally {
+                appendLock.unlock();
+            }
+            writeOut(batch, force);
+            writtenLsn = batchLsn;
+            if (force) {
+                forcedLsn = batchLsn;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the event log.", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly(boolean force) {
+        try {
+            flush(appendedLsnSnapshot(), force);
+        } catch (RuntimeException e) {
+            LOG.error("Background event log flush failed, retrying at the next interval.", e);
+        }
+    }
+
+    private long appendedLsnSnapshot() {
+        appendLock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Assumes both locks are held. Hands the filled buffer to the flusher and gives the appenders the empty one.
+    private ByteBuffer swapPending() {
+        ByteBuffer filled = pending;
+        flushing.clear();
+        pending = flushing;
+        flushing = filled;
+        filled.flip();
+        return filled;
+    }
+
+    // Assumes flushLock is held
+    private void writeOut(ByteBuffer batch, boolean force) throws IOException {
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    // Assumes appendLock is held
+    private void ensurePendingCapacity(int extra) {
+        if (pending.remaining() < extra) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(pending.capacity() * 2, pending.position() + extra));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    // --- Segment files ---
+
+    private Path segmentPath(long generation) {
+        return directory.resolve("wal-" + generation + ".log");
+    }
+
+    // A new (or empty) segment gets its header right away, forced along with its first batch of records
+    private static FileChannel openForAppend(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = FileHeader.encode(LOG_MAGIC, EntityCodec.FORMAT_VERSION);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        return channel;
+    }
+
+    private static List<Long> listGenerations(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    // The segment is memory-mapped for replay, so recovery is bounded by how fast the records can be decoded
+    private static void replaySegment(Path path, boolean lastSegment, Consumer<ByteBuffer> replayer) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = file.size();
+            if (size < FileHeader.BYTES && lastSegment) {
+                file.truncate(0); // Created (or its header torn) right before a crash: nothing was logged in it
+                return;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + path + " is too large to replay; snapshots should keep segments small.");
+            }
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            FileHeader.read(mapped, LOG_MAGIC, EntityCodec.FORMAT_VERSION, path);
+            int validEnd = RecordFraming.read(mapped, replayer);
+            if (validEnd < size) {
+                if (!lastSegment) {
+                    throw new IOException("Corrupt record in " + path + " at offset " + validEnd + ".");
+                }
+                file.truncate(validEnd); // A crash interrupted the last write, drop the partial record
+            }
+        }
+    }
+}
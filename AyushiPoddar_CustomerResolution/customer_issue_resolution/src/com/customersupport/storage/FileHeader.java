@@ -0,0 +1,45 @@
+package com.customersupport.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * The eight bytes at the start of every event log segment and snapshot file: [int magic][int formatVersion].
+ * The magic number tells what kind of file it is, the version how its contents are encoded (see
+ * EntityCodec.FORMAT_VERSION). A file without this header is not one of ours and is refused.
+ */
+public final class FileHeader {
+    public static final int BYTES = 8;
+
+    private FileHeader() {
+    }
+
+    public static ByteBuffer encode(int magic, int version) {
+        ByteBuffer header = ByteBuffer.allocate(BYTES);
+        header.putInt(magic).putInt(version).flip();
+        return header;
+    }
+
+    public static void write(OutputStream out, int magic, int version) throws IOException {
+        out.write(encode(magic, version).array());
+    }
+
+    /**
+     * Checks the header at the buffer's position and moves past it. A missing or foreign magic number, or a version
+     * other than the one this build writes, is an IOException rather than a misreading of the file.
+     */
+    public static void read(ByteBuffer buffer, int magic, int version, Path path) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < BYTES || buffer.getInt(start) != magic) {
+            throw new IOException(path + " has no valid file header.");
+        }
+        int fileVersion = buffer.getInt(start + 4);
+        if (fileVersion != version) {
+            throw new IOException(path + " has format version " + fileVersion + ", this build reads version "
+                    + version + ".");
+        }
+        buffer.position(start + BYTES);
+    }
+}
@@ -0,0 +1,8 @@
+package com.customersupport.storage;
+
+// When the event log forces its data to disk
+public enum FsyncPolicy {
+    ALWAYS,   // Every append waits for an fsync; concurrent appends share one fsync (group commit)
+    INTERVAL, // A background thread fsyncs at a fixed interval; a crash can lose the last interval
+    NEVER     // Data is handed to the OS but never forced; a machine crash can lose anything not yet written back
+}
@@ -0,0 +1,156 @@
+package com.customersupport.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file that is memory-mapped in chunks and grows a chunk at a time, so it can go past the 2 GB limit of a single
+ * MappedByteBuffer. Each file has its own sizes: the first chunk is mapped at initialSize and doubles as the file
+ * grows until it is chunkSize, and after that the file grows by whole chunks. So a file that stays small reserves
+ * little address space and disk, and a large one is never re-mapped once it is past its first chunk.
+ *
+ * Values are addressed by absolute byte offset. Callers keep fixed-width values aligned to their width so that a
+ * value never straddles two chunks; putString() takes care of that itself for variable-length strings.
+ * The data lives in the OS page cache, not on the Java heap. Opening an existing file keeps and maps what it holds.
+ */
+public class MappedFile implements Closeable {
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long initialSize;
+    private final int chunkShift;
+    private final long chunkSize;
+    private final long chunkMask;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    // Both sizes are powers of two, initialSize <= chunkSize <= 1 GB
+    public MappedFile(Path path, long initialSize, long chunkSize) throws IOException {
+        if (Long.bitCount(initialSize) != 1 || Long.bitCount(chunkSize) != 1 || initialSize > chunkSize || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid mapped file sizes: initial " + initialSize + ", chunk " + chunkSize + ".");
+        }
+        this.initialSize = initialSize;
+        this.chunkShift = Long.numberOfTrailingZeros(chunkSize);
+        this.chunkSize = chunkSize;
+        this.chunkMask = chunkSize - 1;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ensureCapacity(channel.size());
+    }
+
+    /**
+     * Maps enough of the file to cover [0, size). Not thread-safe with itself; callers serialize growth.
+     * Growing the first chunk maps it again, larger; readers that still hold the smaller mapping see the same pages.
+     */
+    public void ensureCapacity(long size) {
+        MappedByteBuffer[] current = chunks;
+        long mapped = current.length == 0 ? 0 : ((long) (current.length - 1) << chunkShift) + current[current.length - 1].capacity();
+        if (size <= mapped) {
+            return;
+        }
+        int needed = (int) ((size + chunkSize - 1) >>> chunkShift);
+        long firstChunk = needed > 1 ? chunkSize : Math.max(initialSize, Long.highestOneBit(size - 1) << 1);
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        try {
+            if (current.length == 0 || current[0].capacity() < firstChunk) {
+                grown[0] = channel.map(FileChannel.MapMode.READ_WRITE, 0, firstChunk);
+            }
+            for (int i = Math.max(current.length, 1); i < needed; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << chunkShift, chunkSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow memory-mapped file.", e);
+        }
+        chunks = grown;
+    }
+
+    public byte getByte(long offset) {
+        return chunk(offset).get((int) (offset & chunkMask));
+    }
+
+    public void putByte(long offset, byte value) {
+        chunk(offset).put((int) (offset & chunkMask), value);
+    }
+
+    public int getInt(long offset) {
+        return chunk(offset).getInt((int) (offset & chunkMask));
+    }
+
+    public void putInt(long offset, int value) {
+        chunk(offset).putInt((int) (offset & chunkMask), value);
+    }
+
+    public long getLong(long offset) {
+        return chunk(offset).getLong((int) (offset & chunkMask));
+    }
+
+    public void putLong(long offset, long value) {
+        chunk(offset).putLong((int) (offset & chunkMask), value);
+    }
+
+    /**
+     * Writes [int length][UTF-8 bytes] at or after the given offset and returns the offset it was written at
+     * (moved to the next chunk if it wouldn't fit in the current one). The end is at returned + 4 + byteLength.
+     */
+    public long putString(long offset, byte[] utf8) {
+        long size = 4L + utf8.length;
+        if (size > chunkSize) {
+            throw new IllegalArgumentException("String of " + utf8.length + " bytes is too large for a mapped chunk.");
+        }
+        if ((offset & chunkMask) + size > chunkSize) {
+            offset = (offset + chunkMask) & ~chunkMask; // Start of the next chunk
+        }
+        ensureCapacity(offset + size);
+        MappedByteBuffer chunk = chunk(offset);
+        int position = (int) (offset & chunkMask);
+        chunk.putInt(position, utf8.length);
+        chunk.put(position + 4, utf8);
+        return offset;
+    }
+
+    public String getString(long offset) {
+        MappedByteBuffer chunk = chunk(offset);
+        int position = (int) (offset & chunkMask);
+        int length = chunk.getInt(position);
+        byte[] bytes = new byte[length];
+        chunk.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Compares a stored string with the given UTF-8 bytes without materializing it
+    public boolean stringEquals(long offset, byte[] utf8) {
+        MappedByteBuffer chunk = chunk(offset);
+        int position = (int) (offset & chunkMask);
+        if (chunk.getInt(position) != utf8.length) {
+            return false;
+        }
+        for (int i = 0; i < utf8.length; i++) {
+            if (chunk.get(position + 4 + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes the changed pages out to the file (they reach it anyway, unless the machine goes down first)
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    private MappedByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> chunkShift)];
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks = new MappedByteBuffer[0];
+        channel.close(); // The mappings themselves go away once the buffers are garbage collected
+    }
+}
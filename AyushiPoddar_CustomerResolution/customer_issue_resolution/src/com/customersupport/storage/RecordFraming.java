@@ -0,0 +1,56 @@
+package com.customersupport.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// Shared [int bodyLength][int crc32c(body)][body] framing used by the event log and snapshot files
+public final class RecordFraming {
+    public static final int HEADER_BYTES = 8;
+
+    private RecordFraming() {
+    }
+
+    public static void write(OutputStream out, byte[] body, int length) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(body, 0, length);
+        writeInt(out, length);
+        writeInt(out, (int) crc.getValue());
+        out.write(body, 0, length);
+    }
+
+    /**
+     * Feeds every intact record in the buffer to the consumer, starting at its position.
+     * Stops at the first torn or corrupt record and returns the offset right after the last good one.
+     */
+    public static int read(ByteBuffer buffer, Consumer<ByteBuffer> consumer) {
+        CRC32C crc = new CRC32C();
+        int validEnd = buffer.position();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(body);
+            buffer.position(buffer.position() + length);
+            validEnd = buffer.position();
+        }
+        return validEnd;
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
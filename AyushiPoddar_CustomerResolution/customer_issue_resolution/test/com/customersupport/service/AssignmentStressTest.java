@@ -0,0 +1,243 @@
+package com.customersupport.service;
+
+import com.customersupport.Strategy.AssignmentStrategy;
+import com.customersupport.Strategy.IssueAssignmentStrategy;
+import com.customersupport.Strategy.QueueBalancingAssignmentStrategy;
+import com.customersupport.enums.IssuePriority;
+import com.customersupport.enums.IssueStatus;
+import com.customersupport.enums.IssueType;
+import com.customersupport.events.IssueEventPublisher;
+import com.customersupport.instrumentation.AsyncLogger;
+import com.customersupport.instrumentation.LogLevel;
+import com.customersupport.instrumentation.Logger;
+import com.customersupport.model.Agent;
+import com.customersupport.model.Issue;
+import com.customersupport.repository.InMemoryAgentRepository;
+import com.customersupport.repository.InMemoryIssueRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Stress test of the concurrent assignment path (per-type locks, agents' slots claimed by compare-and-set): THREADS
+ * threads create, assign and resolve issues as fast as they can, while one more thread keeps sampling the agents.
+ * With these sizes agents are free often enough that two types regularly race for the same multi-skilled agent, and
+ * busy often enough that issues go through the waiting queues. Then the state is checked at rest and every issue
+ * that is left is resolved, which must drain the waiting queues.
+ */
+class AssignmentStressTest {
+    private static final int THREADS = 8;
+    private static final int AGENTS = 24;
+    private static final int ISSUES_PER_THREAD = 2000;
+    private static final IssueType[] ISSUE_TYPES = IssueType.values();
+    private static final IssuePriority[] PRIORITIES = IssuePriority.values();
+
+    @BeforeAll
+    static void quietLogger() {
+        Logger.setBackend(new AsyncLogger(System.err, LogLevel.WARN, 1024));
+    }
+
+    @AfterAll
+    static void restoreLogger() {
+        Logger.setBackend(null);
+    }
+
+    @ParameterizedTest(name = "{0}, {1} slot(s) per agent")
+    @CsvSource({"AssignmentStrategy, 1", "AssignmentStrategy, 3", "QueueBalancingAssignmentStrategy, 1"})
+    void everyIssueIsAssignedOnceOrWaitsAndNoAgentGoesOverCapacity(String strategy, int capacity) throws Exception {
+        InMemoryIssueRepository issueRepo = new InMemoryIssueRepository();
+        InMemoryAgentRepository agentRepo = new InMemoryAgentRepository();
+        IssueService issueService = new IssueService(issueRepo, agentRepo, newStrategy(strategy),
+                IssueEventPublisher.direct(event -> { }));
+        AgentService agentService = new AgentService(agentRepo);
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < AGENTS; i++) {
+            agents.add(agentService.addAgent("agent" + i + "@stress.test", "Agent " + i, expertiseFor(i), capacity));
+        }
+
+        // The sampler can't fail the test from its own thread, so it collects what it sees
+        ConcurrentLinkedQueue<String> sampled = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(42 + thread);
+                List<String> mine = new ArrayList<>(); // Issues of this thread that may still need resolving
+                try {
+                    start.await();
+                    for (int i = 0; i < ISSUES_PER_THREAD; i++) {
+                        int index = thread * ISSUES_PER_THREAD + i;
+                        Issue issue = issueService.createIssue("T" + index, ISSUE_TYPES[Math.floorMod(mix(index), ISSUE_TYPES.length)].name(),
+                                "Stress issue #" + index, "Created under stress", "customer" + index + "@stress.test",
+                                PRIORITIES[Math.floorMod(mix(index) >>> 8, PRIORITIES.length)].name());
+                        issueService.assignIssue(issue.getId());
+                        mine.add(issue.getId());
+                        // Resolve about as many issues as are created, picking any of ours that an agent is working on
+                        if (random.nextInt(4) != 0) {
+                            resolveSome(issueService, issueRepo, mine, random, 2);
+                        }
+                        if (random.nextInt(2000) == 0) {
+                            issueService.assignPending(); // The batch path takes every type lock at once
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "stress-" + t));
+        }
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                Map<String, String> holders = new HashMap<>();
+                for (Agent agent : agents) {
+                    List<String> active = agent.getActiveIssueIds();
+                    if (active.size() > agent.getCapacity()) {
+                        sampled.add("Agent " + agent.getAgentId() + " held " + active.size() + " issues with "
+                                + agent.getCapacity() + " slots: " + active);
+                    }
+                    for (String issueId : active) {
+                        // An issue leaves an agent only when it is resolved, and is never assigned again after that,
+                        //so even a sample that isn't atomic across agents never sees an issue twice
+                        String other = holders.put(issueId, agent.getAgentId());
+                        if (other != null) {
+                            sampled.add("Issue " + issueId + " was held by agents " + other + " and " + agent.getAgentId());
+                        }
+                    }
+                }
+                Thread.yield(); // Let the workers run, there may be fewer cores than threads
+            }
+        }, "stress-sampler");
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        sampler.start();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        running.set(false);
+        sampler.join();
+        assertEquals(List.of(), List.copyOf(failures), "Workers failed");
+        assertEquals(List.of(), List.copyOf(sampled), "Seen while the workers ran");
+
+        // At rest: every unfinished issue is either held by its agent or waiting, and nothing waits while an agent
+        //of its type has a free slot
+        assertAssignedOnceWithinCapacity(issueRepo, agents);
+        for (Issue issue : issueRepo.findAll()) {
+            IssueStatus status = issue.getStatus();
+            assertTrue(status == IssueStatus.IN_PROGRESS || status == IssueStatus.WAITING || isFinished(status),
+                    () -> "Issue " + issue.getId() + " is " + status + ", neither assigned nor waiting");
+            if (status == IssueStatus.WAITING) {
+                for (Agent agent : agents) {
+                    assertTrue(!agent.canHandle(issue.getType()) || !agent.hasFreeSlot(),
+                            () -> "Issue " + issue.getId() + " is WAITING while agent " + agent.getAgentId() + " has a free slot");
+                }
+            }
+        }
+
+        // Drain: every resolution pulls the next waiting issue, so in the end nothing may be left over (a waiting
+        //issue that was lost from its queue would be)
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Issue issue : issueRepo.findAll()) {
+                if (issue.getStatus() == IssueStatus.IN_PROGRESS) {
+                    issueService.resolveIssue(issue.getId(), "Drained");
+                    progress = true;
+                }
+            }
+        }
+        assertAssignedOnceWithinCapacity(issueRepo, agents);
+        List<Issue> all = issueRepo.findAll();
+        assertEquals(THREADS * ISSUES_PER_THREAD, all.size());
+        for (Issue issue : all) {
+            assertTrue(isFinished(issue.getStatus()),
+                    () -> "Issue " + issue.getId() + " is still " + issue.getStatus() + " after the queues were drained");
+        }
+    }
+
+    // No agent over capacity, no issue held by two agents, and agents and issues agree on who works on what
+    private static void assertAssignedOnceWithinCapacity(InMemoryIssueRepository issueRepo, List<Agent> agents) {
+        Map<String, String> holders = new HashMap<>();
+        for (Agent agent : agents) {
+            assertTrue(agent.getLoad() <= agent.getCapacity(),
+                    () -> "Agent " + agent.getAgentId() + " holds " + agent.getLoad() + " issues with " + agent.getCapacity() + " slots");
+            for (String issueId : agent.getActiveIssueIds()) {
+                String other = holders.put(issueId, agent.getAgentId());
+                if (other != null) {
+                    fail("Issue " + issueId + " is held by agents " + other + " and " + agent.getAgentId());
+                }
+                Issue issue = issueRepo.findById(issueId).orElse(null);
+                assertNotNull(issue, () -> "Agent " + agent.getAgentId() + " works on unknown issue " + issueId);
+                assertEquals(IssueStatus.IN_PROGRESS, issue.getStatus(), () -> "Status of " + issueId + ", held by " + agent.getAgentId());
+                assertEquals(agent.getAgentId(), issue.getAssignedAgentId(), () -> "Agent of " + issueId);
+            }
+        }
+        for (Issue issue : issueRepo.findAll()) {
+            if (issue.getStatus() == IssueStatus.IN_PROGRESS) {
+                assertEquals(issue.getAssignedAgentId(), holders.get(issue.getId()),
+                        () -> "Issue " + issue.getId() + " is IN_PROGRESS with an agent who isn't working on it");
+            }
+        }
+    }
+
+    // Resolves up to max of the thread's issues that are IN_PROGRESS, and forgets the ones that are finished
+    private static void resolveSome(IssueService issueService, InMemoryIssueRepository issueRepo, List<String> mine,
+                                    SplittableRandom random, int max) {
+        for (int attempt = 0; attempt < max && !mine.isEmpty(); attempt++) {
+            int index = random.nextInt(mine.size());
+            String issueId = mine.get(index);
+            Issue issue = issueRepo.findById(issueId).orElseThrow();
+            if (issue.getStatus() == IssueStatus.IN_PROGRESS) {
+                issueService.resolveIssue(issueId, "Resolved under stress");
+            }
+            if (isFinished(issue.getStatus())) {
+                mine.set(index, mine.get(mine.size() - 1));
+                mine.remove(mine.size() - 1);
+            }
+        }
+    }
+
+    private static IssueAssignmentStrategy newStrategy(String name) {
+        return name.equals("QueueBalancingAssignmentStrategy") ? new QueueBalancingAssignmentStrategy() : new AssignmentStrategy();
+    }
+
+    // One or two expertise types per agent; with at least as many agents as types, every type is covered
+    private static List<IssueType> expertiseFor(int agentIndex) {
+        List<IssueType> expertise = new ArrayList<>();
+        expertise.add(ISSUE_TYPES[agentIndex % ISSUE_TYPES.length]);
+        IssueType second = ISSUE_TYPES[(agentIndex * 3 + 1) % ISSUE_TYPES.length];
+        if (!expertise.contains(second)) {
+            expertise.add(second);
+        }
+        return expertise;
+    }
+
+    // Cheap deterministic scrambling, so consecutive issues don't get consecutive types
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean isFinished(IssueStatus status) {
+        return status == IssueStatus.RESOLVED || status == IssueStatus.CLOSED;
+    }
+}